@@ -0,0 +1,85 @@
+package io.github.lc.oss.commons.encryption.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.lc.oss.commons.encryption.Ciphers;
+import io.github.lc.oss.commons.encryption.DerivedKey;
+
+/**
+ * Batch API cost for column sized values. Scores are per batch, divide by
+ * <code>batchSize</code> for the per item cost.<br/>
+ * <br />
+ * <code>encryptAll</code> and <code>decryptAll</code> include the one key
+ * derivation per batch, <code>encryptEach</code> is the single value API with
+ * an already derived key for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BatchBenchmark {
+    private static final char[] PASSWORD = "benchmark".toCharArray();
+
+    @Param({ "1", "10", "100", "1000", "10000", "100000" })
+    public int batchSize;
+
+    @Param({ "64" })
+    public int size;
+
+    private List<byte[]> data;
+    private DerivedKey key;
+    private List<byte[]> envelopes;
+
+    @Setup
+    public void setup() {
+        this.data = Collections.nCopies(this.batchSize, Payloads.random(this.size));
+        this.key = Ciphers.AES256.deriveKey(BatchBenchmark.PASSWORD);
+        this.envelopes = Ciphers.AES256.encryptAll(this.data, this.key);
+    }
+
+    @Benchmark
+    public List<byte[]> encryptAll() {
+        return Ciphers.AES256.encryptAll(this.data, BatchBenchmark.PASSWORD);
+    }
+
+    @Benchmark
+    public List<byte[]> encryptAllDerivedKey() {
+        return Ciphers.AES256.encryptAll(this.data, this.key);
+    }
+
+    @Benchmark
+    public List<byte[]> encryptEach() {
+        List<byte[]> out = new ArrayList<>(this.data.size());
+        for (byte[] value : this.data) {
+            out.add(Ciphers.AES256.encryptEnvelope(value, this.key));
+        }
+        return out;
+    }
+
+    @Benchmark
+    public List<byte[]> decryptAll() {
+        return Ciphers.AES256.decryptAll(this.envelopes, BatchBenchmark.PASSWORD);
+    }
+
+    @Benchmark
+    public List<byte[]> decryptAllDerivedKey() {
+        return Ciphers.AES256.decryptAll(this.envelopes, this.key);
+    }
+}
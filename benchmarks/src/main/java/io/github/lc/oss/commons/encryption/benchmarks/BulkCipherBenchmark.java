@@ -0,0 +1,82 @@
+package io.github.lc.oss.commons.encryption.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.lc.oss.commons.encryption.BulkCipher;
+import io.github.lc.oss.commons.encryption.BulkResult;
+import io.github.lc.oss.commons.encryption.Ciphers;
+import io.github.lc.oss.commons.encryption.DerivedKey;
+
+/**
+ * {@linkplain BulkCipher} scaling. <code>parallelism</code> 0 means one thread
+ * per available core. Scores are per call of <code>items</code> values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BulkCipherBenchmark {
+    @Param({ "1", "4", "16", "0" })
+    public int parallelism;
+
+    @Param({ "10000" })
+    public int items;
+
+    @Param({ "1024" })
+    public int size;
+
+    private ForkJoinPool pool;
+    private BulkCipher bulk;
+    private DerivedKey key;
+    private List<byte[]> data;
+    private List<byte[]> envelopes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int threads = this.parallelism == 0 ? Runtime.getRuntime().availableProcessors() : this.parallelism;
+        this.pool = new ForkJoinPool(threads);
+        this.bulk = new BulkCipher(Ciphers.AES256, this.pool, threads);
+        this.key = Ciphers.AES256.deriveKey("benchmark".toCharArray());
+        this.data = Collections.nCopies(this.items, Payloads.random(this.size));
+
+        this.envelopes = new ArrayList<>(this.items);
+        for (BulkResult result : this.bulk.encrypt(this.data, this.key)) {
+            this.envelopes.add(result.getValue());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.pool.shutdown();
+    }
+
+    @Benchmark
+    public List<BulkResult> encrypt() {
+        return this.bulk.encrypt(this.data, this.key);
+    }
+
+    @Benchmark
+    public List<BulkResult> decrypt() {
+        return this.bulk.decrypt(this.envelopes, this.key);
+    }
+}
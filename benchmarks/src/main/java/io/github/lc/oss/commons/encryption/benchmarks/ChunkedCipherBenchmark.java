@@ -0,0 +1,87 @@
+package io.github.lc.oss.commons.encryption.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.lc.oss.commons.encryption.ChunkedCipher;
+import io.github.lc.oss.commons.encryption.Ciphers;
+import io.github.lc.oss.commons.encryption.DerivedKey;
+
+/**
+ * {@linkplain ChunkedCipher} scaling on a single 256 MB buffer.
+ * <code>parallelism</code> 0 means one thread per available core,
+ * <code>segment</code> reads a single segment of the encrypted value.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ChunkedCipherBenchmark {
+    @Param({ "1", "4", "16", "0" })
+    public int parallelism;
+
+    @Param({ "268435456" })
+    public int size;
+
+    @Param({ "65536", "1048576" })
+    public int segmentSize;
+
+    private ForkJoinPool pool;
+    private ChunkedCipher cipher;
+    private DerivedKey key;
+    private ByteBuffer data;
+    private ByteBuffer encrypted;
+    private ByteBuffer out;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int threads = this.parallelism == 0 ? Runtime.getRuntime().availableProcessors() : this.parallelism;
+        this.pool = new ForkJoinPool(threads);
+        this.cipher = new ChunkedCipher(Ciphers.AES256, this.segmentSize, this.pool, threads);
+        this.key = Ciphers.AES256.deriveKey("benchmark".toCharArray());
+
+        this.data = ByteBuffer.allocateDirect(this.size);
+        this.data.put(Payloads.random(this.size));
+        this.data.flip();
+        this.encrypted = ByteBuffer.allocateDirect((int) this.cipher.getEncryptedSize(this.size, this.key));
+        this.cipher.encrypt(this.data.duplicate(), this.encrypted.duplicate(), this.key);
+        this.out = ByteBuffer.allocateDirect(this.encrypted.capacity());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.pool.shutdown();
+    }
+
+    @Benchmark
+    public int encrypt() {
+        return this.cipher.encrypt(this.data.duplicate(), this.out.clear(), this.key);
+    }
+
+    @Benchmark
+    public int decrypt() {
+        return this.cipher.decrypt(this.encrypted.duplicate(), this.out.clear(), this.key);
+    }
+
+    @Benchmark
+    public byte[] segment() {
+        return this.cipher.decryptSegment(this.encrypted, 1, this.key);
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.lc.oss.commons.encryption.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.lc.oss.commons.encryption.CipherProviders;
+import io.github.lc.oss.commons.encryption.Ciphers;
+import io.github.lc.oss.commons.encryption.DerivedKey;
+
+/**
+ * Compares engine acquisition strategies. NEW_INSTANCE is the historical
+ * behavior. Uses a pre-derived key so the password hash does not dominate.
+ * Run with <code>-t</code> to add threads and <code>-prof gc</code> to compare
+ * allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CipherProviderBenchmark {
+    @Param({ "NEW_INSTANCE", "THREAD_LOCAL", "POOLED" })
+    public String provider;
+
+    @Param({ "64", "1024" })
+    public int size;
+
+    private byte[] data;
+    private DerivedKey key;
+    private String encrypted;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Ciphers.AES256.setCipherProvider(CipherProviders.byName(this.provider));
+        this.data = Payloads.random(this.size);
+        this.key = Ciphers.AES256.deriveKey("benchmark".toCharArray());
+        this.encrypted = Ciphers.AES256.encrypt(this.data, this.key);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Ciphers.AES256.setCipherProvider(CipherProviders.NEW_INSTANCE);
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return Ciphers.AES256.encrypt(this.data, this.key);
+    }
+
+    @Benchmark
+    public byte[] decrypt() {
+        return Ciphers.AES256.decrypt(this.encrypted, this.key);
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.lc.oss.commons.encryption.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.lc.oss.commons.encryption.Ciphers;
+import io.github.lc.oss.commons.encryption.DerivedKey;
+
+/**
+ * AES-GCM cost across payload sizes with the key already derived, see
+ * {@linkplain KeyDerivationBenchmark} for the cost of deriving it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CiphersBenchmark {
+    @Param({ "AES128", "AES256" })
+    public String cipher;
+
+    @Param({ "16", "1024", "65536", "1048576", "16777216" })
+    public int size;
+
+    private Ciphers ciphers;
+    private DerivedKey key;
+    private byte[] data;
+    private String encrypted;
+    private byte[] envelope;
+
+    @Setup
+    public void setup() {
+        this.ciphers = Ciphers.byName(this.cipher);
+        this.key = this.ciphers.deriveKey("benchmark".toCharArray());
+        this.data = Payloads.random(this.size);
+        this.encrypted = this.ciphers.encrypt(this.data, this.key);
+        this.envelope = this.ciphers.encryptEnvelope(this.data, this.key);
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return this.ciphers.encrypt(this.data, this.key);
+    }
+
+    @Benchmark
+    public byte[] decrypt() {
+        return this.ciphers.decrypt(this.encrypted, this.key);
+    }
+
+    @Benchmark
+    public byte[] encryptEnvelope() {
+        return this.ciphers.encryptEnvelope(this.data, this.key);
+    }
+
+    @Benchmark
+    public byte[] decryptEnvelope() {
+        return this.ciphers.decryptEnvelope(this.envelope, this.key);
+    }
+}
@@ -0,0 +1,83 @@
+package io.github.lc.oss.commons.encryption.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.lc.oss.commons.encryption.Ciphers;
+import io.github.lc.oss.commons.encryption.DataKeyCipher;
+import io.github.lc.oss.commons.encryption.PasswordMasterKey;
+import io.github.lc.oss.commons.encryption.WrappedKey;
+
+/**
+ * Per value cost of {@linkplain DataKeyCipher} with the data keys cached, and
+ * with a cache too small to hold them so every value unwraps its key, compared
+ * to deriving a key from the password for every value.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DataKeyCipherBenchmark {
+    private static final char[] PASSWORD = "benchmark".toCharArray();
+
+    @Param({ "1024", "1" })
+    public int cacheSize;
+
+    @Param({ "64" })
+    public int size;
+
+    private DataKeyCipher cipher;
+    private WrappedKey[] keys;
+    private String[] encrypted;
+    private byte[] data;
+    private String password;
+    private int next;
+
+    @Setup
+    public void setup() {
+        this.cipher = new DataKeyCipher(Ciphers.AES256, new PasswordMasterKey(DataKeyCipherBenchmark.PASSWORD),
+                this.cacheSize);
+        this.data = Payloads.random(this.size);
+        this.keys = new WrappedKey[16];
+        this.encrypted = new String[this.keys.length];
+        for (int i = 0; i < this.keys.length; i++) {
+            this.keys[i] = this.cipher.generateKey();
+            this.encrypted[i] = this.cipher.encrypt(this.data, this.keys[i]);
+        }
+        this.password = Ciphers.AES256.encrypt(this.data, DataKeyCipherBenchmark.PASSWORD);
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return this.cipher.encrypt(this.data, this.keys[this.next()]);
+    }
+
+    @Benchmark
+    public byte[] decrypt() {
+        int i = this.next();
+        return this.cipher.decrypt(this.encrypted[i], this.keys[i]);
+    }
+
+    @Benchmark
+    public byte[] decryptPassword() {
+        return Ciphers.AES256.decrypt(this.password, DataKeyCipherBenchmark.PASSWORD);
+    }
+
+    private int next() {
+        this.next = (this.next + 1) % this.keys.length;
+        return this.next;
+    }
+}
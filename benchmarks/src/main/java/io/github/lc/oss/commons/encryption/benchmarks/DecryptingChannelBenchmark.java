@@ -0,0 +1,92 @@
+package io.github.lc.oss.commons.encryption.benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.lc.oss.commons.encryption.Ciphers;
+import io.github.lc.oss.commons.encryption.DecryptingChannel;
+import io.github.lc.oss.commons.encryption.DerivedKey;
+import io.github.lc.oss.commons.encryption.MappedFileCipher;
+
+/**
+ * Random 4 KB range reads from a 64 MB encrypted file through a
+ * {@linkplain DecryptingChannel}. <code>cacheSize</code> 1 effectively
+ * disables the segment cache, <code>sequential</code> reads consecutive ranges.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class DecryptingChannelBenchmark {
+    private static final int RANGE = 4096;
+
+    @Param({ "67108864" })
+    public int size;
+
+    @Param({ "1", "8", "64" })
+    public int cacheSize;
+
+    private Path encrypted;
+    private DecryptingChannel channel;
+    private ByteBuffer buffer;
+    private Random random;
+    private long next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        DerivedKey key = Ciphers.AES256.deriveKey("benchmark".toCharArray());
+        Path plain = Files.createTempFile("benchmark", ".plain");
+        this.encrypted = Files.createTempFile("benchmark", ".encrypted");
+        Files.write(plain, Payloads.random(this.size));
+        new MappedFileCipher().encrypt(plain, this.encrypted, key);
+        Files.delete(plain);
+
+        this.channel = new DecryptingChannel(FileChannel.open(this.encrypted, StandardOpenOption.READ), key,
+                this.cacheSize);
+        this.buffer = ByteBuffer.allocate(DecryptingChannelBenchmark.RANGE);
+        this.random = new Random(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.channel.close();
+        Files.deleteIfExists(this.encrypted);
+    }
+
+    @Benchmark
+    public int random() throws IOException {
+        this.buffer.clear();
+        this.channel.position(this.random.nextInt(this.size - DecryptingChannelBenchmark.RANGE));
+        return this.channel.read(this.buffer);
+    }
+
+    @Benchmark
+    public int sequential() throws IOException {
+        this.buffer.clear();
+        this.channel.position(this.next);
+        this.next = (this.next + DecryptingChannelBenchmark.RANGE) % this.size;
+        return this.channel.read(this.buffer);
+    }
+}
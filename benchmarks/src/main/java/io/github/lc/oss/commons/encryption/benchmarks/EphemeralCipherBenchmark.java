@@ -0,0 +1,88 @@
+package io.github.lc.oss.commons.encryption.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.lc.oss.commons.encryption.ephemeral.EphemeralCipher;
+import io.github.lc.oss.commons.encryption.ephemeral.FileBackedCipher;
+import io.github.lc.oss.commons.encryption.ephemeral.MemoryBackedCipher;
+import io.github.lc.oss.commons.encryption.ephemeral.RotatingMemoryBackedCipher;
+
+/**
+ * Ephemeral ciphers shared by several threads. Defaults to 4 threads, use
+ * <code>-t</code> to change the level of contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(4)
+@Fork(1)
+public class EphemeralCipherBenchmark {
+    @Param({ "memory", "file", "rotating" })
+    public String type;
+
+    @Param({ "64" })
+    public int size;
+
+    private Path keyFile;
+    private EphemeralCipher cipher;
+    private byte[] data;
+    private String encrypted;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        switch (this.type) {
+            case "memory":
+                this.cipher = new MemoryBackedCipher();
+                break;
+            case "file":
+                this.keyFile = Files.createTempFile("benchmark", ".key");
+                Files.write(this.keyFile, Payloads.random(512));
+                this.cipher = new FileBackedCipher(this.keyFile.toString());
+                break;
+            case "rotating":
+                this.cipher = new RotatingMemoryBackedCipher();
+                break;
+            default:
+                throw new RuntimeException("Unknown cipher type " + this.type);
+        }
+        this.data = Payloads.random(this.size);
+        this.encrypted = this.cipher.encrypt(this.data);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (this.keyFile != null) {
+            Files.deleteIfExists(this.keyFile);
+        }
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return this.cipher.encrypt(this.data);
+    }
+
+    @Benchmark
+    public byte[] decrypt() {
+        return this.cipher.decrypt(this.encrypted);
+    }
+}
@@ -0,0 +1,64 @@
+package io.github.lc.oss.commons.encryption.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.lc.oss.commons.encryption.Ciphers;
+import io.github.lc.oss.commons.encryption.KeyCache;
+
+/**
+ * Cost of deriving a key from a password, with and without a warm
+ * {@linkplain KeyCache}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyDerivationBenchmark {
+    private static final char[] PASSWORD = "benchmark".toCharArray();
+    private static final byte[] SALT = Payloads.random(16);
+
+    @Param({ "AES128", "AES256" })
+    public String cipher;
+
+    private Ciphers ciphers;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.ciphers = Ciphers.byName(this.cipher);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.ciphers.setKeyCache(null);
+    }
+
+    @Benchmark
+    public Object derive() {
+        this.ciphers.setKeyCache(null);
+        return this.ciphers.deriveKey(KeyDerivationBenchmark.PASSWORD, KeyDerivationBenchmark.SALT);
+    }
+
+    @Benchmark
+    public Object cached() {
+        if (this.ciphers.getKeyCache() == null) {
+            this.ciphers.setKeyCache(new KeyCache());
+        }
+        return this.ciphers.deriveKey(KeyDerivationBenchmark.PASSWORD, KeyDerivationBenchmark.SALT);
+    }
+}
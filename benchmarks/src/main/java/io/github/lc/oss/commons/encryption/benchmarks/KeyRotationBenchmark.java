@@ -0,0 +1,78 @@
+package io.github.lc.oss.commons.encryption.benchmarks;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.lc.oss.commons.encryption.ephemeral.RotatingMemoryBackedCipher;
+
+/**
+ * {@linkplain RotatingMemoryBackedCipher} encryption by 64 threads while the
+ * keys rotate. <code>ttl</code> is the encryption TTL in milliseconds, short
+ * TTLs put a rotation in most samples, 3600000 (1 hour) never rotates and is
+ * the uncontended baseline. With <code>scheduler</code> keys are generated in
+ * the background. Look at the high percentiles of the sample time results for
+ * stalls during rotation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(64)
+@Fork(1)
+public class KeyRotationBenchmark {
+    @Param({ "1", "10", "3600000" })
+    public long ttl;
+
+    @Param({ "4096" })
+    public int keyBits;
+
+    @Param({ "4", "168" })
+    public int slots;
+
+    @Param({ "64" })
+    public int size;
+
+    @Param({ "false", "true" })
+    public boolean scheduler;
+
+    private ScheduledExecutorService executor;
+    private RotatingMemoryBackedCipher cipher;
+    private byte[] data;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.executor = this.scheduler ? Executors.newSingleThreadScheduledExecutor() : null;
+        this.cipher = new RotatingMemoryBackedCipher(this.keyBits, this.slots, this.ttl, this.executor);
+        this.data = Payloads.random(this.size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.cipher.close();
+        if (this.executor != null) {
+            this.executor.shutdown();
+        }
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return this.cipher.encrypt(this.data);
+    }
+}
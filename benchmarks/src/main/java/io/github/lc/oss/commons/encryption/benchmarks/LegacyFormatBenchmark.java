@@ -0,0 +1,58 @@
+package io.github.lc.oss.commons.encryption.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.lc.oss.commons.encoding.Encodings;
+import io.github.lc.oss.commons.encryption.Ciphers;
+import io.github.lc.oss.commons.encryption.DerivedKey;
+
+/**
+ * Per call allocation of parsing the iv$salt$ciphertext format. The
+ * <code>split</code> benchmark reproduces the previous String.split based
+ * parser for comparison. Run with <code>-prof gc</code> and compare
+ * <code>gc.alloc.rate.norm</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LegacyFormatBenchmark {
+    @Param({ "16", "1024" })
+    public int size;
+
+    private DerivedKey key;
+    private String encrypted;
+
+    @Setup
+    public void setup() {
+        this.key = Ciphers.AES256.deriveKey("benchmark".toCharArray());
+        this.encrypted = Ciphers.AES256.encrypt(Payloads.random(this.size), this.key);
+    }
+
+    @Benchmark
+    public byte[] split() {
+        String[] parts = this.encrypted.split("\\$");
+        Encodings.Base64.decode(parts[1]);
+        return Ciphers.AES256.decrypt(Encodings.Base64.decode(parts[2]), this.key,
+                Encodings.Base64.decode(parts[0]));
+    }
+
+    @Benchmark
+    public byte[] singlePass() {
+        return Ciphers.AES256.decrypt(this.encrypted, this.key);
+    }
+}
@@ -0,0 +1,96 @@
+package io.github.lc.oss.commons.encryption.benchmarks;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.lc.oss.commons.encryption.Ciphers;
+import io.github.lc.oss.commons.encryption.DerivedKey;
+import io.github.lc.oss.commons.encryption.MappedFileCipher;
+import io.github.lc.oss.commons.encryption.StreamingCipher;
+import io.github.lc.oss.commons.encryption.SyncPolicy;
+
+/**
+ * File to file encryption of a 256 MB file, {@linkplain MappedFileCipher}
+ * compared to {@linkplain StreamingCipher} over file channels. Files are
+ * written to <code>java.io.tmpdir</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class MappedFileCipherBenchmark {
+    @Param({ "268435456" })
+    public int size;
+
+    @Param({ "65536", "1048576" })
+    public int segmentSize;
+
+    @Param({ "NONE", "ON_COMPLETE" })
+    public String syncPolicy;
+
+    private MappedFileCipher mapped;
+    private StreamingCipher streaming;
+    private DerivedKey key;
+    private Path plain;
+    private Path encrypted;
+    private Path out;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.mapped = new MappedFileCipher(Ciphers.AES256, this.segmentSize, SyncPolicy.byName(this.syncPolicy));
+        this.streaming = new StreamingCipher(Ciphers.AES256, this.segmentSize);
+        this.key = Ciphers.AES256.deriveKey("benchmark".toCharArray());
+
+        this.plain = Files.createTempFile("benchmark", ".plain");
+        this.encrypted = Files.createTempFile("benchmark", ".encrypted");
+        this.out = Files.createTempFile("benchmark", ".out");
+        Files.write(this.plain, Payloads.random(this.size));
+        this.mapped.encrypt(this.plain, this.encrypted, this.key);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.plain);
+        Files.deleteIfExists(this.encrypted);
+        Files.deleteIfExists(this.out);
+    }
+
+    @Benchmark
+    public long mappedEncrypt() {
+        return this.mapped.encrypt(this.plain, this.out, this.key);
+    }
+
+    @Benchmark
+    public long mappedDecrypt() {
+        return this.mapped.decrypt(this.encrypted, this.out, this.key);
+    }
+
+    @Benchmark
+    public long streamingEncrypt() throws IOException {
+        try (FileChannel in = FileChannel.open(this.plain, StandardOpenOption.READ);
+                FileChannel o = FileChannel.open(this.out, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            return this.streaming.encrypt(in, o, this.key);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package io.github.lc.oss.commons.encryption.benchmarks;
+
+import java.util.Random;
+
+final class Payloads {
+    /**
+     * Benchmark payloads only need to be incompressible, not secure, and must be
+     * repeatable between runs.
+     */
+    static byte[] random(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    private Payloads() {
+    }
+}
@@ -0,0 +1,83 @@
+package io.github.lc.oss.commons.encryption.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.lc.oss.commons.encryption.Ciphers;
+import io.github.lc.oss.commons.encryption.DerivedKey;
+import io.github.lc.oss.commons.encryption.RandomProviders;
+
+/**
+ * Compares IV generation strategies on one thread and on every available
+ * processor. SHARED is the historical behavior. The encrypt benchmarks use a
+ * pre-derived key so the password hash does not dominate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RandomProviderBenchmark {
+    @Param({ "SHARED", "THREAD_LOCAL", "STRIPED" })
+    public String provider;
+
+    private RandomProviders random;
+    private byte[] data;
+    private DerivedKey key;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.random = RandomProviders.byName(this.provider);
+        Ciphers.AES256.setRandomProvider(this.random);
+        this.data = Payloads.random(64);
+        this.key = Ciphers.AES256.deriveKey("benchmark".toCharArray());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Ciphers.AES256.setRandomProvider(RandomProviders.SHARED);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public byte[] iv() {
+        byte[] iv = new byte[12];
+        this.random.nextBytes(iv);
+        return iv;
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public byte[] ivContended() {
+        byte[] iv = new byte[12];
+        this.random.nextBytes(iv);
+        return iv;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String encrypt() {
+        return Ciphers.AES256.encrypt(this.data, this.key);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String encryptContended() {
+        return Ciphers.AES256.encrypt(this.data, this.key);
+    }
+}
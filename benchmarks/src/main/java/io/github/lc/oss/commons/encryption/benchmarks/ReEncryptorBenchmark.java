@@ -0,0 +1,84 @@
+package io.github.lc.oss.commons.encryption.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.github.lc.oss.commons.encryption.BulkMetrics;
+import io.github.lc.oss.commons.encryption.Ciphers;
+import io.github.lc.oss.commons.encryption.DerivedKey;
+import io.github.lc.oss.commons.encryption.ReEncryptor;
+
+/**
+ * {@linkplain ReEncryptor} re-encrypting <code>items</code> values that share
+ * <code>keys</code> old keys, on all cores. Scores are per call and include
+ * deriving every old key once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ReEncryptorBenchmark {
+    private static final char[] OLD_PASSWORD = "old".toCharArray();
+
+    @Param({ "1", "16" })
+    public int keys;
+
+    @Param({ "10000" })
+    public int items;
+
+    @Param({ "256" })
+    public int size;
+
+    private ForkJoinPool pool;
+    private ReEncryptor reEncryptor;
+    private DerivedKey newKey;
+    private List<String> values;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(threads);
+        this.reEncryptor = new ReEncryptor(Ciphers.AES256, this.pool, threads);
+        this.newKey = Ciphers.AES256.deriveKey("new".toCharArray());
+
+        DerivedKey[] oldKeys = new DerivedKey[this.keys];
+        for (int i = 0; i < oldKeys.length; i++) {
+            oldKeys[i] = Ciphers.AES256.deriveKey(ReEncryptorBenchmark.OLD_PASSWORD);
+        }
+        byte[] data = Payloads.random(this.size);
+        this.values = new ArrayList<>(this.items);
+        for (int i = 0; i < this.items; i++) {
+            this.values.add(Ciphers.AES256.encrypt(data, oldKeys[i % oldKeys.length]));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.pool.shutdown();
+    }
+
+    @Benchmark
+    public BulkMetrics reEncrypt(Blackhole blackhole) {
+        return this.reEncryptor.reEncrypt(this.values.iterator(), ReEncryptorBenchmark.OLD_PASSWORD, this.newKey,
+                blackhole::consume);
+    }
+}
@@ -1,29 +1,159 @@
 package io.github.lc.oss.commons.encryption;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
-import java.security.spec.InvalidKeySpecException;
-import java.security.spec.KeySpec;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import javax.crypto.AEADBadTagException;
 import javax.crypto.SecretKey;
-import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.GCMParameterSpec;
-import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
 
 import io.github.lc.oss.commons.encoding.Encodings;
 
-public abstract class AbstractAES implements Cipher {
+public abstract class AbstractAES implements KeyedCipher {
+    private static class Value {
+        private final Kdf kdf;
+        private final byte[] iv;
+        private final byte[] salt;
+        private final int cipherStart;
+
+        public Value(Kdf kdf, byte[] iv, byte[] salt, int cipherStart) {
+            this.kdf = kdf;
+            this.iv = iv;
+            this.salt = salt;
+            this.cipherStart = cipherStart;
+        }
+    }
+
+    /**
+     * Encrypts or decrypts envelopes one at a time using a single engine. The
+     * engine is released once the source is exhausted.
+     */
+    private class Batch implements Iterator<byte[]> {
+        private final Iterator<byte[]> source;
+        private final boolean encrypt;
+        private final DerivedKey key;
+        private final char[] password;
+        private final CipherProvider provider = AbstractAES.this.cipherProvider;
+
+        private javax.crypto.Cipher engine;
+        private Envelope last;
+        private SecretKey lastKey;
+
+        public Batch(Iterator<byte[]> source, boolean encrypt, DerivedKey key, char[] password) {
+            this.source = source;
+            this.encrypt = encrypt;
+            this.key = key;
+            this.password = password;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.source.hasNext()) {
+                return true;
+            }
+            this.release();
+            return false;
+        }
+
+        @Override
+        public byte[] next() {
+            byte[] value = this.source.next();
+            try {
+                if (this.engine == null) {
+                    this.engine = this.provider.acquire(AbstractAES.this.getAlgorithm());
+                }
+                return this.encrypt ? this.encrypt(value) : this.decrypt(value);
+            } catch (GeneralSecurityException ex) {
+                AbstractAES.this.failed(ex);
+                throw new RuntimeException(ex);
+            }
+        }
+
+        private byte[] encrypt(byte[] value) throws GeneralSecurityException {
+            byte[] iv = AbstractAES.this.generateIV();
+            Envelope header = new Envelope(AbstractAES.this.getEnvelopeAlgorithm(), this.key.getKdf(), this.key.salt(),
+                    iv);
+            ByteBuffer out = ByteBuffer.allocate(header.size(AbstractAES.this.getEncryptedSize(value.length)));
+            header.write(out);
+
+            MetricsListener listener = AbstractAES.this.metricsListener;
+            long start = listener == null ? 0 : System.nanoTime();
+            CipherEvent event = new EncryptEvent();
+            event.begin();
+            this.engine = AbstractAES.this.init(this.engine, true, AbstractAES.this.getKey(this.key), iv);
+            this.engine.doFinal(ByteBuffer.wrap(value), out);
+            event.commit(AbstractAES.this, value.length);
+            if (listener != null) {
+                listener.onCipher(true, value.length, System.nanoTime() - start);
+            }
+            return out.array();
+        }
+
+        private byte[] decrypt(byte[] envelope) throws GeneralSecurityException {
+            ByteBuffer in = ByteBuffer.wrap(envelope);
+            Envelope header = AbstractAES.this.readEnvelope(in);
+            SecretKey secretKey;
+            if (this.key != null) {
+                secretKey = AbstractAES.this.getKey(header, this.key);
+            } else if (this.last != null && this.last.getKdfId() == header.getKdfId()
+                    && Arrays.equals(this.last.getKdfParameters(), header.getKdfParameters())
+                    && Arrays.equals(this.last.getSalt(), header.getSalt())
+                    && this.last.getAlgorithm() == header.getAlgorithm()) {
+                secretKey = this.lastKey;
+            } else {
+                secretKey = AbstractAES.this.getKey(header, this.password);
+                this.last = header;
+                this.lastKey = secretKey;
+            }
+
+            int length = in.remaining();
+            byte[] out = new byte[AbstractAES.this.getDecryptedSize(length)];
+            MetricsListener listener = AbstractAES.this.metricsListener;
+            long start = listener == null ? 0 : System.nanoTime();
+            CipherEvent event = new DecryptEvent();
+            event.begin();
+            this.engine = AbstractAES.this.init(this.engine, false, secretKey, header.getIv());
+            this.engine.doFinal(in, ByteBuffer.wrap(out));
+            event.commit(AbstractAES.this, length);
+            if (listener != null) {
+                listener.onCipher(false, length, System.nanoTime() - start);
+            }
+            return out;
+        }
+
+        private void release() {
+            if (this.engine != null) {
+                this.provider.release(this.engine);
+                this.engine = null;
+            }
+        }
+    }
+
     private static final String DELIMITER = "$";
-    private static final String DELIMITER_REGEX = "\\$";
+    private static final char DELIMITER_CHAR = '$';
     private static final String KEYSEC = "AES";
     private static final int IV_LENGTH = 12;
     private static final int TAG_LENGTH = 16;
     private static final int DEFAULT_SALT_BYTES = 16;
 
-    private static SecureRandom rng = new SecureRandom();
+    private volatile KeyCache keyCache;
+    private volatile CipherProvider cipherProvider = CipherProviders.NEW_INSTANCE;
+    private volatile RandomProvider randomProvider = RandomProviders.SHARED;
+    private volatile MetricsListener metricsListener;
+    private volatile List<Kdf> acceptedKdfs;
 
     protected abstract int getKeySize();
 
@@ -36,13 +166,140 @@ public abstract class AbstractAES implements Cipher {
     }
 
     protected int getPasswordIterations() {
-        return 101113;
+        return Pbkdf2Kdf.DEFAULT_ITERATIONS;
+    }
+
+    /**
+     * @return The key derivation function used when none is specified
+     */
+    protected Kdf getKdf() {
+        return new Pbkdf2Kdf(this.getPasswordHash(), this.getPasswordIterations());
+    }
+
+    /**
+     * Values that do not record a key derivation function were written by
+     * earlier versions using PBKDF2 with the password hash and iterations of this
+     * cipher. Overriding {@linkplain #getKdf()} does not change how they are read.
+     */
+    private Kdf getLegacyKdf() {
+        return new Pbkdf2Kdf(this.getPasswordHash(), this.getPasswordIterations());
+    }
+
+    /**
+     * Resolves a recorded key derivation function, PBKDF2 uses the password hash
+     * of this cipher.
+     */
+    protected Kdf getKdf(byte id, byte[] parameters) {
+        if (id == Pbkdf2Kdf.ID) {
+            return new Pbkdf2Kdf(this.getPasswordHash(), Pbkdf2Kdf.parseIterations(parameters));
+        }
+        return Kdfs.decode(id, parameters);
+    }
+
+    /**
+     * @return The key derivation functions accepted when decrypting, by default
+     *         {@linkplain #getKdf()}, the function of values that do not record
+     *         one and the built in {@linkplain Kdfs}
+     */
+    public List<Kdf> getAcceptedKdfs() {
+        List<Kdf> accepted = this.acceptedKdfs;
+        if (accepted == null) {
+            accepted = new ArrayList<>();
+            for (Kdf kdf : new Kdf[] { this.getKdf(), this.getLegacyKdf(), Kdfs.PBKDF2, Kdfs.HKDF_SHA256,
+                    Kdfs.RAW }) {
+                if (!AbstractAES.contains(accepted, kdf)) {
+                    accepted.add(kdf);
+                }
+            }
+            return Collections.unmodifiableList(accepted);
+        }
+        return accepted;
+    }
+
+    /**
+     * Restricts the key derivation functions, including their parameters (e.g.
+     * the PBKDF2 iteration count), accepted when decrypting. Values recording
+     * any other function are rejected before a key is derived. Pass
+     * <code>null</code> to accept the defaults.
+     */
+    public void setAcceptedKdfs(List<Kdf> acceptedKdfs) {
+        this.acceptedKdfs = acceptedKdfs == null ? null
+                : Collections.unmodifiableList(new ArrayList<>(acceptedKdfs));
+    }
+
+    public boolean isAccepted(Kdf kdf) {
+        return AbstractAES.contains(this.getAcceptedKdfs(), kdf);
+    }
+
+    private static boolean contains(List<Kdf> kdfs, Kdf kdf) {
+        for (Kdf k : kdfs) {
+            if (Kdfs.isSame(k, kdf)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public KeyCache getKeyCache() {
+        return this.keyCache;
+    }
+
+    /**
+     * Enables caching of derived keys. Pass <code>null</code> to disable caching
+     * (the default). Only PBKDF2 keys are cached, the other functions are cheaper
+     * than a cache lookup. Keys for a new random salt (encrypting with a password
+     * or deriving a key without a salt) are never looked up again so they are not
+     * cached.
+     */
+    public void setKeyCache(KeyCache keyCache) {
+        this.keyCache = keyCache;
+    }
+
+    public CipherProvider getCipherProvider() {
+        return this.cipherProvider;
+    }
+
+    /**
+     * Sets the strategy used to obtain cipher engines, defaults to
+     * {@linkplain CipherProviders#NEW_INSTANCE}.
+     */
+    public void setCipherProvider(CipherProvider cipherProvider) {
+        if (cipherProvider == null) {
+            throw new RuntimeException("Cipher provider is required");
+        }
+        this.cipherProvider = cipherProvider;
+    }
+
+    public RandomProvider getRandomProvider() {
+        return this.randomProvider;
+    }
+
+    /**
+     * Sets the strategy used to generate IVs and salts, defaults to
+     * {@linkplain RandomProviders#SHARED}.
+     */
+    public void setRandomProvider(RandomProvider randomProvider) {
+        if (randomProvider == null) {
+            throw new RuntimeException("Random provider is required");
+        }
+        this.randomProvider = randomProvider;
+    }
+
+    public MetricsListener getMetricsListener() {
+        return this.metricsListener;
+    }
+
+    /**
+     * Reports timings and counts to the listener. Pass <code>null</code> to stop
+     * reporting (the default).
+     */
+    public void setMetricsListener(MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
     }
 
     @Override
     public String encrypt(String data, char[] password) {
-        return this.encrypt(data.getBytes(StandardCharsets.UTF_8), password,
-                this.random(AbstractAES.DEFAULT_SALT_BYTES));
+        return this.encrypt(data.getBytes(StandardCharsets.UTF_8), password);
     }
 
     @Override
@@ -52,15 +309,21 @@ public abstract class AbstractAES implements Cipher {
 
     @Override
     public String encrypt(byte[] data, char[] password) {
-        return this.encrypt(data, password, this.random(AbstractAES.DEFAULT_SALT_BYTES));
+        byte[] salt = this.random(AbstractAES.DEFAULT_SALT_BYTES);
+        Kdf kdf = this.getKdf();
+        return this.encrypt(data, this.newKey(password, salt, kdf), kdf, salt);
     }
 
     @Override
     public String encrypt(byte[] data, char[] password, byte[] salt) {
+        Kdf kdf = this.getKdf();
+        return this.encrypt(data, this.getKey(password, salt, kdf), kdf, salt);
+    }
+
+    private String encrypt(byte[] data, SecretKey key, Kdf kdf, byte[] salt) {
         byte[] iv = this.generateIV();
-        byte[] cipher = this.cipher(true, data, this.getKey(password, salt), iv);
-        return Encodings.Base64.encode(iv) + AbstractAES.DELIMITER + Encodings.Base64.encode(salt)
-                + AbstractAES.DELIMITER + Encodings.Base64.encode(cipher);
+        byte[] cipher = this.cipher(true, data, key, iv);
+        return this.format(kdf, iv, salt, cipher);
     }
 
     @Override
@@ -75,10 +338,12 @@ public abstract class AbstractAES implements Cipher {
 
     @Override
     public byte[] decrypt(String data, char[] password) {
-        String[] parts = data.split(DELIMITER_REGEX);
+        return this.decrypt(data, 0, password);
+    }
 
-        return this.cipher(false, Encodings.Base64.decode(parts[2]),
-                this.getKey(password, Encodings.Base64.decode(parts[1])), Encodings.Base64.decode(parts[0]));
+    @Override
+    public byte[] decrypt(String data, int offset, char[] password) {
+        return this.decrypt(data, offset, null, password);
     }
 
     @Override
@@ -86,20 +351,556 @@ public abstract class AbstractAES implements Cipher {
         return this.cipher(false, data, this.getKey(password, salt), iv);
     }
 
+    @Override
+    public DerivedKey deriveKey(char[] password) {
+        return this.deriveKey(password, this.getKdf());
+    }
+
+    @Override
+    public DerivedKey deriveKey(char[] password, byte[] salt) {
+        return this.deriveKey(password, salt, this.getKdf());
+    }
+
+    @Override
+    public DerivedKey deriveKey(char[] password, Kdf kdf) {
+        byte[] salt = this.random(AbstractAES.DEFAULT_SALT_BYTES);
+        return new DerivedKey(this.newKey(password, salt, kdf), salt, this.getKeySize(), kdf);
+    }
+
+    @Override
+    public DerivedKey deriveKey(char[] password, byte[] salt, Kdf kdf) {
+        return new DerivedKey(this.getKey(password, salt, kdf), salt, this.getKeySize(), kdf);
+    }
+
+    @Override
+    public DerivedKey deriveKey(String data, char[] password) {
+        Value value = this.header(data);
+        return this.deriveKey(password, value.salt, value.kdf);
+    }
+
+    @Override
+    public String getKeyId(String data) {
+        Value value = this.header(data);
+        return Encodings.Base64.encode(Kdfs.encode(value.kdf)) + AbstractAES.DELIMITER
+                + Encodings.Base64.encode(value.salt);
+    }
+
+    @Override
+    public String encrypt(String data, DerivedKey key) {
+        return this.encrypt(data.getBytes(StandardCharsets.UTF_8), key);
+    }
+
+    @Override
+    public String encrypt(byte[] data, DerivedKey key) {
+        byte[] iv = this.generateIV();
+        byte[] cipher = this.encrypt(data, key, iv);
+        return this.format(key.getKdf(), iv, key.salt(), cipher);
+    }
+
+    @Override
+    public byte[] encrypt(byte[] data, DerivedKey key, byte[] iv) {
+        return this.cipher(true, data, this.getKey(key), iv);
+    }
+
+    @Override
+    public String decryptString(String data, DerivedKey key) {
+        return new String(this.decrypt(data, key), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public byte[] decrypt(String data, DerivedKey key) {
+        return this.decrypt(data, 0, key);
+    }
+
+    @Override
+    public byte[] decrypt(String data, int offset, DerivedKey key) {
+        return this.decrypt(data, offset, null, key);
+    }
+
+    @Override
+    public byte[] decrypt(byte[] data, DerivedKey key, byte[] iv) {
+        return this.cipher(false, data, this.getKey(key), iv);
+    }
+
+    @Override
+    public String encrypt(byte[] data, byte[] aad, char[] password) {
+        return this.encrypt(data, aad, this.deriveKey(password));
+    }
+
+    @Override
+    public String encrypt(byte[] data, byte[] aad, DerivedKey key) {
+        byte[] iv = this.generateIV();
+        byte[] cipher = this.cipher(true, data, aad, this.getKey(key), iv);
+        return this.format(key.getKdf(), iv, key.salt(), cipher);
+    }
+
+    @Override
+    public byte[] decrypt(String data, byte[] aad, char[] password) {
+        return this.decrypt(data, 0, aad, password);
+    }
+
+    @Override
+    public byte[] decrypt(String data, int offset, byte[] aad, char[] password) {
+        if (data.indexOf(AbstractAES.DELIMITER_CHAR, offset) < 0) {
+            ByteBuffer in = ByteBuffer.wrap(this.decode(data, offset, data.length()));
+            Envelope header = this.readEnvelope(in);
+            return this.decryptEnvelope(in, header, this.getKey(header, password), aad);
+        }
+
+        Value value = this.parse(data, offset);
+        byte[] cipher = this.decode(data, value.cipherStart, data.length());
+        return this.cipher(false, cipher, aad, this.getKey(password, value.salt, value.kdf), value.iv);
+    }
+
+    @Override
+    public byte[] decrypt(String data, byte[] aad, DerivedKey key) {
+        return this.decrypt(data, 0, aad, key);
+    }
+
+    @Override
+    public byte[] decrypt(String data, int offset, byte[] aad, DerivedKey key) {
+        if (data.indexOf(AbstractAES.DELIMITER_CHAR, offset) < 0) {
+            ByteBuffer in = ByteBuffer.wrap(this.decode(data, offset, data.length()));
+            Envelope header = this.readEnvelope(in);
+            return this.decryptEnvelope(in, header, this.getKey(header, key), aad);
+        }
+
+        Value value = this.parse(data, offset);
+        this.verify(key, value.kdf, value.salt);
+        byte[] cipher = this.decode(data, value.cipherStart, data.length());
+        return this.cipher(false, cipher, aad, this.getKey(key), value.iv);
+    }
+
+    @Override
+    public int encrypt(ByteBuffer data, ByteBuffer out, ByteBuffer aad, DerivedKey key, byte[] iv) {
+        return this.cipher(true, data, out, aad, this.getKey(key), iv);
+    }
+
+    @Override
+    public int decrypt(ByteBuffer data, ByteBuffer out, ByteBuffer aad, DerivedKey key, byte[] iv) {
+        return this.cipher(false, data, out, aad, this.getKey(key), iv);
+    }
+
+    @Override
+    public int getEncryptedSize(int length) {
+        return length + AbstractAES.TAG_LENGTH;
+    }
+
+    @Override
+    public int getDecryptedSize(int length) {
+        return Math.max(0, length - AbstractAES.TAG_LENGTH);
+    }
+
+    @Override
+    public int encrypt(ByteBuffer data, ByteBuffer out, char[] password, byte[] salt, byte[] iv) {
+        return this.cipher(true, data, out, this.getKey(password, salt), iv);
+    }
+
+    @Override
+    public int encrypt(ByteBuffer data, ByteBuffer out, DerivedKey key, byte[] iv) {
+        return this.cipher(true, data, out, this.getKey(key), iv);
+    }
+
+    @Override
+    public int decrypt(ByteBuffer data, ByteBuffer out, char[] password, byte[] salt, byte[] iv) {
+        return this.cipher(false, data, out, this.getKey(password, salt), iv);
+    }
+
+    @Override
+    public int decrypt(ByteBuffer data, ByteBuffer out, DerivedKey key, byte[] iv) {
+        return this.cipher(false, data, out, this.getKey(key), iv);
+    }
+
+    @Override
+    public String encryptCompact(byte[] data, char[] password) {
+        return this.encode(this.encryptEnvelope(data, password));
+    }
+
+    @Override
+    public String encryptCompact(byte[] data, DerivedKey key) {
+        return this.encode(this.encryptEnvelope(data, key));
+    }
+
+    @Override
+    public byte[] encryptEnvelope(byte[] data, char[] password) {
+        return this.encryptEnvelope(data, this.deriveKey(password));
+    }
+
+    @Override
+    public byte[] encryptEnvelope(byte[] data, DerivedKey key) {
+        ByteBuffer out = ByteBuffer.allocate(this.getEnvelopeSize(data.length, key));
+        this.encryptEnvelope(ByteBuffer.wrap(data), out, key);
+        return out.array();
+    }
+
+    @Override
+    public int getEnvelopeSize(int length, DerivedKey key) {
+        return new Envelope(this.getEnvelopeAlgorithm(), key.getKdf(), key.salt(), null)
+                .size(this.getEncryptedSize(length));
+    }
+
+    @Override
+    public int encryptEnvelope(ByteBuffer data, ByteBuffer out, DerivedKey key) {
+        SecretKey secretKey = this.getKey(key);
+        byte[] iv = this.generateIV();
+
+        int start = out.position();
+        new Envelope(this.getEnvelopeAlgorithm(), key.getKdf(), key.salt(), iv).write(out);
+        this.cipher(true, data, out, secretKey, iv);
+        return out.position() - start;
+    }
+
+    @Override
+    public byte[] decryptEnvelope(byte[] envelope, char[] password) {
+        ByteBuffer in = ByteBuffer.wrap(envelope);
+        Envelope header = this.readEnvelope(in);
+        return this.decryptEnvelope(in, header, this.getKey(header, password));
+    }
+
+    @Override
+    public byte[] decryptEnvelope(byte[] envelope, DerivedKey key) {
+        ByteBuffer in = ByteBuffer.wrap(envelope);
+        Envelope header = this.readEnvelope(in);
+        return this.decryptEnvelope(in, header, this.getKey(header, key));
+    }
+
+    @Override
+    public int decryptEnvelope(ByteBuffer envelope, ByteBuffer out, char[] password) {
+        Envelope header = this.readEnvelope(envelope);
+        return this.cipher(false, envelope, out, this.getKey(header, password), header.getIv());
+    }
+
+    @Override
+    public int decryptEnvelope(ByteBuffer envelope, ByteBuffer out, DerivedKey key) {
+        Envelope header = this.readEnvelope(envelope);
+        return this.cipher(false, envelope, out, this.getKey(header, key), header.getIv());
+    }
+
+    @Override
+    public List<byte[]> encryptAll(List<byte[]> data, char[] password) {
+        return this.encryptAll(data, this.deriveKey(password));
+    }
+
+    @Override
+    public List<byte[]> encryptAll(List<byte[]> data, DerivedKey key) {
+        return this.toList(new Batch(data.iterator(), true, key, null), data.size());
+    }
+
+    @Override
+    public Iterator<byte[]> encryptAll(Iterator<byte[]> data, char[] password) {
+        return this.encryptAll(data, this.deriveKey(password));
+    }
+
+    @Override
+    public Iterator<byte[]> encryptAll(Iterator<byte[]> data, DerivedKey key) {
+        return new Batch(data, true, key, null);
+    }
+
+    @Override
+    public Stream<byte[]> encryptAll(Stream<byte[]> data, char[] password) {
+        return this.encryptAll(data, this.deriveKey(password));
+    }
+
+    @Override
+    public Stream<byte[]> encryptAll(Stream<byte[]> data, DerivedKey key) {
+        return this.toStream(this.encryptAll(data.iterator(), key), data);
+    }
+
+    @Override
+    public List<byte[]> decryptAll(List<byte[]> envelopes, char[] password) {
+        return this.toList(new Batch(envelopes.iterator(), false, null, password), envelopes.size());
+    }
+
+    @Override
+    public List<byte[]> decryptAll(List<byte[]> envelopes, DerivedKey key) {
+        return this.toList(new Batch(envelopes.iterator(), false, key, null), envelopes.size());
+    }
+
+    @Override
+    public Iterator<byte[]> decryptAll(Iterator<byte[]> envelopes, char[] password) {
+        return new Batch(envelopes, false, null, password);
+    }
+
+    @Override
+    public Iterator<byte[]> decryptAll(Iterator<byte[]> envelopes, DerivedKey key) {
+        return new Batch(envelopes, false, key, null);
+    }
+
+    @Override
+    public Stream<byte[]> decryptAll(Stream<byte[]> envelopes, char[] password) {
+        return this.toStream(this.decryptAll(envelopes.iterator(), password), envelopes);
+    }
+
+    @Override
+    public Stream<byte[]> decryptAll(Stream<byte[]> envelopes, DerivedKey key) {
+        return this.toStream(this.decryptAll(envelopes.iterator(), key), envelopes);
+    }
+
+    private List<byte[]> toList(Batch batch, int size) {
+        List<byte[]> out = new ArrayList<>(size);
+        try {
+            while (batch.hasNext()) {
+                out.add(batch.next());
+            }
+        } finally {
+            batch.release();
+        }
+        return out;
+    }
+
+    private Stream<byte[]> toStream(Iterator<byte[]> iterator, Stream<byte[]> source) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(source::close);
+    }
+
+    /**
+     * @return The envelope algorithm identifier, the key length in bytes
+     */
+    protected byte getEnvelopeAlgorithm() {
+        return (byte) (this.getKeySize() / 8);
+    }
+
+    private byte[] decryptEnvelope(ByteBuffer in, Envelope header, SecretKey key) {
+        return this.decryptEnvelope(in, header, key, null);
+    }
+
+    private byte[] decryptEnvelope(ByteBuffer in, Envelope header, SecretKey key, byte[] aad) {
+        byte[] out = new byte[this.getDecryptedSize(in.remaining())];
+        this.cipher(false, in, ByteBuffer.wrap(out), aad == null ? null : ByteBuffer.wrap(aad), key, header.getIv());
+        return out;
+    }
+
+    private SecretKey getKey(Envelope header, char[] password) {
+        if (header.getAlgorithm() != this.getEnvelopeAlgorithm()) {
+            throw new RuntimeException("Envelope was encrypted using a different key size.");
+        }
+        return this.getKey(password, header.getSalt(),
+                this.getAcceptedKdf(header.getKdfId(), header.getKdfParameters()));
+    }
+
+    private SecretKey getKey(Envelope header, DerivedKey key) {
+        if (header.getAlgorithm() != this.getEnvelopeAlgorithm()) {
+            throw new RuntimeException("Envelope was encrypted using a different key size.");
+        }
+        this.verify(key, this.getAcceptedKdf(header.getKdfId(), header.getKdfParameters()), header.getSalt());
+        return this.getKey(key);
+    }
+
+    private void verify(DerivedKey key, Kdf kdf, byte[] salt) {
+        if (!Kdfs.isSame(key.getKdf(), kdf)) {
+            throw new RuntimeException("Value was not encrypted using the key derivation function of this key.");
+        }
+        if (!MessageDigest.isEqual(key.salt(), salt)) {
+            throw new RuntimeException("Value was not encrypted using the salt of this key.");
+        }
+    }
+
+    /**
+     * Resolves a recorded key derivation function, rejecting functions that are
+     * not accepted before any key is derived from them.
+     */
+    private Kdf getAcceptedKdf(byte id, byte[] parameters) {
+        Kdf kdf;
+        try {
+            kdf = this.getKdf(id, parameters);
+        } catch (RuntimeException ex) {
+            this.failed(DecryptFailure.INVALID_VALUE);
+            throw ex;
+        }
+        if (!this.isAccepted(kdf)) {
+            this.failed(DecryptFailure.INVALID_VALUE);
+            throw new RuntimeException("Key derivation function is not accepted.");
+        }
+        return kdf;
+    }
+
+    /**
+     * Reads the key derivation function and salt of a value in either string
+     * format.
+     */
+    private Value header(String data) {
+        if (data.indexOf(AbstractAES.DELIMITER_CHAR) >= 0) {
+            return this.parse(data, 0);
+        }
+
+        Envelope header = this.readEnvelope(ByteBuffer.wrap(this.decodeField(data, 0, data.length())));
+        return new Value(this.getAcceptedKdf(header.getKdfId(), header.getKdfParameters()), null, header.getSalt(),
+                -1);
+    }
+
+    /**
+     * Parses <code>[kdf$]iv$salt$cipher</code> starting at <code>offset</code>,
+     * the cipher text is left encoded.
+     */
+    private Value parse(String data, int offset) {
+        int first = data.indexOf(AbstractAES.DELIMITER_CHAR, offset);
+        int second = data.indexOf(AbstractAES.DELIMITER_CHAR, first + 1);
+        if (second < 0) {
+            this.failed(DecryptFailure.INVALID_VALUE);
+            throw new RuntimeException("Invalid encrypted value.");
+        }
+        int third = data.indexOf(AbstractAES.DELIMITER_CHAR, second + 1);
+        if (third < 0) {
+            Kdf kdf = this.getLegacyKdf();
+            if (!this.isAccepted(kdf)) {
+                this.failed(DecryptFailure.INVALID_VALUE);
+                throw new RuntimeException("Key derivation function is not accepted.");
+            }
+            return new Value(kdf, this.decodeField(data, offset, first), this.decodeField(data, first + 1, second),
+                    second + 1);
+        }
+
+        byte[] kdf = this.decodeField(data, offset, first);
+        if (kdf.length < 1) {
+            this.failed(DecryptFailure.INVALID_VALUE);
+            throw new RuntimeException("Invalid encrypted value.");
+        }
+        return new Value(this.getAcceptedKdf(kdf[0], Arrays.copyOfRange(kdf, 1, kdf.length)),
+                this.decodeField(data, first + 1, second), this.decodeField(data, second + 1, third),
+                third + 1);
+    }
+
+    /**
+     * Formats <code>[kdf$]iv$salt$cipher</code>, the key derivation function is
+     * only omitted if it is the one implied by values that do not record it.
+     */
+    private String format(Kdf kdf, byte[] iv, byte[] salt, byte[] cipher) {
+        String value = Encodings.Base64.encode(iv) + AbstractAES.DELIMITER + Encodings.Base64.encode(salt)
+                + AbstractAES.DELIMITER + this.encode(cipher);
+        if (Kdfs.isSame(kdf, this.getLegacyKdf())) {
+            return value;
+        }
+        return Encodings.Base64.encode(Kdfs.encode(kdf)) + AbstractAES.DELIMITER + value;
+    }
+
+    private SecretKey getKey(DerivedKey key) {
+        if (key.getKeySize() != this.getKeySize()) {
+            throw new RuntimeException("Key was derived for a different key size.");
+        }
+        return key.getKey();
+    }
+
     protected byte[] cipher(boolean encrypt, byte[] data, SecretKey key, byte[] iv) {
+        return this.cipher(encrypt, data, null, key, iv);
+    }
+
+    /**
+     * @param aad Associated data authenticated along with <code>data</code>,
+     *            may be null
+     */
+    protected byte[] cipher(boolean encrypt, byte[] data, byte[] aad, SecretKey key, byte[] iv) {
+        CipherProvider provider = this.cipherProvider;
+        javax.crypto.Cipher cipher = null;
         try {
-            javax.crypto.Cipher cipher = javax.crypto.Cipher.getInstance(this.getAlgorithm());
+            MetricsListener listener = this.metricsListener;
+            long start = listener == null ? 0 : System.nanoTime();
+            CipherEvent event = encrypt ? new EncryptEvent() : new DecryptEvent();
+            event.begin();
+            cipher = this.init(provider.acquire(this.getAlgorithm()), encrypt, key, iv);
+            if (aad != null) {
+                cipher.updateAAD(aad);
+            }
 
-            SecretKeySpec keySpec = new SecretKeySpec(key.getEncoded(), AbstractAES.KEYSEC);
+            byte[] result = cipher.doFinal(data);
+            event.commit(this, data.length);
+            if (listener != null) {
+                listener.onCipher(encrypt, data.length, System.nanoTime() - start);
+            }
+            return result;
+        } catch (GeneralSecurityException ex) {
+            this.failed(ex);
+            throw new RuntimeException(ex);
+        } finally {
+            if (cipher != null) {
+                provider.release(cipher);
+            }
+        }
+    }
 
-            GCMParameterSpec gcmParameterSpec = new GCMParameterSpec(AbstractAES.TAG_LENGTH * 8, iv);
+    /**
+     * Processes the remaining bytes of <code>data</code> into <code>out</code>
+     * starting at its position. If both are the same buffer the operation is done
+     * in place, the output overwrites the input and the limit is set to the
+     * capacity.
+     *
+     * @return The number of bytes written to <code>out</code>
+     */
+    protected int cipher(boolean encrypt, ByteBuffer data, ByteBuffer out, SecretKey key, byte[] iv) {
+        return this.cipher(encrypt, data, out, null, key, iv);
+    }
 
-            int mode = encrypt ? javax.crypto.Cipher.ENCRYPT_MODE : javax.crypto.Cipher.DECRYPT_MODE;
-            cipher.init(mode, keySpec, gcmParameterSpec);
+    /**
+     * @param aad Associated data authenticated along with <code>data</code>, the
+     *            remaining bytes are used without changing its position, may be
+     *            null
+     */
+    protected int cipher(boolean encrypt, ByteBuffer data, ByteBuffer out, ByteBuffer aad, SecretKey key,
+            byte[] iv) {
+        ByteBuffer input = data;
+        if (data == out) {
+            input = data.duplicate();
+            out.limit(out.capacity());
+        }
 
-            return cipher.doFinal(data);
+        CipherProvider provider = this.cipherProvider;
+        javax.crypto.Cipher cipher = null;
+        try {
+            MetricsListener listener = this.metricsListener;
+            long start = listener == null ? 0 : System.nanoTime();
+            int length = input.remaining();
+            CipherEvent event = encrypt ? new EncryptEvent() : new DecryptEvent();
+            event.begin();
+            cipher = this.init(provider.acquire(this.getAlgorithm()), encrypt, key, iv);
+            if (aad != null) {
+                cipher.updateAAD(aad.duplicate());
+            }
+
+            int written = cipher.doFinal(input, out);
+            event.commit(this, length);
+            if (listener != null) {
+                listener.onCipher(encrypt, length, System.nanoTime() - start);
+            }
+            return written;
         } catch (GeneralSecurityException ex) {
+            this.failed(ex);
             throw new RuntimeException(ex);
+        } finally {
+            if (cipher != null) {
+                provider.release(cipher);
+            }
+        }
+    }
+
+    /**
+     * Initializes the engine for a single operation. Returns the engine to use,
+     * which may be a new engine if the supplied one can't be reused for the
+     * requested operation.
+     */
+    javax.crypto.Cipher init(javax.crypto.Cipher cipher, boolean encrypt, SecretKey key, byte[] iv)
+            throws GeneralSecurityException {
+        SecretKey keySpec = key;
+        if (!(key instanceof SecretKeySpec) || !AbstractAES.KEYSEC.equals(key.getAlgorithm())) {
+            keySpec = new SecretKeySpec(key.getEncoded(), AbstractAES.KEYSEC);
+        }
+
+        GCMParameterSpec gcmParameterSpec = new GCMParameterSpec(AbstractAES.TAG_LENGTH * 8, iv);
+
+        int mode = encrypt ? javax.crypto.Cipher.ENCRYPT_MODE : javax.crypto.Cipher.DECRYPT_MODE;
+        try {
+            cipher.init(mode, keySpec, gcmParameterSpec);
+            return cipher;
+        } catch (InvalidAlgorithmParameterException ex) {
+            if (!encrypt) {
+                throw ex;
+            }
+            /*
+             * A reused GCM engine refuses to encrypt with the same key and IV as its
+             * previous encryption. Callers supplying their own IVs are responsible for
+             * uniqueness so we only need to match the behavior of a new engine here.
+             */
+            javax.crypto.Cipher fresh = javax.crypto.Cipher.getInstance(this.getAlgorithm());
+            fresh.init(mode, keySpec, gcmParameterSpec);
+            return fresh;
         }
     }
 
@@ -109,18 +910,122 @@ public abstract class AbstractAES implements Cipher {
 
     protected byte[] random(int count) {
         byte[] bytes = new byte[count];
-        AbstractAES.rng.nextBytes(bytes);
+        this.randomProvider.nextBytes(bytes);
         return bytes;
     }
 
     protected SecretKey getKey(char[] password, byte[] salt) {
+        return this.getKey(password, salt, this.getKdf());
+    }
+
+    protected SecretKey getKey(char[] password, byte[] salt, Kdf kdf) {
+        MetricsListener listener = this.metricsListener;
+        KeyCache cache = this.keyCache;
+        if (cache == null || kdf.getId() != Pbkdf2Kdf.ID) {
+            return this.derive(password, salt, kdf, listener);
+        }
+        if (listener == null) {
+            return cache.get(kdf, password, salt, this.getKeySize(), () -> this.derive(password, salt, kdf, null));
+        }
+
+        boolean[] miss = new boolean[1];
+        SecretKey key = cache.get(kdf, password, salt, this.getKeySize(), () -> {
+            miss[0] = true;
+            return this.derive(password, salt, kdf, listener);
+        });
+        listener.onKeyCache(!miss[0]);
+        return key;
+    }
+
+    /**
+     * Derives a key for a new random salt, bypassing the cache.
+     */
+    private SecretKey newKey(char[] password, byte[] salt, Kdf kdf) {
+        return this.derive(password, salt, kdf, this.metricsListener);
+    }
+
+    private SecretKey derive(char[] password, byte[] salt, Kdf kdf, MetricsListener listener) {
+        long start = listener == null ? 0 : System.nanoTime();
+        KeyDerivationEvent event = new KeyDerivationEvent();
+        event.begin();
+        SecretKey key = kdf.derive(password, salt, this.getKeySize());
+        if (event.shouldCommit()) {
+            event.kdf = kdf.getAlgorithm();
+            event.keySize = this.getKeySize();
+            event.commit();
+        }
+        if (listener != null) {
+            listener.onKeyDerived(kdf, System.nanoTime() - start);
+        }
+        return key;
+    }
+
+    /**
+     * Base64 encodes a cipher text, timed if there is a listener.
+     */
+    private String encode(byte[] bytes) {
+        MetricsListener listener = this.metricsListener;
+        if (listener == null) {
+            return Encodings.Base64.encode(bytes);
+        }
+
+        long start = System.nanoTime();
+        String encoded = Encodings.Base64.encode(bytes);
+        listener.onEncode(bytes.length, System.nanoTime() - start);
+        return encoded;
+    }
+
+    /**
+     * Base64 decodes a cipher text, timed if there is a listener.
+     */
+    private byte[] decode(String data, int start, int end) {
+        MetricsListener listener = this.metricsListener;
+        if (listener == null) {
+            return this.decodeField(data, start, end);
+        }
+
+        long begin = System.nanoTime();
+        byte[] decoded = this.decodeField(data, start, end);
+        listener.onDecode(decoded.length, System.nanoTime() - begin);
+        return decoded;
+    }
+
+    /**
+     * Base64 decodes part of a value, invalid Base64 is reported as an invalid
+     * value.
+     */
+    private byte[] decodeField(String data, int start, int end) {
         try {
-            SecretKeyFactory factory = SecretKeyFactory.getInstance(this.getPasswordHash());
-            KeySpec spec = new PBEKeySpec(password, salt, this.getPasswordIterations(), this.getKeySize());
-            SecretKey tmp = factory.generateSecret(spec);
-            return new SecretKeySpec(tmp.getEncoded(), "AES");
-        } catch (InvalidKeySpecException | NoSuchAlgorithmException ex) {
-            throw new RuntimeException(ex);
+            return Base64Decoder.decode(data, start, end);
+        } catch (RuntimeException ex) {
+            this.failed(DecryptFailure.INVALID_VALUE);
+            throw ex;
+        }
+    }
+
+    /**
+     * Reads the header of a binary envelope, malformed envelopes are reported
+     * as invalid values.
+     */
+    private Envelope readEnvelope(ByteBuffer in) {
+        try {
+            return Envelope.read(in);
+        } catch (RuntimeException ex) {
+            this.failed(DecryptFailure.INVALID_VALUE);
+            throw ex;
+        }
+    }
+
+    private void failed(GeneralSecurityException ex) {
+        if (ex instanceof AEADBadTagException) {
+            this.failed(DecryptFailure.AUTHENTICATION);
+        }
+    }
+
+    private void failed(DecryptFailure cause) {
+        MetricsListener listener = this.metricsListener;
+        if (listener != null) {
+            listener.onDecryptFailure(cause);
         }
     }
 }
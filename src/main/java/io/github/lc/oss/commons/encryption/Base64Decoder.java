@@ -0,0 +1,62 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.util.Arrays;
+
+/**
+ * Decodes a range of characters directly into an exactly sized array, avoiding
+ * the substring and intermediate arrays needed by general purpose decoders.
+ * Accepts both the standard and URL safe alphabets, padding is optional.
+ */
+class Base64Decoder {
+    private static final int[] VALUES = new int[128];
+
+    static {
+        Arrays.fill(Base64Decoder.VALUES, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            Base64Decoder.VALUES[alphabet.charAt(i)] = i;
+        }
+        Base64Decoder.VALUES['-'] = 62;
+        Base64Decoder.VALUES['_'] = 63;
+    }
+
+    /**
+     * Decodes the characters from <code>start</code> (inclusive) to
+     * <code>end</code> (exclusive).
+     */
+    static byte[] decode(CharSequence data, int start, int end) {
+        while (end > start && data.charAt(end - 1) == '=') {
+            end--;
+        }
+
+        int chars = end - start;
+        if (chars % 4 == 1) {
+            throw new RuntimeException("Invalid Base64 value.");
+        }
+
+        byte[] bytes = new byte[chars * 6 / 8];
+        int bits = 0;
+        int count = 0;
+        int index = 0;
+        for (int i = start; i < end; i++) {
+            bits = (bits << 6) | Base64Decoder.value(data.charAt(i));
+            count += 6;
+            if (count >= 8) {
+                count -= 8;
+                bytes[index++] = (byte) (bits >> count);
+            }
+        }
+        return bytes;
+    }
+
+    private static int value(char c) {
+        int value = c < 128 ? Base64Decoder.VALUES[c] : -1;
+        if (value < 0) {
+            throw new RuntimeException("Invalid Base64 value.");
+        }
+        return value;
+    }
+
+    private Base64Decoder() {
+    }
+}
@@ -0,0 +1,174 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Encrypts and decrypts many values in parallel.<br/>
+ * <br />
+ * The input is split into contiguous chunks that are processed concurrently
+ * using the batch methods of the {@linkplain Cipher} (one key derivation and
+ * one engine per chunk). Results are returned in input order and a failing
+ * item is reported in its {@linkplain BulkResult} without affecting the other
+ * items.<br/>
+ * <br />
+ * Any {@linkplain ExecutorService} may be used, for example a dedicated
+ * {@linkplain ForkJoinPool} to bound the CPU used or a virtual thread per task
+ * executor. The executor is owned by the caller and never shut down by this
+ * class. Instances are thread safe.
+ */
+public class BulkCipher {
+    /*
+     * More chunks than threads so that uneven chunks balance out, few enough
+     * that the per chunk setup stays negligible
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final KeyedCipher cipher;
+    private final ExecutorService executor;
+    private final int parallelism;
+
+    private final AtomicLong items = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong nanos = new AtomicLong();
+
+    /**
+     * Creates an instance using {@linkplain Ciphers#AES256} and the common
+     * {@linkplain ForkJoinPool}.
+     */
+    public BulkCipher() {
+        this(Ciphers.AES256);
+    }
+
+    public BulkCipher(KeyedCipher cipher) {
+        this(cipher, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * @param cipher      The cipher used for every item
+     * @param executor    Executor used to run the chunks
+     * @param parallelism Maximum number of threads expected to work on a single
+     *                    call, normally the number of threads of the executor
+     */
+    public BulkCipher(KeyedCipher cipher, ExecutorService executor, int parallelism) {
+        if (parallelism < 1) {
+            throw new RuntimeException("Parallelism must be positive");
+        }
+
+        this.cipher = cipher;
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Derives one key for all of the values, see
+     * {@linkplain KeyedCipher#encryptAll(List, char[])}.
+     */
+    public List<BulkResult> encrypt(List<byte[]> data, char[] password) {
+        return this.encrypt(data, this.cipher.deriveKey(password));
+    }
+
+    public List<BulkResult> encrypt(List<byte[]> data, DerivedKey key) {
+        return this.process(data, i -> this.cipher.encryptAll(i, key));
+    }
+
+    /**
+     * The stream is collected before processing starts.
+     */
+    public List<BulkResult> encrypt(Stream<byte[]> data, DerivedKey key) {
+        return this.encrypt(data.collect(Collectors.toList()), key);
+    }
+
+    /**
+     * Each chunk derives its own keys, decrypting with a {@linkplain DerivedKey}
+     * avoids the repeated derivations if all of the envelopes share one.
+     */
+    public List<BulkResult> decrypt(List<byte[]> envelopes, char[] password) {
+        return this.process(envelopes, i -> this.cipher.decryptAll(i, password));
+    }
+
+    public List<BulkResult> decrypt(List<byte[]> envelopes, DerivedKey key) {
+        return this.process(envelopes, i -> this.cipher.decryptAll(i, key));
+    }
+
+    /**
+     * The stream is collected before processing starts.
+     */
+    public List<BulkResult> decrypt(Stream<byte[]> envelopes, DerivedKey key) {
+        return this.decrypt(envelopes.collect(Collectors.toList()), key);
+    }
+
+    public BulkMetrics getMetrics() {
+        return new BulkMetrics(this.items.get(), this.failures.get(), this.bytes.get(), this.nanos.get());
+    }
+
+    public void resetMetrics() {
+        this.items.set(0);
+        this.failures.set(0);
+        this.bytes.set(0);
+        this.nanos.set(0);
+    }
+
+    private List<BulkResult> process(List<byte[]> data, Function<Iterator<byte[]>, Iterator<byte[]>> batch) {
+        long start = System.nanoTime();
+        BulkResult[] results = new BulkResult[data.size()];
+
+        int chunks = Math.min(data.size(), this.parallelism * BulkCipher.CHUNKS_PER_THREAD);
+        List<Future<?>> futures = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            int from = (int) ((long) data.size() * c / chunks);
+            int to = (int) ((long) data.size() * (c + 1) / chunks);
+            futures.add(this.executor.submit(() -> this.process(data, from, to, batch, results)));
+        }
+
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            futures.forEach(f -> f.cancel(true));
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            this.nanos.addAndGet(System.nanoTime() - start);
+        }
+        return Arrays.asList(results);
+    }
+
+    private void process(List<byte[]> data, int from, int to, Function<Iterator<byte[]>, Iterator<byte[]>> batch,
+            BulkResult[] results) {
+        long failed = 0;
+        long length = 0;
+        Iterator<byte[]> i = batch.apply(data.subList(from, to).iterator());
+        for (int index = from; index < to; index++) {
+            try {
+                results[index] = new BulkResult(index, i.next(), null);
+            } catch (RuntimeException ex) {
+                results[index] = new BulkResult(index, null, ex);
+                failed++;
+            }
+            byte[] value = data.get(index);
+            length += value == null ? 0 : value.length;
+        }
+        // releases the engine
+        i.hasNext();
+
+        this.items.addAndGet(to - from);
+        this.failures.addAndGet(failed);
+        this.bytes.addAndGet(length);
+    }
+}
@@ -0,0 +1,58 @@
+package io.github.lc.oss.commons.encryption;
+
+/**
+ * Snapshot of the work done by a {@linkplain BulkCipher}.
+ */
+public class BulkMetrics {
+    private final long items;
+    private final long failures;
+    private final long bytes;
+    private final long nanos;
+
+    BulkMetrics(long items, long failures, long bytes, long nanos) {
+        this.items = items;
+        this.failures = failures;
+        this.bytes = bytes;
+        this.nanos = nanos;
+    }
+
+    /**
+     * @return The number of items processed, including failures
+     */
+    public long getItems() {
+        return this.items;
+    }
+
+    public long getFailures() {
+        return this.failures;
+    }
+
+    /**
+     * @return The number of input bytes processed
+     */
+    public long getBytes() {
+        return this.bytes;
+    }
+
+    /**
+     * @return The total wall clock time spent in bulk operations
+     */
+    public long getNanos() {
+        return this.nanos;
+    }
+
+    public double getItemsPerSecond() {
+        return this.perSecond(this.items);
+    }
+
+    public double getBytesPerSecond() {
+        return this.perSecond(this.bytes);
+    }
+
+    private double perSecond(long count) {
+        if (this.nanos == 0) {
+            return 0;
+        }
+        return count * 1_000_000_000d / this.nanos;
+    }
+}
@@ -0,0 +1,42 @@
+package io.github.lc.oss.commons.encryption;
+
+/**
+ * The outcome of one item processed by {@linkplain BulkCipher}, either the
+ * output value or the error that prevented it from being produced.
+ */
+public class BulkResult {
+    private final int index;
+    private final byte[] value;
+    private final RuntimeException error;
+
+    BulkResult(int index, byte[] value, RuntimeException error) {
+        this.index = index;
+        this.value = value;
+        this.error = error;
+    }
+
+    /**
+     * @return The position of the item in the input
+     */
+    public int getIndex() {
+        return this.index;
+    }
+
+    public boolean isSuccess() {
+        return this.error == null;
+    }
+
+    /**
+     * @return The output value, null if the item failed
+     */
+    public byte[] getValue() {
+        return this.value;
+    }
+
+    /**
+     * @return The failure, null if the item succeeded
+     */
+    public RuntimeException getError() {
+        return this.error;
+    }
+}
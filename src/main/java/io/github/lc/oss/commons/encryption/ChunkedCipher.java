@@ -0,0 +1,340 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Encrypts and decrypts large buffers using all available cores.<br/>
+ * <br />
+ * Uses the same segmented format as {@linkplain StreamingCipher} (see
+ * {@linkplain Segments}), values written by one can be read by the other.
+ * Every segment has its own nonce and tag so segments are processed in
+ * parallel and any segment, or range of plain text, can be decrypted without
+ * touching the rest of the value.<br/>
+ * <br />
+ * Buffer arguments are read from their position to their limit. Methods
+ * returning a count consume the input and advance the output, all others leave
+ * the buffers unchanged. If decryption fails the output buffer may hold partial
+ * results and must be discarded. The executor is owned by the caller.
+ */
+public class ChunkedCipher {
+    private interface SegmentTask {
+        void run(javax.crypto.Cipher engine, long index) throws GeneralSecurityException;
+    }
+
+    /*
+     * More chunks than threads so that uneven chunks balance out, few enough
+     * that the per chunk engine setup stays negligible
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final KeyedCipher cipher;
+    private final int segmentSize;
+    private final ExecutorService executor;
+    private final int parallelism;
+
+    /**
+     * Creates an instance using {@linkplain Ciphers#AES256}, 64 KiB segments and
+     * the common {@linkplain ForkJoinPool}.
+     */
+    public ChunkedCipher() {
+        this(Ciphers.AES256);
+    }
+
+    public ChunkedCipher(KeyedCipher cipher) {
+        this(cipher, Segments.DEFAULT_SEGMENT_SIZE);
+    }
+
+    public ChunkedCipher(KeyedCipher cipher, int segmentSize) {
+        this(cipher, segmentSize, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * @param cipher      The cipher used to derive keys from passwords
+     * @param segmentSize Number of plain text bytes per segment, also the unit
+     *                    of random access
+     * @param executor    Executor used to process segments
+     * @param parallelism Maximum number of threads expected to work on a single
+     *                    call, normally the number of threads of the executor
+     */
+    public ChunkedCipher(KeyedCipher cipher, int segmentSize, ExecutorService executor, int parallelism) {
+        Segments.validate(segmentSize);
+        if (parallelism < 1) {
+            throw new RuntimeException("Parallelism must be positive");
+        }
+
+        this.cipher = cipher;
+        this.segmentSize = segmentSize;
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return The size of <code>length</code> bytes of plain text once encrypted
+     *         with the key
+     */
+    public long getEncryptedSize(long length, DerivedKey key) {
+        long segments = Segments.getSegmentCount(length, this.segmentSize);
+        return Segments.Header.length(key.getKdf(), key.salt()) + length + segments * Segments.TAG_LENGTH;
+    }
+
+    public byte[] encrypt(byte[] data, char[] password) {
+        return this.encrypt(data, this.cipher.deriveKey(password));
+    }
+
+    public byte[] encrypt(byte[] data, DerivedKey key) {
+        long size = this.getEncryptedSize(data.length, key);
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new RuntimeException("Data is too large for an array, use ByteBuffers.");
+        }
+        ByteBuffer out = ByteBuffer.allocate((int) size);
+        this.encrypt(ByteBuffer.wrap(data), out, key);
+        return out.array();
+    }
+
+    /**
+     * Encrypts the remaining bytes of <code>data</code> into <code>out</code>
+     * which needs room for {@linkplain #getEncryptedSize(long, DerivedKey)}
+     * bytes. In place operation is not supported.
+     *
+     * @return The number of bytes written to <code>out</code>
+     */
+    public int encrypt(ByteBuffer data, ByteBuffer out, DerivedKey key) {
+        Segments.Header header = Segments.Header.create(key.getKdf(), key.salt(), this.segmentSize,
+                Segments.getRandomProvider(this.cipher));
+        int length = data.remaining();
+        long segments = Segments.getSegmentCount(length, this.segmentSize);
+        long size = header.length() + length + segments * Segments.TAG_LENGTH;
+        if (out.remaining() < size) {
+            throw new RuntimeException("Output buffer is too small.");
+        }
+
+        int dataStart = data.position();
+        int outStart = out.position();
+        out.put(header.getEncoded());
+        int bodyStart = out.position();
+
+        MetricsListener listener = Segments.getMetricsListener(this.cipher);
+        this.run(segments, (engine, index) -> {
+            int offset = (int) (index * this.segmentSize);
+            ByteBuffer in = data.duplicate();
+            in.position(dataStart + offset);
+            in.limit(dataStart + Math.min(offset + this.segmentSize, length));
+
+            ByteBuffer o = out.duplicate();
+            o.position(bodyStart + (int) (index * (this.segmentSize + Segments.TAG_LENGTH)));
+
+            header.init(engine, true, key.getKey(), index, index == segments - 1);
+            Segments.doFinal(engine, true, in, o, listener);
+        });
+
+        data.position(data.limit());
+        out.position((int) (outStart + size));
+        return (int) size;
+    }
+
+    public byte[] decrypt(byte[] data, char[] password) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        return this.decrypt(data, this.deriveKey(in, password));
+    }
+
+    public byte[] decrypt(byte[] data, DerivedKey key) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        ByteBuffer out = ByteBuffer.allocate((int) this.getDecryptedSize(in));
+        this.decrypt(in, out, key);
+        return out.array();
+    }
+
+    /**
+     * Decrypts the remaining bytes of <code>data</code> into <code>out</code>
+     * which needs room for {@linkplain #getDecryptedSize(ByteBuffer)} bytes. In
+     * place operation is not supported.
+     *
+     * @return The number of bytes written to <code>out</code>
+     */
+    public int decrypt(ByteBuffer data, ByteBuffer out, DerivedKey key) {
+        ByteBuffer in = data.duplicate();
+        Segments.Header header = Segments.Header.read(in);
+        header.verify(key);
+
+        int bodyStart = in.position();
+        int encryptedSize = header.getSegmentSize() + Segments.TAG_LENGTH;
+        long segments = header.getSegmentCount(in.remaining());
+        int length = (int) (in.remaining() - segments * Segments.TAG_LENGTH);
+        if (out.remaining() < length) {
+            throw new RuntimeException("Output buffer is too small.");
+        }
+
+        int outStart = out.position();
+        MetricsListener listener = Segments.getMetricsListener(this.cipher);
+        this.run(segments, (engine, index) -> {
+            ByteBuffer segment = in.duplicate();
+            segment.position(bodyStart + (int) (index * encryptedSize));
+            segment.limit((int) Math.min(segment.position() + (long) encryptedSize, in.limit()));
+
+            ByteBuffer o = out.duplicate();
+            o.position(outStart + (int) (index * header.getSegmentSize()));
+
+            header.init(engine, false, key.getKey(), index, index == segments - 1);
+            Segments.doFinal(engine, false, segment, o, listener);
+        });
+
+        data.position(data.limit());
+        out.position(outStart + length);
+        return length;
+    }
+
+    /**
+     * Derives the key needed to decrypt the value, the salt and key derivation
+     * function are read from the value. Deriving the key once and using it for
+     * every random access read avoids repeating the derivation.
+     */
+    public DerivedKey deriveKey(ByteBuffer encrypted, char[] password) {
+        Segments.Header header = Segments.Header.read(encrypted.duplicate());
+        return Segments.deriveKey(this.cipher, password, header);
+    }
+
+    /**
+     * @return The number of plain text bytes in the value
+     */
+    public long getDecryptedSize(ByteBuffer encrypted) {
+        ByteBuffer in = encrypted.duplicate();
+        Segments.Header header = Segments.Header.read(in);
+        return in.remaining() - header.getSegmentCount(in.remaining()) * Segments.TAG_LENGTH;
+    }
+
+    public long getSegmentCount(ByteBuffer encrypted) {
+        ByteBuffer in = encrypted.duplicate();
+        Segments.Header header = Segments.Header.read(in);
+        return header.getSegmentCount(in.remaining());
+    }
+
+    /**
+     * Decrypts a single segment. Segment <code>i</code> holds plain text bytes
+     * <code>i * segment size</code> up to <code>(i + 1) * segment size</code>,
+     * the segment size is the one used to encrypt the value.
+     */
+    public byte[] decryptSegment(ByteBuffer encrypted, long index, DerivedKey key) {
+        ByteBuffer in = encrypted.duplicate();
+        Segments.Header header = Segments.Header.read(in);
+        header.verify(key);
+
+        long segments = header.getSegmentCount(in.remaining());
+        if (index < 0 || index >= segments) {
+            throw new RuntimeException("Segment index out of range.");
+        }
+        return this.decryptSegment(in, header, segments, index, key);
+    }
+
+    /**
+     * Decrypts <code>length</code> bytes of plain text starting at
+     * <code>offset</code>, only the segments holding the range are decrypted.
+     */
+    public byte[] decrypt(ByteBuffer encrypted, long offset, int length, DerivedKey key) {
+        ByteBuffer in = encrypted.duplicate();
+        Segments.Header header = Segments.Header.read(in);
+        header.verify(key);
+
+        long segments = header.getSegmentCount(in.remaining());
+        long size = in.remaining() - segments * Segments.TAG_LENGTH;
+        if (offset < 0 || length < 0 || offset + length > size) {
+            throw new RuntimeException("Range is outside of the decrypted value.");
+        }
+
+        byte[] out = new byte[length];
+        int copied = 0;
+        long index = offset / header.getSegmentSize();
+        int skip = (int) (offset % header.getSegmentSize());
+        while (copied < length) {
+            byte[] plain = this.decryptSegment(in, header, segments, index, key);
+            int count = Math.min(plain.length - skip, length - copied);
+            System.arraycopy(plain, skip, out, copied, count);
+            copied += count;
+            skip = 0;
+            index++;
+        }
+        return out;
+    }
+
+    private byte[] decryptSegment(ByteBuffer body, Segments.Header header, long segments, long index,
+            DerivedKey key) {
+        int encryptedSize = header.getSegmentSize() + Segments.TAG_LENGTH;
+        ByteBuffer segment = body.duplicate();
+        segment.position(body.position() + (int) (index * encryptedSize));
+        segment.limit((int) Math.min(segment.position() + (long) encryptedSize, body.limit()));
+
+        CipherProvider provider = Segments.getCipherProvider(this.cipher);
+        javax.crypto.Cipher engine = null;
+        try {
+            engine = provider.acquire(Segments.ALGORITHM);
+            header.init(engine, false, key.getKey(), index, index == segments - 1);
+            byte[] out = new byte[segment.remaining() - Segments.TAG_LENGTH];
+            Segments.doFinal(engine, false, segment, ByteBuffer.wrap(out), Segments.getMetricsListener(this.cipher));
+            return out;
+        } catch (GeneralSecurityException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            if (engine != null) {
+                provider.release(engine);
+            }
+        }
+    }
+
+    /**
+     * Runs the task for every segment, splitting the segments into contiguous
+     * chunks processed in parallel with one engine per chunk.
+     */
+    private void run(long segments, SegmentTask task) {
+        int chunks = (int) Math.min(segments, (long) this.parallelism * ChunkedCipher.CHUNKS_PER_THREAD);
+        if (chunks == 1) {
+            this.run(0, segments, task);
+            return;
+        }
+
+        List<Future<?>> futures = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            long from = segments * c / chunks;
+            long to = segments * (c + 1) / chunks;
+            futures.add(this.executor.submit(() -> this.run(from, to, task)));
+        }
+
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            futures.forEach(f -> f.cancel(true));
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
+    private void run(long from, long to, SegmentTask task) {
+        CipherProvider provider = Segments.getCipherProvider(this.cipher);
+        javax.crypto.Cipher engine = null;
+        try {
+            engine = provider.acquire(Segments.ALGORITHM);
+            for (long index = from; index < to; index++) {
+                task.run(engine, index);
+            }
+        } catch (GeneralSecurityException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            if (engine != null) {
+                provider.release(engine);
+            }
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package io.github.lc.oss.commons.encryption;
 
+/**
+ * Password based encryption. See {@linkplain KeyedCipher} for derived keys,
+ * associated data, ByteBuffers and the binary envelope format.
+ */
 public interface Cipher {
     String encrypt(String data, char[] password);
 
@@ -15,5 +19,13 @@ public interface Cipher {
 
     byte[] decrypt(String data, char[] password);
 
+    /**
+     * Decrypts a value that starts at <code>offset</code> and runs to the end of
+     * <code>data</code>, for values embedded in a larger string.
+     */
+    default byte[] decrypt(String data, int offset, char[] password) {
+        return this.decrypt(data.substring(offset), password);
+    }
+
     byte[] decrypt(byte[] data, char[] password, byte[] salt, byte[] iv);
 }
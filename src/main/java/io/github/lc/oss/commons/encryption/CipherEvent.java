@@ -0,0 +1,39 @@
+package io.github.lc.oss.commons.encryption;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Base of the Flight Recorder events for single AES operations. Disabled
+ * unless turned on in the recording settings, when disabled they cost next to
+ * nothing.
+ */
+@Category({ "Encryption" })
+@Enabled(false)
+@StackTrace(false)
+abstract class CipherEvent extends jdk.jfr.Event {
+    @Label("Algorithm")
+    String algorithm;
+
+    @Label("Key Size")
+    int keySize;
+
+    @Label("Input Size")
+    @DataAmount
+    long bytes;
+
+    /**
+     * Commits the event if it is enabled and passed the duration threshold.
+     */
+    void commit(AbstractAES cipher, long bytes) {
+        if (this.shouldCommit()) {
+            this.algorithm = cipher.getAlgorithm();
+            this.keySize = cipher.getKeySize();
+            this.bytes = bytes;
+            this.commit();
+        }
+    }
+}
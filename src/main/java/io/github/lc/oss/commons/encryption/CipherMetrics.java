@@ -0,0 +1,150 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@linkplain MetricsListener} keeping counters and
+ * {@linkplain LatencyHistogram}s in memory, to be read by whatever publishes
+ * the application's metrics. A single instance may be shared by multiple
+ * ciphers.
+ */
+public class CipherMetrics implements MetricsListener {
+    private final LatencyHistogram derivations = new LatencyHistogram();
+    private final LatencyHistogram encryptions = new LatencyHistogram();
+    private final LatencyHistogram decryptions = new LatencyHistogram();
+    private final LatencyHistogram encodes = new LatencyHistogram();
+    private final LatencyHistogram decodes = new LatencyHistogram();
+    private final LongAdder bytesEncrypted = new LongAdder();
+    private final LongAdder bytesDecrypted = new LongAdder();
+    private final LongAdder bytesEncoded = new LongAdder();
+    private final LongAdder bytesDecoded = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+    private final LongAdder purges = new LongAdder();
+    private final LongAdder[] failures = new LongAdder[DecryptFailure.values().length];
+
+    public CipherMetrics() {
+        for (int i = 0; i < this.failures.length; i++) {
+            this.failures[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void onKeyDerived(Kdf kdf, long nanos) {
+        this.derivations.record(nanos);
+    }
+
+    @Override
+    public void onKeyCache(boolean hit) {
+        (hit ? this.cacheHits : this.cacheMisses).increment();
+    }
+
+    @Override
+    public void onCipher(boolean encrypt, long bytes, long nanos) {
+        if (encrypt) {
+            this.encryptions.record(nanos);
+            this.bytesEncrypted.add(bytes);
+        } else {
+            this.decryptions.record(nanos);
+            this.bytesDecrypted.add(bytes);
+        }
+    }
+
+    @Override
+    public void onEncode(long bytes, long nanos) {
+        this.encodes.record(nanos);
+        this.bytesEncoded.add(bytes);
+    }
+
+    @Override
+    public void onDecode(long bytes, long nanos) {
+        this.decodes.record(nanos);
+        this.bytesDecoded.add(bytes);
+    }
+
+    @Override
+    public void onKeyRotated() {
+        this.rotations.increment();
+    }
+
+    @Override
+    public void onKeyPurged() {
+        this.purges.increment();
+    }
+
+    @Override
+    public void onDecryptFailure(DecryptFailure cause) {
+        this.failures[cause.ordinal()].increment();
+    }
+
+    public LatencyHistogram getDerivations() {
+        return this.derivations;
+    }
+
+    public LatencyHistogram getEncryptions() {
+        return this.encryptions;
+    }
+
+    public LatencyHistogram getDecryptions() {
+        return this.decryptions;
+    }
+
+    public LatencyHistogram getEncodes() {
+        return this.encodes;
+    }
+
+    public LatencyHistogram getDecodes() {
+        return this.decodes;
+    }
+
+    public long getBytesEncrypted() {
+        return this.bytesEncrypted.sum();
+    }
+
+    public long getBytesDecrypted() {
+        return this.bytesDecrypted.sum();
+    }
+
+    public long getBytesEncoded() {
+        return this.bytesEncoded.sum();
+    }
+
+    public long getBytesDecoded() {
+        return this.bytesDecoded.sum();
+    }
+
+    public long getCacheHits() {
+        return this.cacheHits.sum();
+    }
+
+    public long getCacheMisses() {
+        return this.cacheMisses.sum();
+    }
+
+    public long getRotations() {
+        return this.rotations.sum();
+    }
+
+    public long getPurges() {
+        return this.purges.sum();
+    }
+
+    public long getFailures(DecryptFailure cause) {
+        return this.failures[cause.ordinal()].sum();
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : new LatencyHistogram[] { this.derivations, this.encryptions,
+                this.decryptions, this.encodes, this.decodes }) {
+            histogram.reset();
+        }
+        for (LongAdder counter : new LongAdder[] { this.bytesEncrypted, this.bytesDecrypted, this.bytesEncoded,
+                this.bytesDecoded, this.cacheHits, this.cacheMisses, this.rotations, this.purges }) {
+            counter.reset();
+        }
+        for (LongAdder counter : this.failures) {
+            counter.reset();
+        }
+    }
+}
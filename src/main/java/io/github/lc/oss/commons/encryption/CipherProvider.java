@@ -0,0 +1,15 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.security.GeneralSecurityException;
+
+/**
+ * Strategy for obtaining {@linkplain javax.crypto.Cipher} engines. Every
+ * acquired engine is released once the operation using it completes,
+ * implementations may hand released engines out again. Engines are always
+ * re-initialized before use.
+ */
+public interface CipherProvider {
+    javax.crypto.Cipher acquire(String transformation) throws GeneralSecurityException;
+
+    void release(javax.crypto.Cipher cipher);
+}
@@ -0,0 +1,59 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.security.GeneralSecurityException;
+import java.util.Set;
+
+import io.github.lc.oss.commons.util.TypedEnumCache;
+
+/**
+ * Built in {@linkplain CipherProvider} strategies.
+ * <ul>
+ * <li>NEW_INSTANCE - a new engine per operation (the default)</li>
+ * <li>THREAD_LOCAL - one reusable engine per thread, best for a fixed number of
+ * platform threads</li>
+ * <li>POOLED - a bounded pool of reusable engines shared by all threads, safe
+ * for virtual threads</li>
+ * </ul>
+ * Released engines are not re-initialized, an idle engine keeps the key of its
+ * last operation until its next use replaces it.
+ */
+public enum CipherProviders implements CipherProvider {
+    NEW_INSTANCE(new NewInstanceCipherProvider()),
+    THREAD_LOCAL(new ThreadLocalCipherProvider()),
+    POOLED(new PooledCipherProvider());
+
+    private static final TypedEnumCache<CipherProviders, CipherProviders> CACHE = new TypedEnumCache<>(
+            CipherProviders.class, false);
+
+    public static final Set<CipherProviders> all() {
+        return CipherProviders.CACHE.values();
+    }
+
+    public static CipherProviders byName(String name) {
+        return CipherProviders.CACHE.byName(name);
+    }
+
+    public static boolean hasName(String name) {
+        return CipherProviders.CACHE.hasName(name);
+    }
+
+    public static CipherProviders tryParse(String name) {
+        return CipherProviders.CACHE.tryParse(name);
+    }
+
+    private final CipherProvider provider;
+
+    private CipherProviders(CipherProvider provider) {
+        this.provider = provider;
+    }
+
+    @Override
+    public javax.crypto.Cipher acquire(String transformation) throws GeneralSecurityException {
+        return this.provider.acquire(transformation);
+    }
+
+    @Override
+    public void release(javax.crypto.Cipher cipher) {
+        this.provider.release(cipher);
+    }
+}
@@ -1,10 +1,14 @@
 package io.github.lc.oss.commons.encryption;
 
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import io.github.lc.oss.commons.util.TypedEnumCache;
 
-public enum Ciphers implements Cipher {
+public enum Ciphers implements KeyedCipher {
     AES128(new AES128()),
     AES256(new AES256());
 
@@ -26,12 +30,78 @@ public enum Ciphers implements Cipher {
         return Ciphers.CACHE.tryParse(name);
     }
 
-    private final Cipher cipher;
+    private final AbstractAES cipher;
 
-    private Ciphers(Cipher cipher) {
+    private Ciphers(AbstractAES cipher) {
         this.cipher = cipher;
     }
 
+    public CipherProvider getCipherProvider() {
+        return this.cipher.getCipherProvider();
+    }
+
+    /**
+     * Sets the strategy used by this cipher to obtain cipher engines, defaults to
+     * {@linkplain CipherProviders#NEW_INSTANCE}.
+     */
+    public void setCipherProvider(CipherProvider cipherProvider) {
+        this.cipher.setCipherProvider(cipherProvider);
+    }
+
+    public RandomProvider getRandomProvider() {
+        return this.cipher.getRandomProvider();
+    }
+
+    /**
+     * Sets the strategy used by this cipher to generate IVs and salts, defaults
+     * to {@linkplain RandomProviders#SHARED}.
+     */
+    public void setRandomProvider(RandomProvider randomProvider) {
+        this.cipher.setRandomProvider(randomProvider);
+    }
+
+    public MetricsListener getMetricsListener() {
+        return this.cipher.getMetricsListener();
+    }
+
+    /**
+     * Reports timings and counts of this cipher to the listener. Pass
+     * <code>null</code> to stop reporting (the default).
+     */
+    public void setMetricsListener(MetricsListener metricsListener) {
+        this.cipher.setMetricsListener(metricsListener);
+    }
+
+    public List<Kdf> getAcceptedKdfs() {
+        return this.cipher.getAcceptedKdfs();
+    }
+
+    /**
+     * Restricts the key derivation functions, including their parameters,
+     * accepted by this cipher when decrypting. Pass <code>null</code> to accept
+     * the defaults.
+     */
+    public void setAcceptedKdfs(List<Kdf> acceptedKdfs) {
+        this.cipher.setAcceptedKdfs(acceptedKdfs);
+    }
+
+    public boolean isAccepted(Kdf kdf) {
+        return this.cipher.isAccepted(kdf);
+    }
+
+    public KeyCache getKeyCache() {
+        return this.cipher.getKeyCache();
+    }
+
+    /**
+     * Enables caching of derived keys for this cipher. Pass <code>null</code> to
+     * disable caching (the default). A single cache may be shared by multiple
+     * ciphers.
+     */
+    public void setKeyCache(KeyCache keyCache) {
+        this.cipher.setKeyCache(keyCache);
+    }
+
     @Override
     public String encrypt(String data, char[] password) {
         return this.cipher.encrypt(data, password);
@@ -67,8 +137,258 @@ public enum Ciphers implements Cipher {
         return this.cipher.decrypt(data, password);
     }
 
+    @Override
+    public byte[] decrypt(String data, int offset, char[] password) {
+        return this.cipher.decrypt(data, offset, password);
+    }
+
     @Override
     public byte[] decrypt(byte[] data, char[] password, byte[] salt, byte[] iv) {
         return this.cipher.decrypt(data, password, salt, iv);
     }
+
+    @Override
+    public DerivedKey deriveKey(char[] password) {
+        return this.cipher.deriveKey(password);
+    }
+
+    @Override
+    public DerivedKey deriveKey(char[] password, byte[] salt) {
+        return this.cipher.deriveKey(password, salt);
+    }
+
+    @Override
+    public DerivedKey deriveKey(char[] password, Kdf kdf) {
+        return this.cipher.deriveKey(password, kdf);
+    }
+
+    @Override
+    public DerivedKey deriveKey(char[] password, byte[] salt, Kdf kdf) {
+        return this.cipher.deriveKey(password, salt, kdf);
+    }
+
+    @Override
+    public DerivedKey deriveKey(String data, char[] password) {
+        return this.cipher.deriveKey(data, password);
+    }
+
+    @Override
+    public String getKeyId(String data) {
+        return this.cipher.getKeyId(data);
+    }
+
+    @Override
+    public String encrypt(String data, DerivedKey key) {
+        return this.cipher.encrypt(data, key);
+    }
+
+    @Override
+    public String encrypt(byte[] data, DerivedKey key) {
+        return this.cipher.encrypt(data, key);
+    }
+
+    @Override
+    public byte[] encrypt(byte[] data, DerivedKey key, byte[] iv) {
+        return this.cipher.encrypt(data, key, iv);
+    }
+
+    @Override
+    public String decryptString(String data, DerivedKey key) {
+        return this.cipher.decryptString(data, key);
+    }
+
+    @Override
+    public byte[] decrypt(String data, DerivedKey key) {
+        return this.cipher.decrypt(data, key);
+    }
+
+    @Override
+    public byte[] decrypt(String data, int offset, DerivedKey key) {
+        return this.cipher.decrypt(data, offset, key);
+    }
+
+    @Override
+    public byte[] decrypt(byte[] data, DerivedKey key, byte[] iv) {
+        return this.cipher.decrypt(data, key, iv);
+    }
+
+    @Override
+    public String encrypt(byte[] data, byte[] aad, char[] password) {
+        return this.cipher.encrypt(data, aad, password);
+    }
+
+    @Override
+    public String encrypt(byte[] data, byte[] aad, DerivedKey key) {
+        return this.cipher.encrypt(data, aad, key);
+    }
+
+    @Override
+    public byte[] decrypt(String data, byte[] aad, char[] password) {
+        return this.cipher.decrypt(data, aad, password);
+    }
+
+    @Override
+    public byte[] decrypt(String data, int offset, byte[] aad, char[] password) {
+        return this.cipher.decrypt(data, offset, aad, password);
+    }
+
+    @Override
+    public byte[] decrypt(String data, byte[] aad, DerivedKey key) {
+        return this.cipher.decrypt(data, aad, key);
+    }
+
+    @Override
+    public byte[] decrypt(String data, int offset, byte[] aad, DerivedKey key) {
+        return this.cipher.decrypt(data, offset, aad, key);
+    }
+
+    @Override
+    public int encrypt(ByteBuffer data, ByteBuffer out, ByteBuffer aad, DerivedKey key, byte[] iv) {
+        return this.cipher.encrypt(data, out, aad, key, iv);
+    }
+
+    @Override
+    public int decrypt(ByteBuffer data, ByteBuffer out, ByteBuffer aad, DerivedKey key, byte[] iv) {
+        return this.cipher.decrypt(data, out, aad, key, iv);
+    }
+
+    @Override
+    public int getEncryptedSize(int length) {
+        return this.cipher.getEncryptedSize(length);
+    }
+
+    @Override
+    public int getDecryptedSize(int length) {
+        return this.cipher.getDecryptedSize(length);
+    }
+
+    @Override
+    public int encrypt(ByteBuffer data, ByteBuffer out, char[] password, byte[] salt, byte[] iv) {
+        return this.cipher.encrypt(data, out, password, salt, iv);
+    }
+
+    @Override
+    public int encrypt(ByteBuffer data, ByteBuffer out, DerivedKey key, byte[] iv) {
+        return this.cipher.encrypt(data, out, key, iv);
+    }
+
+    @Override
+    public int decrypt(ByteBuffer data, ByteBuffer out, char[] password, byte[] salt, byte[] iv) {
+        return this.cipher.decrypt(data, out, password, salt, iv);
+    }
+
+    @Override
+    public int decrypt(ByteBuffer data, ByteBuffer out, DerivedKey key, byte[] iv) {
+        return this.cipher.decrypt(data, out, key, iv);
+    }
+
+    @Override
+    public String encryptCompact(byte[] data, char[] password) {
+        return this.cipher.encryptCompact(data, password);
+    }
+
+    @Override
+    public String encryptCompact(byte[] data, DerivedKey key) {
+        return this.cipher.encryptCompact(data, key);
+    }
+
+    @Override
+    public byte[] encryptEnvelope(byte[] data, char[] password) {
+        return this.cipher.encryptEnvelope(data, password);
+    }
+
+    @Override
+    public byte[] encryptEnvelope(byte[] data, DerivedKey key) {
+        return this.cipher.encryptEnvelope(data, key);
+    }
+
+    @Override
+    public int getEnvelopeSize(int length, DerivedKey key) {
+        return this.cipher.getEnvelopeSize(length, key);
+    }
+
+    @Override
+    public int encryptEnvelope(ByteBuffer data, ByteBuffer out, DerivedKey key) {
+        return this.cipher.encryptEnvelope(data, out, key);
+    }
+
+    @Override
+    public byte[] decryptEnvelope(byte[] envelope, char[] password) {
+        return this.cipher.decryptEnvelope(envelope, password);
+    }
+
+    @Override
+    public byte[] decryptEnvelope(byte[] envelope, DerivedKey key) {
+        return this.cipher.decryptEnvelope(envelope, key);
+    }
+
+    @Override
+    public int decryptEnvelope(ByteBuffer envelope, ByteBuffer out, char[] password) {
+        return this.cipher.decryptEnvelope(envelope, out, password);
+    }
+
+    @Override
+    public int decryptEnvelope(ByteBuffer envelope, ByteBuffer out, DerivedKey key) {
+        return this.cipher.decryptEnvelope(envelope, out, key);
+    }
+
+    @Override
+    public List<byte[]> encryptAll(List<byte[]> data, char[] password) {
+        return this.cipher.encryptAll(data, password);
+    }
+
+    @Override
+    public List<byte[]> encryptAll(List<byte[]> data, DerivedKey key) {
+        return this.cipher.encryptAll(data, key);
+    }
+
+    @Override
+    public Iterator<byte[]> encryptAll(Iterator<byte[]> data, char[] password) {
+        return this.cipher.encryptAll(data, password);
+    }
+
+    @Override
+    public Iterator<byte[]> encryptAll(Iterator<byte[]> data, DerivedKey key) {
+        return this.cipher.encryptAll(data, key);
+    }
+
+    @Override
+    public Stream<byte[]> encryptAll(Stream<byte[]> data, char[] password) {
+        return this.cipher.encryptAll(data, password);
+    }
+
+    @Override
+    public Stream<byte[]> encryptAll(Stream<byte[]> data, DerivedKey key) {
+        return this.cipher.encryptAll(data, key);
+    }
+
+    @Override
+    public List<byte[]> decryptAll(List<byte[]> envelopes, char[] password) {
+        return this.cipher.decryptAll(envelopes, password);
+    }
+
+    @Override
+    public List<byte[]> decryptAll(List<byte[]> envelopes, DerivedKey key) {
+        return this.cipher.decryptAll(envelopes, key);
+    }
+
+    @Override
+    public Iterator<byte[]> decryptAll(Iterator<byte[]> envelopes, char[] password) {
+        return this.cipher.decryptAll(envelopes, password);
+    }
+
+    @Override
+    public Iterator<byte[]> decryptAll(Iterator<byte[]> envelopes, DerivedKey key) {
+        return this.cipher.decryptAll(envelopes, key);
+    }
+
+    @Override
+    public Stream<byte[]> decryptAll(Stream<byte[]> envelopes, char[] password) {
+        return this.cipher.decryptAll(envelopes, password);
+    }
+
+    @Override
+    public Stream<byte[]> decryptAll(Stream<byte[]> envelopes, DerivedKey key) {
+        return this.cipher.decryptAll(envelopes, key);
+    }
 }
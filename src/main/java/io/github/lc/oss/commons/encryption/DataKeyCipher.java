@@ -0,0 +1,242 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import io.github.lc.oss.commons.encoding.Encodings;
+
+/**
+ * Envelope encryption using data keys protected by a {@linkplain MasterKey}.
+ * <br/>
+ * <br />
+ * Each data key (e.g. one per tenant or partition) is a random seed wrapped by
+ * the master key and stored as a {@linkplain WrappedKey}. The first use of a
+ * data key unwraps it and expands it to an AES key with
+ * {@linkplain Kdfs#HKDF_SHA256} using the key ID as the salt. The result is
+ * cached, so encrypting or decrypting a value costs a single AES-GCM operation
+ * instead of a password hash. Values use the regular format of the cipher and
+ * record the key ID as their salt, decrypting a value with the wrong data key
+ * fails.<br/>
+ * <br />
+ * Cached keys are looked up by the complete wrapped key, a wrapped key that
+ * reuses a known key ID with different wrapped bytes is always unwrapped (and
+ * rejected by the master key). Key material is overwritten with zeros whenever
+ * it leaves the cache.<br/>
+ * <br />
+ * Rotating the master key only requires rewrapping the data keys (see
+ * {@linkplain #rewrap(WrappedKey, MasterKey)}), the data remains as is.<br/>
+ * <br />
+ * Instances are safe for use by multiple threads.
+ */
+public class DataKeyCipher {
+    private static final int DEFAULT_CACHE_SIZE = 1024;
+    private static final int SEED_LENGTH = 32;
+
+    private static class Entry {
+        private final byte[] key;
+        private final String algorithm;
+        private final byte[] salt;
+        private final int keySize;
+        private final Kdf kdf;
+
+        public Entry(DerivedKey key) {
+            this.key = key.getKey().getEncoded();
+            this.algorithm = key.getKey().getAlgorithm();
+            this.salt = key.salt();
+            this.keySize = key.getKeySize();
+            this.kdf = key.getKdf();
+        }
+
+        public DerivedKey toKey() {
+            return new DerivedKey(new SecretKeySpec(this.key, this.algorithm), this.salt, this.keySize, this.kdf);
+        }
+
+        public void zero() {
+            Arrays.fill(this.key, (byte) 0x00);
+        }
+    }
+
+    private final KeyedCipher cipher;
+    private final MasterKey master;
+    private final int cacheSize;
+    private final Map<String, Entry> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Uses {@linkplain Ciphers#AES256} and caches up to 1024 data keys.
+     */
+    public DataKeyCipher(MasterKey master) {
+        this(Ciphers.AES256, master);
+    }
+
+    public DataKeyCipher(KeyedCipher cipher, MasterKey master) {
+        this(cipher, master, DataKeyCipher.DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param cacheSize Maximum number of unwrapped data keys kept, the least
+     *                  recently used is discarded
+     */
+    public DataKeyCipher(KeyedCipher cipher, MasterKey master, int cacheSize) {
+        if (master == null) {
+            throw new RuntimeException("Master key is required");
+        }
+        if (cacheSize < 1) {
+            throw new RuntimeException("Cache size must be positive");
+        }
+
+        this.cipher = cipher;
+        this.master = master;
+        this.cacheSize = cacheSize;
+        this.cache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (this.size() > DataKeyCipher.this.cacheSize) {
+                    eldest.getValue().zero();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Generates a new data key, the returned value should be stored for as long
+     * as data encrypted with it exists.
+     */
+    public WrappedKey generateKey() {
+        byte[] id = new byte[WrappedKey.ID_LENGTH];
+        byte[] seed = new byte[DataKeyCipher.SEED_LENGTH];
+        RandomProviders.THREAD_LOCAL.nextBytes(id);
+        RandomProviders.THREAD_LOCAL.nextBytes(seed);
+
+        try {
+            WrappedKey key = new WrappedKey(id, this.master.wrap(seed, WrappedKey.aad(id)));
+            this.put(key, this.expand(key, seed));
+            return key;
+        } finally {
+            Arrays.fill(seed, (byte) 0x00);
+        }
+    }
+
+    /**
+     * Re-encrypts the data key using a different master key. The key itself and
+     * its ID are unchanged so data encrypted with it remains decryptable.
+     */
+    public WrappedKey rewrap(WrappedKey key, MasterKey master) {
+        byte[] seed = this.master.unwrap(key.getWrapped(), WrappedKey.aad(key.id()));
+        try {
+            return new WrappedKey(key.id(), master.wrap(seed, WrappedKey.aad(key.id())));
+        } finally {
+            Arrays.fill(seed, (byte) 0x00);
+        }
+    }
+
+    /**
+     * @return The unwrapped data key, for use with other ciphers (e.g.
+     *         {@linkplain ChunkedCipher}) or the methods of
+     *         {@linkplain KeyedCipher}
+     */
+    public DerivedKey getKey(WrappedKey key) {
+        synchronized (this.cache) {
+            Entry cached = this.cache.get(key.getEncoded());
+            if (cached != null) {
+                this.hits.incrementAndGet();
+                return cached.toKey();
+            }
+        }
+
+        this.misses.incrementAndGet();
+        byte[] seed = this.master.unwrap(key.getWrapped(), WrappedKey.aad(key.id()));
+        try {
+            if (seed.length != DataKeyCipher.SEED_LENGTH) {
+                throw new RuntimeException("Invalid wrapped key.");
+            }
+            DerivedKey derived = this.expand(key, seed);
+            this.put(key, derived);
+            return derived;
+        } finally {
+            Arrays.fill(seed, (byte) 0x00);
+        }
+    }
+
+    public String encrypt(String data, WrappedKey key) {
+        return this.encrypt(data.getBytes(StandardCharsets.UTF_8), key);
+    }
+
+    public String encrypt(byte[] data, WrappedKey key) {
+        return this.cipher.encrypt(data, this.getKey(key));
+    }
+
+    /**
+     * See {@linkplain KeyedCipher#encrypt(byte[], byte[], DerivedKey)}.
+     */
+    public String encrypt(byte[] data, byte[] aad, WrappedKey key) {
+        return this.cipher.encrypt(data, aad, this.getKey(key));
+    }
+
+    public byte[] decrypt(String data, WrappedKey key) {
+        return this.cipher.decrypt(data, this.getKey(key));
+    }
+
+    public byte[] decrypt(String data, byte[] aad, WrappedKey key) {
+        return this.cipher.decrypt(data, aad, this.getKey(key));
+    }
+
+    public String decryptString(String data, WrappedKey key) {
+        return this.cipher.decryptString(data, this.getKey(key));
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    public int size() {
+        synchronized (this.cache) {
+            return this.cache.size();
+        }
+    }
+
+    /**
+     * Removes and zeros all unwrapped data keys, they are unwrapped again on next
+     * use.
+     */
+    public void clear() {
+        synchronized (this.cache) {
+            this.cache.values().forEach(e -> e.zero());
+            this.cache.clear();
+        }
+    }
+
+    private DerivedKey expand(WrappedKey key, byte[] seed) {
+        char[] password = Encodings.Base64.encode(seed).toCharArray();
+        try {
+            return this.cipher.deriveKey(password, key.id(), Kdfs.HKDF_SHA256);
+        } finally {
+            Arrays.fill(password, '0');
+        }
+    }
+
+    private void put(WrappedKey key, DerivedKey derived) {
+        Entry entry = new Entry(derived);
+        synchronized (this.cache) {
+            Entry previous = this.cache.put(key.getEncoded(), entry);
+            if (previous != null) {
+                previous.zero();
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package io.github.lc.oss.commons.encryption;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.github.lc.oss.commons.encryption.Decrypt")
+@Label("Decrypt")
+@Description("An AES-GCM decryption, excluding key derivation and decoding")
+class DecryptEvent extends CipherEvent {
+}
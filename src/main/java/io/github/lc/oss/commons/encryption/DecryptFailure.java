@@ -0,0 +1,41 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.util.Set;
+
+import io.github.lc.oss.commons.util.TypedEnumCache;
+
+/**
+ * Reasons a value could not be decrypted, as reported to a
+ * {@linkplain MetricsListener}.
+ * <ul>
+ * <li>INVALID_VALUE - the value could not be parsed</li>
+ * <li>AUTHENTICATION - the value was tampered with or the key is wrong</li>
+ * <li>KEY_NOT_FOUND - an ephemeral cipher has no key with the value's ID</li>
+ * <li>KEY_EXPIRED - an ephemeral cipher's key is past its decryption TTL</li>
+ * </ul>
+ */
+public enum DecryptFailure {
+    INVALID_VALUE,
+    AUTHENTICATION,
+    KEY_NOT_FOUND,
+    KEY_EXPIRED;
+
+    private static final TypedEnumCache<DecryptFailure, DecryptFailure> CACHE = new TypedEnumCache<>(
+            DecryptFailure.class, false);
+
+    public static final Set<DecryptFailure> all() {
+        return DecryptFailure.CACHE.values();
+    }
+
+    public static DecryptFailure byName(String name) {
+        return DecryptFailure.CACHE.byName(name);
+    }
+
+    public static boolean hasName(String name) {
+        return DecryptFailure.CACHE.hasName(name);
+    }
+
+    public static DecryptFailure tryParse(String name) {
+        return DecryptFailure.CACHE.tryParse(name);
+    }
+}
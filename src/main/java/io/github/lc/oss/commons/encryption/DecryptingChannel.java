@@ -0,0 +1,243 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read only {@linkplain SeekableByteChannel} over the plain text of a value in
+ * the segmented format (see {@linkplain Segments}) written by
+ * {@linkplain StreamingCipher}, {@linkplain ChunkedCipher} or
+ * {@linkplain MappedFileCipher}.<br/>
+ * <br />
+ * Segments are decrypted on demand when a read touches them and the most
+ * recently used ones are kept, so reading a range only costs the segments
+ * holding it. Position and size are in plain text bytes. Every segment is
+ * authenticated before any of its bytes are returned, tampering fails the
+ * read.<br/>
+ * <br />
+ * Closing this channel closes the encrypted channel, clears the cached
+ * segments and releases the engine to the cipher provider of the cipher (new
+ * engines are used when constructed with a key but no cipher). Instances are
+ * safe for use by multiple threads, reads are serialized.
+ */
+public class DecryptingChannel implements SeekableByteChannel {
+    private static final int DEFAULT_CACHE_SIZE = 8;
+
+    private final SeekableByteChannel in;
+    private final DerivedKey key;
+    private final Segments.Header header;
+    private final long segments;
+    private final long size;
+    private final Map<Long, byte[]> cache;
+    private final CipherProvider provider;
+    private final MetricsListener listener;
+    private final javax.crypto.Cipher engine;
+
+    private long position;
+    private boolean closed;
+
+    /**
+     * Uses {@linkplain Ciphers#AES256} to derive the key.
+     */
+    public DecryptingChannel(SeekableByteChannel in, char[] password) {
+        this(in, Ciphers.AES256, password);
+    }
+
+    /**
+     * The key is derived using the salt and key derivation function recorded in
+     * the value.
+     */
+    public DecryptingChannel(SeekableByteChannel in, KeyedCipher cipher, char[] password) {
+        this(in, DecryptingChannel.readHeader(in), cipher, password);
+    }
+
+    public DecryptingChannel(SeekableByteChannel in, DerivedKey key) {
+        this(in, key, DecryptingChannel.DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param cacheSize Maximum number of decrypted segments kept
+     */
+    public DecryptingChannel(SeekableByteChannel in, DerivedKey key, int cacheSize) {
+        this(in, DecryptingChannel.readHeader(in), key, cacheSize, CipherProviders.NEW_INSTANCE, null);
+        this.header.verify(key);
+    }
+
+    /**
+     * The cipher is only used for its cipher provider and metrics listener.
+     */
+    public DecryptingChannel(SeekableByteChannel in, KeyedCipher cipher, DerivedKey key) {
+        this(in, cipher, key, DecryptingChannel.DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param cacheSize Maximum number of decrypted segments kept
+     */
+    public DecryptingChannel(SeekableByteChannel in, KeyedCipher cipher, DerivedKey key, int cacheSize) {
+        this(in, DecryptingChannel.readHeader(in), key, cacheSize, Segments.getCipherProvider(cipher),
+                Segments.getMetricsListener(cipher));
+        this.header.verify(key);
+    }
+
+    private DecryptingChannel(SeekableByteChannel in, Segments.Header header, KeyedCipher cipher, char[] password) {
+        this(in, header, Segments.deriveKey(cipher, password, header),
+                DecryptingChannel.DEFAULT_CACHE_SIZE, Segments.getCipherProvider(cipher),
+                Segments.getMetricsListener(cipher));
+    }
+
+    private DecryptingChannel(SeekableByteChannel in, Segments.Header header, DerivedKey key, int cacheSize,
+            CipherProvider provider, MetricsListener listener) {
+        if (cacheSize < 1) {
+            throw new RuntimeException("Cache size must be positive");
+        }
+
+        this.in = in;
+        this.key = key;
+        this.header = header;
+        this.provider = provider;
+        this.listener = listener;
+        try {
+            long body = in.size() - header.length();
+            this.segments = header.getSegmentCount(body);
+            this.size = body - this.segments * Segments.TAG_LENGTH;
+            this.engine = provider.acquire(Segments.ALGORITHM);
+        } catch (IOException | GeneralSecurityException ex) {
+            throw new RuntimeException(ex);
+        }
+        this.cache = new LinkedHashMap<Long, byte[]>(cacheSize + 1, 1f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                if (this.size() > cacheSize) {
+                    Arrays.fill(eldest.getValue(), (byte) 0x00);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    private static Segments.Header readHeader(SeekableByteChannel in) {
+        try {
+            return Segments.Header.read(in.position(0));
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    @Override
+    public synchronized int read(ByteBuffer dst) throws IOException {
+        this.ensureOpen();
+        if (this.position >= this.size) {
+            return -1;
+        }
+
+        int count = 0;
+        int segmentSize = this.header.getSegmentSize();
+        while (dst.hasRemaining() && this.position < this.size) {
+            byte[] segment = this.segment(this.position / segmentSize);
+            int offset = (int) (this.position % segmentSize);
+            int length = Math.min(segment.length - offset, dst.remaining());
+            dst.put(segment, offset, length);
+            this.position += length;
+            count += length;
+        }
+        return count;
+    }
+
+    /**
+     * @return The decrypted segment, from the cache if possible
+     */
+    private byte[] segment(long index) throws IOException {
+        byte[] segment = this.cache.get(index);
+        if (segment != null) {
+            return segment;
+        }
+
+        int segmentSize = this.header.getSegmentSize();
+        segment = new byte[(int) Math.min(segmentSize, this.size - index * segmentSize)];
+        ByteBuffer encrypted = ByteBuffer.allocate(segment.length + Segments.TAG_LENGTH);
+        this.in.position(this.header.length() + index * (segmentSize + Segments.TAG_LENGTH));
+        Segments.readFully(this.in, encrypted);
+        encrypted.flip();
+
+        try {
+            this.header.init(this.engine, false, this.key.getKey(), index, index == this.segments - 1);
+            Segments.doFinal(this.engine, false, encrypted, ByteBuffer.wrap(segment), this.listener);
+        } catch (GeneralSecurityException ex) {
+            throw new RuntimeException(ex);
+        }
+        this.cache.put(index, segment);
+        return segment;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized long position() throws IOException {
+        this.ensureOpen();
+        return this.position;
+    }
+
+    /**
+     * Positions past the end are allowed, reads there return end of stream.
+     */
+    @Override
+    public synchronized SeekableByteChannel position(long newPosition) throws IOException {
+        this.ensureOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("Position must not be negative");
+        }
+        this.position = newPosition;
+        return this;
+    }
+
+    /**
+     * @return The number of plain text bytes
+     */
+    @Override
+    public synchronized long size() throws IOException {
+        this.ensureOpen();
+        return this.size;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return !this.closed;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+
+        this.closed = true;
+        this.cache.values().forEach(s -> Arrays.fill(s, (byte) 0x00));
+        this.cache.clear();
+        this.provider.release(this.engine);
+        this.in.close();
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (this.closed) {
+            throw new ClosedChannelException();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package io.github.lc.oss.commons.encryption;
+
+import javax.crypto.SecretKey;
+
+/**
+ * A key derived from a password and salt by a {@linkplain Cipher}. Deriving a
+ * key is intentionally expensive, holding on to an instance of this class
+ * allows the cost to be paid once and the key reused for many operations.<br/>
+ * <br />
+ * Values encrypted with a derived key use the same format as values encrypted
+ * with the password directly and are interchangeable with them.
+ */
+public class DerivedKey {
+    private final SecretKey key;
+    private final byte[] salt;
+    private final int keySize;
+    private final Kdf kdf;
+
+    DerivedKey(SecretKey key, byte[] salt, int keySize, Kdf kdf) {
+        this.key = key;
+        this.salt = salt.clone();
+        this.keySize = keySize;
+        this.kdf = kdf;
+    }
+
+    public byte[] getSalt() {
+        return this.salt.clone();
+    }
+
+    public int getKeySize() {
+        return this.keySize;
+    }
+
+    public Kdf getKdf() {
+        return this.kdf;
+    }
+
+    SecretKey getKey() {
+        return this.key;
+    }
+
+    byte[] salt() {
+        return this.salt;
+    }
+}
@@ -0,0 +1,11 @@
+package io.github.lc.oss.commons.encryption;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.github.lc.oss.commons.encryption.Encrypt")
+@Label("Encrypt")
+@Description("An AES-GCM encryption, excluding key derivation and encoding")
+class EncryptEvent extends CipherEvent {
+}
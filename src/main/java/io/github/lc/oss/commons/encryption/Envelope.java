@@ -0,0 +1,112 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary envelope format.<br/>
+ * <br />
+ * Layout: <code>version (1) || algorithm (1) || kdf id (1) || kdf parameters
+ * length (1) || kdf parameters || salt length (1) || salt || iv (12) || cipher
+ * text</code><br/>
+ * <br />
+ * The algorithm is the AES key length in bytes. The key derivation function
+ * and its parameters (see {@linkplain Kdf}) are recorded so the defaults can
+ * change without breaking existing values.
+ */
+class Envelope {
+    static final byte VERSION = 0x01;
+    static final int IV_LENGTH = 12;
+
+    private final byte algorithm;
+    private final byte kdfId;
+    private final byte[] kdfParameters;
+    private final byte[] salt;
+    private final byte[] iv;
+
+    Envelope(byte algorithm, Kdf kdf, byte[] salt, byte[] iv) {
+        this(algorithm, kdf.getId(), kdf.getParameters(), salt, iv);
+    }
+
+    private Envelope(byte algorithm, byte kdfId, byte[] kdfParameters, byte[] salt, byte[] iv) {
+        if (salt.length > 255) {
+            throw new RuntimeException("Salt must not exceed 255 bytes.");
+        }
+        if (kdfParameters.length > 255) {
+            throw new RuntimeException("Key derivation parameters must not exceed 255 bytes.");
+        }
+
+        this.algorithm = algorithm;
+        this.kdfId = kdfId;
+        this.kdfParameters = kdfParameters;
+        this.salt = salt;
+        this.iv = iv;
+    }
+
+    /**
+     * Reads the envelope header leaving the buffer positioned at the cipher text.
+     */
+    static Envelope read(ByteBuffer in) {
+        if (in.remaining() < 4) {
+            throw new RuntimeException("Envelope is truncated.");
+        }
+
+        if (in.get() != Envelope.VERSION) {
+            throw new RuntimeException("Unsupported envelope version.");
+        }
+
+        byte algorithm = in.get();
+        byte kdfId = in.get();
+        byte[] kdfParameters = new byte[in.get() & 0xFF];
+        if (in.remaining() < kdfParameters.length + 1) {
+            throw new RuntimeException("Envelope is truncated.");
+        }
+        in.get(kdfParameters);
+
+        byte[] salt = new byte[in.get() & 0xFF];
+        if (in.remaining() < salt.length + Envelope.IV_LENGTH) {
+            throw new RuntimeException("Envelope is truncated.");
+        }
+        in.get(salt);
+        byte[] iv = new byte[Envelope.IV_LENGTH];
+        in.get(iv);
+        return new Envelope(algorithm, kdfId, kdfParameters, salt, iv);
+    }
+
+    /**
+     * @return The envelope size for the given cipher text length
+     */
+    int size(int cipherLength) {
+        return 5 + this.kdfParameters.length + this.salt.length + Envelope.IV_LENGTH + cipherLength;
+    }
+
+    void write(ByteBuffer out) {
+        out.put(Envelope.VERSION);
+        out.put(this.algorithm);
+        out.put(this.kdfId);
+        out.put((byte) this.kdfParameters.length);
+        out.put(this.kdfParameters);
+        out.put((byte) this.salt.length);
+        out.put(this.salt);
+        out.put(this.iv);
+    }
+
+    byte getAlgorithm() {
+        return this.algorithm;
+    }
+
+    byte getKdfId() {
+        return this.kdfId;
+    }
+
+    byte[] getKdfParameters() {
+        return this.kdfParameters;
+    }
+
+    byte[] getSalt() {
+        return this.salt;
+    }
+
+    byte[] getIv() {
+        return this.iv;
+    }
+}
@@ -0,0 +1,81 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * HKDF (RFC 5869) using HMAC-SHA256. The password is used as the input keying
+ * material and must already be high entropy, there is no work factor.
+ */
+class HkdfKdf implements Kdf {
+    static final byte ID = 0x02;
+
+    private static final String MAC = "HmacSHA256";
+    private static final int HASH_LENGTH = 32;
+    private static final byte[] NO_PARAMETERS = new byte[0];
+
+    @Override
+    public byte getId() {
+        return HkdfKdf.ID;
+    }
+
+    @Override
+    public byte[] getParameters() {
+        return HkdfKdf.NO_PARAMETERS;
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return "HKDF-SHA256";
+    }
+
+    @Override
+    public SecretKey derive(char[] password, byte[] salt, int keySize) {
+        // null is treated as empty, the same as PBEKeySpec
+        ByteBuffer encoded = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password == null ? new char[0] : password));
+        byte[] ikm = new byte[encoded.remaining()];
+        encoded.get(ikm);
+        Arrays.fill(encoded.array(), (byte) 0x00);
+
+        try {
+            return new SecretKeySpec(this.derive(ikm, salt, ("AES-" + keySize).getBytes(StandardCharsets.UTF_8),
+                    keySize / 8), "AES");
+        } finally {
+            Arrays.fill(ikm, (byte) 0x00);
+        }
+    }
+
+    byte[] derive(byte[] ikm, byte[] salt, byte[] info, int length) {
+        try {
+            Mac mac = Mac.getInstance(HkdfKdf.MAC);
+            mac.init(new SecretKeySpec(salt.length == 0 ? new byte[HkdfKdf.HASH_LENGTH] : salt, HkdfKdf.MAC));
+            byte[] prk = mac.doFinal(ikm);
+
+            mac.init(new SecretKeySpec(prk, HkdfKdf.MAC));
+            Arrays.fill(prk, (byte) 0x00);
+
+            byte[] okm = new byte[length];
+            byte[] block = new byte[0];
+            for (int offset = 0, i = 1; offset < length; i++) {
+                mac.update(block);
+                mac.update(info);
+                mac.update((byte) i);
+                block = mac.doFinal();
+                int count = Math.min(block.length, length - offset);
+                System.arraycopy(block, 0, okm, offset, count);
+                offset += count;
+            }
+            Arrays.fill(block, (byte) 0x00);
+            return okm;
+        } catch (GeneralSecurityException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+}
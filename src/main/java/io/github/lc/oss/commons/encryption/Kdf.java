@@ -0,0 +1,33 @@
+package io.github.lc.oss.commons.encryption;
+
+import javax.crypto.SecretKey;
+
+/**
+ * Key derivation function used to turn a password and salt into an AES key.
+ * <br/>
+ * <br />
+ * The identifier and parameters are recorded alongside encrypted values so
+ * they can be decrypted without knowing which function was used to encrypt
+ * them. See {@linkplain Kdfs} for the built in functions.
+ */
+public interface Kdf {
+    /**
+     * @return The identifier recorded in encrypted values
+     */
+    byte getId();
+
+    /**
+     * @return The parameters recorded in encrypted values, never null
+     */
+    byte[] getParameters();
+
+    /**
+     * @return The name of the underlying algorithm
+     */
+    String getAlgorithm();
+
+    /**
+     * @param keySize The key size in bits
+     */
+    SecretKey derive(char[] password, byte[] salt, int keySize);
+}
@@ -0,0 +1,116 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import javax.crypto.SecretKey;
+
+import io.github.lc.oss.commons.util.TypedEnumCache;
+
+/**
+ * Built in {@linkplain Kdf} implementations.
+ * <ul>
+ * <li>PBKDF2 - PBKDF2 with HMAC-SHA512 and 101113 iterations (the default),
+ * use {@linkplain #pbkdf2(int)} for a different iteration count</li>
+ * <li>HKDF_SHA256 - HKDF with HMAC-SHA256, only for passwords that are already
+ * high entropy keys such as those generated by the ephemeral ciphers</li>
+ * <li>RAW - the password is the Base64 encoded AES key itself</li>
+ * </ul>
+ */
+public enum Kdfs implements Kdf {
+    PBKDF2(new Pbkdf2Kdf(Pbkdf2Kdf.DEFAULT_HASH, Pbkdf2Kdf.DEFAULT_ITERATIONS)),
+    HKDF_SHA256(new HkdfKdf()),
+    RAW(new RawKdf());
+
+    private static final TypedEnumCache<Kdfs, Kdfs> CACHE = new TypedEnumCache<>(Kdfs.class, false);
+
+    public static final Set<Kdfs> all() {
+        return Kdfs.CACHE.values();
+    }
+
+    public static Kdfs byName(String name) {
+        return Kdfs.CACHE.byName(name);
+    }
+
+    public static boolean hasName(String name) {
+        return Kdfs.CACHE.hasName(name);
+    }
+
+    public static Kdfs tryParse(String name) {
+        return Kdfs.CACHE.tryParse(name);
+    }
+
+    /**
+     * PBKDF2 with HMAC-SHA512 and the given number of iterations.
+     */
+    public static Kdf pbkdf2(int iterations) {
+        return new Pbkdf2Kdf(Pbkdf2Kdf.DEFAULT_HASH, iterations);
+    }
+
+    /**
+     * @return <code>id || parameters</code>
+     */
+    static byte[] encode(Kdf kdf) {
+        byte[] parameters = kdf.getParameters();
+        byte[] encoded = new byte[parameters.length + 1];
+        encoded[0] = kdf.getId();
+        System.arraycopy(parameters, 0, encoded, 1, parameters.length);
+        return encoded;
+    }
+
+    /**
+     * Inverse of {@linkplain #encode(Kdf)}.
+     */
+    static Kdf decode(byte[] encoded) {
+        if (encoded.length < 1) {
+            throw new RuntimeException("Invalid key derivation parameters.");
+        }
+        return Kdfs.decode(encoded[0], Arrays.copyOfRange(encoded, 1, encoded.length));
+    }
+
+    static Kdf decode(byte id, byte[] parameters) {
+        switch (id) {
+            case Pbkdf2Kdf.ID:
+                return Kdfs.pbkdf2(Pbkdf2Kdf.parseIterations(parameters));
+            case HkdfKdf.ID:
+                return Kdfs.HKDF_SHA256;
+            case RawKdf.ID:
+                return Kdfs.RAW;
+            default:
+                throw new RuntimeException("Unsupported key derivation function.");
+        }
+    }
+
+    /**
+     * @return true if both functions are recorded identically in encrypted values
+     */
+    static boolean isSame(Kdf a, Kdf b) {
+        return a.getId() == b.getId() && Arrays.equals(a.getParameters(), b.getParameters());
+    }
+
+    private final Kdf kdf;
+
+    private Kdfs(Kdf kdf) {
+        this.kdf = kdf;
+    }
+
+    @Override
+    public byte getId() {
+        return this.kdf.getId();
+    }
+
+    @Override
+    public byte[] getParameters() {
+        return this.kdf.getParameters();
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return this.kdf.getAlgorithm();
+    }
+
+    @Override
+    public SecretKey derive(char[] password, byte[] salt, int keySize) {
+        return this.kdf.derive(password, salt, keySize);
+    }
+}
@@ -0,0 +1,214 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import io.github.lc.oss.commons.encoding.Encodings;
+
+/**
+ * A bounded, time limited cache of derived encryption keys.<br/>
+ * <br />
+ * Entries are identified by a SHA-256 hash of the password, salt, key
+ * derivation function, its parameters and the key size so the password itself
+ * is never retained. The least recently used entry is evicted once the cache is
+ * full and entries older than the configured TTL are discarded. Key material is
+ * overwritten with zeros whenever an entry leaves the cache.<br/>
+ * <br />
+ * WARNING: Caching derived keys trades the brute force resistance of the key
+ * derivation function for speed for as long as the key remains cached. Only
+ * enable this for passwords that are used repeatedly.
+ */
+public class KeyCache {
+    private static final String ID_HASH = "SHA-256";
+
+    private static class Entry {
+        private final byte[] key;
+        private final String algorithm;
+        private final long expires;
+
+        public Entry(SecretKey key, long ttl) {
+            this.key = key.getEncoded();
+            this.algorithm = key.getAlgorithm();
+            this.expires = System.currentTimeMillis() + ttl;
+        }
+
+        public boolean isExpired(long now) {
+            return now >= this.expires;
+        }
+
+        public SecretKey toKey() {
+            return new SecretKeySpec(this.key, this.algorithm);
+        }
+
+        public void zero() {
+            Arrays.fill(this.key, (byte) 0x00);
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttl;
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a cache holding at most 256 keys for up to 5 minutes each.
+     */
+    public KeyCache() {
+        this(256, 5l * 60l * 1000l);
+    }
+
+    /**
+     * @param maxEntries Maximum number of keys to retain, must be positive
+     * @param ttl        Maximum time in milliseconds a key is retained, must be
+     *                   positive
+     */
+    public KeyCache(int maxEntries, long ttl) {
+        if (maxEntries < 1) {
+            throw new RuntimeException("Max entries must be positive");
+        }
+        if (ttl < 1) {
+            throw new RuntimeException("TTL must be positive");
+        }
+
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (this.size() > KeyCache.this.maxEntries) {
+                    KeyCache.this.evict(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached key for the given parameters or derives, caches and
+     * returns a new one if no valid entry exists.
+     */
+    SecretKey get(Kdf kdf, char[] password, byte[] salt, int keySize, Supplier<SecretKey> derive) {
+        String id = this.id(kdf, password, salt, keySize);
+        synchronized (this.entries) {
+            Entry entry = this.entries.get(id);
+            if (entry != null) {
+                if (!entry.isExpired(System.currentTimeMillis())) {
+                    this.hits.incrementAndGet();
+                    return entry.toKey();
+                }
+                this.entries.remove(id);
+                this.evict(entry);
+            }
+        }
+
+        this.misses.incrementAndGet();
+        SecretKey key = derive.get();
+
+        Entry entry = new Entry(key, this.ttl);
+        synchronized (this.entries) {
+            this.removeExpired();
+            Entry previous = this.entries.put(id, entry);
+            if (previous != null) {
+                previous.zero();
+            }
+        }
+        return key;
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    public long getEvictions() {
+        return this.evictions.get();
+    }
+
+    public int size() {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    /**
+     * Removes and zeros all cached keys.
+     */
+    public void clear() {
+        synchronized (this.entries) {
+            this.entries.values().forEach(e -> this.evict(e));
+            this.entries.clear();
+        }
+    }
+
+    private void removeExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> i = this.entries.values().iterator();
+        while (i.hasNext()) {
+            Entry e = i.next();
+            if (e.isExpired(now)) {
+                i.remove();
+                this.evict(e);
+            }
+        }
+    }
+
+    private void evict(Entry entry) {
+        entry.zero();
+        this.evictions.incrementAndGet();
+    }
+
+    private String id(Kdf kdf, char[] password, byte[] salt, int keySize) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance(KeyCache.ID_HASH);
+            byte[] algorithm = kdf.getAlgorithm().getBytes(StandardCharsets.UTF_8);
+            byte[] parameters = Kdfs.encode(kdf);
+            digest.update(this.toBytes(algorithm.length));
+            digest.update(algorithm);
+            digest.update(this.toBytes(parameters.length));
+            digest.update(parameters);
+            digest.update(this.toBytes(keySize));
+            digest.update(this.toBytes(salt.length));
+            digest.update(salt);
+
+            byte[] chars = new byte[password.length * 2];
+            for (int i = 0; i < password.length; i++) {
+                chars[i * 2] = (byte) (password[i] >> 8);
+                chars[i * 2 + 1] = (byte) password[i];
+            }
+            digest.update(chars);
+            Arrays.fill(chars, (byte) 0x00);
+
+            return Encodings.Base64.encode(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private byte[] toBytes(int value) {
+        return new byte[] { //
+                (byte) (value >> 24), //
+                (byte) (value >> 16), //
+                (byte) (value >> 8), //
+                (byte) value //
+        };
+    }
+}
@@ -0,0 +1,22 @@
+package io.github.lc.oss.commons.encryption;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("io.github.lc.oss.commons.encryption.DeriveKey")
+@Label("Derive Key")
+@Description("A key derived from a password, cached keys are not derived")
+@Category({ "Encryption" })
+@Enabled(false)
+@StackTrace(false)
+class KeyDerivationEvent extends jdk.jfr.Event {
+    @Label("Key Derivation Function")
+    String kdf;
+
+    @Label("Key Size")
+    int keySize;
+}
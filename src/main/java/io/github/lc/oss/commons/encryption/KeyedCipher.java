@@ -0,0 +1,213 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A {@linkplain Cipher} that also supports keys derived ahead of time,
+ * associated data, ByteBuffers and the binary envelope format. Implemented by
+ * {@linkplain AbstractAES} and {@linkplain Ciphers}.
+ */
+public interface KeyedCipher extends Cipher {
+    /**
+     * Derives a key from the password using a random salt. The returned key may be
+     * reused for any number of encrypt and decrypt operations.
+     */
+    DerivedKey deriveKey(char[] password);
+
+    DerivedKey deriveKey(char[] password, byte[] salt);
+
+    /**
+     * Derives a key using the given key derivation function and a random salt.
+     * The function is recorded in values encrypted with the key so they can be
+     * decrypted with the password alone.
+     */
+    DerivedKey deriveKey(char[] password, Kdf kdf);
+
+    DerivedKey deriveKey(char[] password, byte[] salt, Kdf kdf);
+
+    /**
+     * Derives the key an encrypted value was encrypted with, using the salt and
+     * key derivation function recorded in it.
+     */
+    DerivedKey deriveKey(String data, char[] password);
+
+    /**
+     * @return Identifies the key derivation function, its parameters and the
+     *         salt recorded in an encrypted value without deriving the key.
+     *         Values with the same ID are decrypted using the same
+     *         {@linkplain DerivedKey}.
+     */
+    String getKeyId(String data);
+
+    String encrypt(String data, DerivedKey key);
+
+    String encrypt(byte[] data, DerivedKey key);
+
+    byte[] encrypt(byte[] data, DerivedKey key, byte[] iv);
+
+    String decryptString(String data, DerivedKey key);
+
+    byte[] decrypt(String data, DerivedKey key);
+
+    byte[] decrypt(String data, int offset, DerivedKey key);
+
+    byte[] decrypt(byte[] data, DerivedKey key, byte[] iv);
+
+    /**
+     * Encrypts the data and authenticates the associated data along with it, for
+     * example to bind the value to a record ID. The associated data is not part
+     * of the result, decryption requires the same bytes.
+     */
+    String encrypt(byte[] data, byte[] aad, char[] password);
+
+    String encrypt(byte[] data, byte[] aad, DerivedKey key);
+
+    /**
+     * Decrypts a value encrypted with associated data, fails if
+     * <code>aad</code> does not match.
+     */
+    byte[] decrypt(String data, byte[] aad, char[] password);
+
+    byte[] decrypt(String data, int offset, byte[] aad, char[] password);
+
+    byte[] decrypt(String data, byte[] aad, DerivedKey key);
+
+    byte[] decrypt(String data, int offset, byte[] aad, DerivedKey key);
+
+    /**
+     * Variant of {@linkplain #encrypt(ByteBuffer, ByteBuffer, DerivedKey, byte[])}
+     * authenticating the remaining bytes of <code>aad</code>, its position is
+     * not changed.
+     */
+    int encrypt(ByteBuffer data, ByteBuffer out, ByteBuffer aad, DerivedKey key, byte[] iv);
+
+    int decrypt(ByteBuffer data, ByteBuffer out, ByteBuffer aad, DerivedKey key, byte[] iv);
+
+    /**
+     * @return The number of bytes needed to hold the result of encrypting
+     *         <code>length</code> bytes using the ByteBuffer methods
+     */
+    int getEncryptedSize(int length);
+
+    /**
+     * @return The number of bytes needed to hold the result of decrypting
+     *         <code>length</code> bytes using the ByteBuffer methods
+     */
+    int getDecryptedSize(int length);
+
+    /**
+     * Encrypts the remaining bytes of <code>data</code> into <code>out</code>.
+     * Direct buffers are supported. To operate in place pass the same buffer for
+     * both, it must have room for {@linkplain #getEncryptedSize(int)} bytes.
+     *
+     * @return The number of bytes written to <code>out</code>
+     */
+    int encrypt(ByteBuffer data, ByteBuffer out, char[] password, byte[] salt, byte[] iv);
+
+    int encrypt(ByteBuffer data, ByteBuffer out, DerivedKey key, byte[] iv);
+
+    /**
+     * Decrypts the remaining bytes of <code>data</code> into <code>out</code>.
+     * Direct buffers are supported. To operate in place pass the same buffer for
+     * both.
+     *
+     * @return The number of bytes written to <code>out</code>
+     */
+    int decrypt(ByteBuffer data, ByteBuffer out, char[] password, byte[] salt, byte[] iv);
+
+    int decrypt(ByteBuffer data, ByteBuffer out, DerivedKey key, byte[] iv);
+
+    /**
+     * Encrypts the data into a Base64 encoded binary envelope. The result is
+     * smaller and cheaper to parse than the default format and is accepted by
+     * {@linkplain #decrypt(String, char[])}.
+     */
+    String encryptCompact(byte[] data, char[] password);
+
+    String encryptCompact(byte[] data, DerivedKey key);
+
+    /**
+     * Encrypts the data into a binary envelope holding everything needed to
+     * decrypt it except the password.
+     */
+    byte[] encryptEnvelope(byte[] data, char[] password);
+
+    byte[] encryptEnvelope(byte[] data, DerivedKey key);
+
+    /**
+     * @return The number of bytes needed to hold the envelope for
+     *         <code>length</code> bytes of data encrypted with the key
+     */
+    int getEnvelopeSize(int length, DerivedKey key);
+
+    /**
+     * Encrypts the remaining bytes of <code>data</code> into an envelope written
+     * to <code>out</code>. In place operation is not supported.
+     *
+     * @return The number of bytes written to <code>out</code>
+     */
+    int encryptEnvelope(ByteBuffer data, ByteBuffer out, DerivedKey key);
+
+    byte[] decryptEnvelope(byte[] envelope, char[] password);
+
+    byte[] decryptEnvelope(byte[] envelope, DerivedKey key);
+
+    /**
+     * Decrypts the remaining bytes of <code>envelope</code> into <code>out</code>
+     * which needs at most {@linkplain #getDecryptedSize(int)} bytes of room.
+     *
+     * @return The number of bytes written to <code>out</code>
+     */
+    int decryptEnvelope(ByteBuffer envelope, ByteBuffer out, char[] password);
+
+    int decryptEnvelope(ByteBuffer envelope, ByteBuffer out, DerivedKey key);
+
+    /**
+     * Encrypts each value into its own envelope (see
+     * {@linkplain #encryptEnvelope(byte[], char[])}). The key is derived once for
+     * the whole batch, each value gets a unique IV.
+     *
+     * @return The envelopes in the same order as the values
+     */
+    List<byte[]> encryptAll(List<byte[]> data, char[] password);
+
+    List<byte[]> encryptAll(List<byte[]> data, DerivedKey key);
+
+    /**
+     * Lazy variant of {@linkplain #encryptAll(List, char[])}, values are
+     * encrypted as they are consumed.
+     */
+    Iterator<byte[]> encryptAll(Iterator<byte[]> data, char[] password);
+
+    Iterator<byte[]> encryptAll(Iterator<byte[]> data, DerivedKey key);
+
+    /**
+     * Lazy variant of {@linkplain #encryptAll(List, char[])}. The returned stream
+     * is sequential, closing it closes <code>data</code>.
+     */
+    Stream<byte[]> encryptAll(Stream<byte[]> data, char[] password);
+
+    Stream<byte[]> encryptAll(Stream<byte[]> data, DerivedKey key);
+
+    /**
+     * Decrypts envelopes created by any of the envelope methods. Consecutive
+     * envelopes sharing a salt, such as those from a single
+     * {@linkplain #encryptAll(List, char[])} call, share one key derivation.
+     *
+     * @return The decrypted values in the same order as the envelopes
+     */
+    List<byte[]> decryptAll(List<byte[]> envelopes, char[] password);
+
+    List<byte[]> decryptAll(List<byte[]> envelopes, DerivedKey key);
+
+    Iterator<byte[]> decryptAll(Iterator<byte[]> envelopes, char[] password);
+
+    Iterator<byte[]> decryptAll(Iterator<byte[]> envelopes, DerivedKey key);
+
+    Stream<byte[]> decryptAll(Stream<byte[]> envelopes, char[] password);
+
+    Stream<byte[]> decryptAll(Stream<byte[]> envelopes, DerivedKey key);
+}
@@ -0,0 +1,74 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock free histogram of durations in power of two nanosecond buckets.
+ * Recording is a couple of atomic increments, percentiles are accurate to
+ * within a factor of two which is enough to tell microseconds from
+ * milliseconds.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(LatencyHistogram.BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        this.buckets.incrementAndGet(LatencyHistogram.BUCKETS - Long.numberOfLeadingZeros(value));
+        this.count.increment();
+        this.total.add(value);
+    }
+
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    public long getTotalNanos() {
+        return this.total.sum();
+    }
+
+    public double getMeanNanos() {
+        long count = this.getCount();
+        return count == 0 ? 0 : (double) this.getTotalNanos() / count;
+    }
+
+    /**
+     * @param percentile Between 0 and 100
+     * @return The upper bound of the bucket holding the percentile, 0 if nothing
+     *         has been recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new RuntimeException("Percentile must be between 0 and 100");
+        }
+
+        long[] counts = new long[LatencyHistogram.BUCKETS];
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = this.buckets.get(i);
+            count += counts[i];
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i == 0 ? 0 : (1L << i) - 1;
+            }
+        }
+        return 0;
+    }
+
+    public void reset() {
+        for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+            this.buckets.set(i, 0);
+        }
+        this.count.reset();
+        this.total.reset();
+    }
+}
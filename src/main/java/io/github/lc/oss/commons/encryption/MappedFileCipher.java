@@ -0,0 +1,251 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+
+/**
+ * Encrypts and decrypts files without copying them onto the heap.<br/>
+ * <br />
+ * Input and output are memory mapped one window of segments at a time and
+ * every segment is processed directly between the mapped buffers. Files may be
+ * larger than 2 GB. The format is the one written by
+ * {@linkplain StreamingCipher} and {@linkplain ChunkedCipher} (see
+ * {@linkplain Segments}), values written by any of them can be read by the
+ * others.<br/>
+ * <br />
+ * The channel methods always process the whole input channel, regardless of
+ * its position, and replace the content of the output channel which must be
+ * opened for reading and writing. If an operation fails the output is
+ * incomplete and must be discarded.
+ */
+public class MappedFileCipher {
+    /*
+     * Plain text bytes mapped at once, large enough that the mapping cost is
+     * negligible
+     */
+    private static final long WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final KeyedCipher cipher;
+    private final int segmentSize;
+    private final SyncPolicy syncPolicy;
+    private final long windowSize;
+
+    /**
+     * Creates an instance using {@linkplain Ciphers#AES256}, 64 KiB segments and
+     * {@linkplain SyncPolicy#ON_COMPLETE}.
+     */
+    public MappedFileCipher() {
+        this(Ciphers.AES256);
+    }
+
+    public MappedFileCipher(KeyedCipher cipher) {
+        this(cipher, Segments.DEFAULT_SEGMENT_SIZE);
+    }
+
+    public MappedFileCipher(KeyedCipher cipher, int segmentSize) {
+        this(cipher, segmentSize, SyncPolicy.ON_COMPLETE);
+    }
+
+    /**
+     * @param cipher      The cipher used to derive keys from passwords
+     * @param segmentSize Number of plain text bytes per segment
+     * @param syncPolicy  When the output is forced to storage
+     */
+    public MappedFileCipher(KeyedCipher cipher, int segmentSize, SyncPolicy syncPolicy) {
+        this(cipher, segmentSize, syncPolicy, MappedFileCipher.WINDOW_SIZE);
+    }
+
+    MappedFileCipher(KeyedCipher cipher, int segmentSize, SyncPolicy syncPolicy, long windowSize) {
+        Segments.validate(segmentSize);
+        if (syncPolicy == null) {
+            throw new RuntimeException("Sync policy is required");
+        }
+
+        this.cipher = cipher;
+        this.segmentSize = segmentSize;
+        this.syncPolicy = syncPolicy;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * @return The number of plain text bytes encrypted
+     */
+    public long encrypt(Path in, Path out, char[] password) {
+        return this.encrypt(in, out, this.cipher.deriveKey(password));
+    }
+
+    /**
+     * @return The number of plain text bytes encrypted
+     */
+    public long encrypt(Path in, Path out, DerivedKey key) {
+        try (FileChannel input = FileChannel.open(in, StandardOpenOption.READ);
+                FileChannel output = this.open(out)) {
+            return this.encrypt(input, output, key);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * @return The number of plain text bytes encrypted
+     */
+    public long encrypt(FileChannel in, FileChannel out, DerivedKey key) {
+        Segments.Header header = Segments.Header.create(key.getKdf(), key.salt(), this.segmentSize,
+                Segments.getRandomProvider(this.cipher));
+        try {
+            long length = in.size();
+            long segments = Segments.getSegmentCount(length, this.segmentSize);
+
+            out.truncate(0);
+            Segments.writeFully(out.position(0), ByteBuffer.wrap(header.getEncoded()));
+
+            this.process(in, out, true, header, segments, length, key);
+            return length;
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * @return The number of plain text bytes decrypted
+     */
+    public long decrypt(Path in, Path out, char[] password) {
+        try (FileChannel input = FileChannel.open(in, StandardOpenOption.READ);
+                FileChannel output = this.open(out)) {
+            return this.decrypt(input, output, password);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * @return The number of plain text bytes decrypted
+     */
+    public long decrypt(Path in, Path out, DerivedKey key) {
+        try (FileChannel input = FileChannel.open(in, StandardOpenOption.READ);
+                FileChannel output = this.open(out)) {
+            return this.decrypt(input, output, key);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * The key is derived using the salt and key derivation function recorded in
+     * the file.
+     *
+     * @return The number of plain text bytes decrypted
+     */
+    public long decrypt(FileChannel in, FileChannel out, char[] password) {
+        Segments.Header header = this.readHeader(in);
+        return this.decrypt(in, out, header, Segments.deriveKey(this.cipher, password, header));
+    }
+
+    /**
+     * @return The number of plain text bytes decrypted
+     */
+    public long decrypt(FileChannel in, FileChannel out, DerivedKey key) {
+        Segments.Header header = this.readHeader(in);
+        header.verify(key);
+        return this.decrypt(in, out, header, key);
+    }
+
+    private long decrypt(FileChannel in, FileChannel out, Segments.Header header, DerivedKey key) {
+        try {
+            long body = in.size() - header.length();
+            long segments = header.getSegmentCount(body);
+            long length = body - segments * Segments.TAG_LENGTH;
+
+            out.truncate(0);
+            this.process(in, out, false, header, segments, length, key);
+            return length;
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Maps both files one window at a time and processes the window's segments
+     * in order. Mapping the output for writing grows the file to the end of the
+     * window. Windows are released as soon as they have been written, with
+     * {@linkplain SyncPolicy#ON_COMPLETE} their pages are written back by a single
+     * sync of the output file.
+     *
+     * @param length Plain text length
+     */
+    private void process(FileChannel in, FileChannel out, boolean encrypt, Segments.Header header, long segments,
+            long length, DerivedKey key) throws IOException {
+        int plainSize = header.getSegmentSize();
+        int encryptedSize = plainSize + Segments.TAG_LENGTH;
+        long windowSegments = Math.max(1, this.windowSize / plainSize);
+
+        CipherProvider provider = Segments.getCipherProvider(this.cipher);
+        MetricsListener listener = Segments.getMetricsListener(this.cipher);
+        javax.crypto.Cipher engine = null;
+        try {
+            engine = provider.acquire(Segments.ALGORITHM);
+            for (long first = 0; first < segments; first += windowSegments) {
+                long count = Math.min(windowSegments, segments - first);
+                long plainStart = first * plainSize;
+                long plainLength = Math.min(count * plainSize, length - plainStart);
+                long encryptedStart = header.length() + first * encryptedSize;
+                long encryptedLength = plainLength + count * Segments.TAG_LENGTH;
+
+                ByteBuffer source;
+                MappedByteBuffer target;
+                if (encrypt) {
+                    source = in.map(FileChannel.MapMode.READ_ONLY, plainStart, plainLength);
+                    target = out.map(FileChannel.MapMode.READ_WRITE, encryptedStart, encryptedLength);
+                } else {
+                    source = in.map(FileChannel.MapMode.READ_ONLY, encryptedStart, encryptedLength);
+                    target = out.map(FileChannel.MapMode.READ_WRITE, plainStart, plainLength);
+                }
+
+                int sourceSize = encrypt ? plainSize : encryptedSize;
+                for (long i = 0; i < count; i++) {
+                    long index = first + i;
+                    ByteBuffer segment = source.duplicate();
+                    segment.position((int) (i * sourceSize));
+                    segment.limit((int) Math.min(segment.position() + (long) sourceSize, source.limit()));
+
+                    header.init(engine, encrypt, key.getKey(), index, index == segments - 1);
+                    Segments.doFinal(engine, encrypt, segment, target, listener);
+                }
+
+                if (this.syncPolicy == SyncPolicy.PER_WINDOW) {
+                    target.force();
+                }
+            }
+        } catch (GeneralSecurityException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            if (engine != null) {
+                provider.release(engine);
+            }
+        }
+
+        if (this.syncPolicy != SyncPolicy.NONE) {
+            // data written through the mappings (shared with the page cache), header and file metadata
+            out.force(true);
+        }
+    }
+
+    private Segments.Header readHeader(FileChannel in) {
+        try {
+            return Segments.Header.read(in.position(0));
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private FileChannel open(Path out) throws IOException {
+        // mapping for writing requires read access
+        return FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+}
@@ -0,0 +1,21 @@
+package io.github.lc.oss.commons.encryption;
+
+/**
+ * Key encryption key used by {@linkplain DataKeyCipher} to protect data keys
+ * at rest. See {@linkplain PasswordMasterKey} and
+ * {@linkplain io.github.lc.oss.commons.encryption.ephemeral.EphemeralMasterKey}.
+ */
+public interface MasterKey {
+    /**
+     * @param aad Associated data that must be passed to
+     *            {@linkplain #unwrap(String, byte[])}
+     * @return The encrypted key
+     */
+    String wrap(byte[] key, byte[] aad);
+
+    /**
+     * Inverse of {@linkplain #wrap(byte[], byte[])}, fails if the associated
+     * data does not match.
+     */
+    byte[] unwrap(String wrapped, byte[] aad);
+}
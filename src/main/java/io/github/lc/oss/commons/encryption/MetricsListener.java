@@ -0,0 +1,60 @@
+package io.github.lc.oss.commons.encryption;
+
+/**
+ * Receives timings and counts from the hot paths of the ciphers, see
+ * {@linkplain CipherMetrics} for a ready made implementation. Every method
+ * does nothing by default so implementations only override what they
+ * need.<br/>
+ * <br />
+ * Listeners are called synchronously by the thread doing the work and must be
+ * safe for use by multiple threads and cheap, anything slow belongs on another
+ * thread. When no listener is set nothing is timed or reported.
+ */
+public interface MetricsListener {
+    /**
+     * A key was derived from a password, cache misses included.
+     */
+    default void onKeyDerived(Kdf kdf, long nanos) {
+    }
+
+    /**
+     * A {@linkplain KeyCache} was consulted for a key.
+     */
+    default void onKeyCache(boolean hit) {
+    }
+
+    /**
+     * One operation of the cipher, the segmented ciphers report every segment.
+     *
+     * @param bytes The number of input bytes
+     */
+    default void onCipher(boolean encrypt, long bytes, long nanos) {
+    }
+
+    /**
+     * @param bytes The number of binary bytes encoded
+     */
+    default void onEncode(long bytes, long nanos) {
+    }
+
+    /**
+     * @param bytes The number of binary bytes decoded
+     */
+    default void onDecode(long bytes, long nanos) {
+    }
+
+    /**
+     * An ephemeral cipher started encrypting with a new key.
+     */
+    default void onKeyRotated() {
+    }
+
+    /**
+     * An ephemeral cipher discarded a key past its decryption TTL.
+     */
+    default void onKeyPurged() {
+    }
+
+    default void onDecryptFailure(DecryptFailure cause) {
+    }
+}
@@ -0,0 +1,18 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.security.GeneralSecurityException;
+
+/**
+ * Creates a new engine for every operation.
+ */
+class NewInstanceCipherProvider implements CipherProvider {
+    @Override
+    public javax.crypto.Cipher acquire(String transformation) throws GeneralSecurityException {
+        return javax.crypto.Cipher.getInstance(transformation);
+    }
+
+    @Override
+    public void release(javax.crypto.Cipher cipher) {
+        // nothing to do
+    }
+}
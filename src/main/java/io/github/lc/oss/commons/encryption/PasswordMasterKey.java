@@ -0,0 +1,42 @@
+package io.github.lc.oss.commons.encryption;
+
+/**
+ * {@linkplain MasterKey} derived from a password.<br/>
+ * <br />
+ * The key is derived once per instance for wrapping. Unwrapping derives the
+ * key from the salt recorded in the wrapped value, which happens only when a
+ * data key is not cached (see {@linkplain Ciphers#setKeyCache(KeyCache)} to
+ * avoid repeating it).
+ */
+public class PasswordMasterKey implements MasterKey {
+    private final KeyedCipher cipher;
+    private final char[] password;
+    private final DerivedKey key;
+
+    /**
+     * Uses {@linkplain Ciphers#AES256}.
+     */
+    public PasswordMasterKey(char[] password) {
+        this(Ciphers.AES256, password);
+    }
+
+    public PasswordMasterKey(KeyedCipher cipher, char[] password) {
+        if (password == null || password.length < 1) {
+            throw new RuntimeException("Password is required");
+        }
+
+        this.cipher = cipher;
+        this.password = password.clone();
+        this.key = cipher.deriveKey(this.password);
+    }
+
+    @Override
+    public String wrap(byte[] key, byte[] aad) {
+        return this.cipher.encrypt(key, aad, this.key);
+    }
+
+    @Override
+    public byte[] unwrap(String wrapped, byte[] aad) {
+        return this.cipher.decrypt(wrapped, aad, this.password);
+    }
+}
@@ -0,0 +1,78 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.InvalidKeySpecException;
+
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * PBKDF2, the parameters are the iteration count. The hash is not recorded, it
+ * is supplied by the decrypting cipher. Iteration counts read from encrypted
+ * values are untrusted and limited to {@linkplain #MAX_ITERATIONS}, configured
+ * counts are not.
+ */
+class Pbkdf2Kdf implements Kdf {
+    static final byte ID = 0x01;
+    static final String DEFAULT_HASH = "PBKDF2WithHmacSHA512";
+    static final int DEFAULT_ITERATIONS = 101113;
+    static final int MAX_ITERATIONS = 1000000;
+
+    private final String hash;
+    private final int iterations;
+
+    Pbkdf2Kdf(String hash, int iterations) {
+        if (iterations < 1) {
+            throw new RuntimeException("Iterations must be positive");
+        }
+
+        this.hash = hash;
+        this.iterations = iterations;
+    }
+
+    static int parseIterations(byte[] parameters) {
+        if (parameters.length != 4) {
+            throw new RuntimeException("Invalid key derivation parameters.");
+        }
+        int iterations = ByteBuffer.wrap(parameters).getInt();
+        if (iterations > Pbkdf2Kdf.MAX_ITERATIONS) {
+            throw new RuntimeException("Iterations must not exceed " + Pbkdf2Kdf.MAX_ITERATIONS);
+        }
+        return iterations;
+    }
+
+    @Override
+    public byte getId() {
+        return Pbkdf2Kdf.ID;
+    }
+
+    @Override
+    public byte[] getParameters() {
+        return ByteBuffer.allocate(4).putInt(this.iterations).array();
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return this.hash;
+    }
+
+    @Override
+    public SecretKey derive(char[] password, byte[] salt, int keySize) {
+        PBEKeySpec spec = null;
+        try {
+            SecretKeyFactory factory = SecretKeyFactory.getInstance(this.hash);
+            spec = new PBEKeySpec(password, salt, this.iterations, keySize);
+            SecretKey tmp = factory.generateSecret(spec);
+            return new SecretKeySpec(tmp.getEncoded(), "AES");
+        } catch (InvalidKeySpecException | NoSuchAlgorithmException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            if (spec != null) {
+                spec.clearPassword();
+            }
+        }
+    }
+}
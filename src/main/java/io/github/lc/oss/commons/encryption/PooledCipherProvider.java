@@ -0,0 +1,71 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.security.GeneralSecurityException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps a bounded number of idle engines per transformation shared by all
+ * threads. Acquiring never blocks, if no idle engine is available a new one is
+ * created and released engines beyond the bound are discarded. Safe for use
+ * with virtual threads.
+ */
+public class PooledCipherProvider implements CipherProvider {
+    private static class Pool {
+        private final Queue<javax.crypto.Cipher> idle = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+    }
+
+    private final int maxIdle;
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a pool holding up to twice the number of available processors idle
+     * engines per transformation.
+     */
+    public PooledCipherProvider() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * @param maxIdle Maximum number of idle engines to retain per transformation,
+     *                must be positive
+     */
+    public PooledCipherProvider(int maxIdle) {
+        if (maxIdle < 1) {
+            throw new RuntimeException("Max idle must be positive");
+        }
+        this.maxIdle = maxIdle;
+    }
+
+    @Override
+    public javax.crypto.Cipher acquire(String transformation) throws GeneralSecurityException {
+        Pool pool = this.pools.get(transformation);
+        if (pool != null) {
+            javax.crypto.Cipher cipher = pool.idle.poll();
+            if (cipher != null) {
+                pool.size.decrementAndGet();
+                return cipher;
+            }
+        }
+        return javax.crypto.Cipher.getInstance(transformation);
+    }
+
+    @Override
+    public void release(javax.crypto.Cipher cipher) {
+        Pool pool = this.pools.computeIfAbsent(cipher.getAlgorithm(), k -> new Pool());
+        if (pool.size.incrementAndGet() > this.maxIdle) {
+            pool.size.decrementAndGet();
+            return;
+        }
+        pool.idle.offer(cipher);
+    }
+
+    public int getIdle(String transformation) {
+        Pool pool = this.pools.get(transformation);
+        return pool == null ? 0 : pool.size.get();
+    }
+}
@@ -0,0 +1,10 @@
+package io.github.lc.oss.commons.encryption;
+
+/**
+ * Strategy for generating the random IVs and salts used by the ciphers.
+ * Implementations must be cryptographically strong and safe for use by
+ * multiple threads.
+ */
+public interface RandomProvider {
+    void nextBytes(byte[] bytes);
+}
@@ -0,0 +1,51 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.util.Set;
+
+import io.github.lc.oss.commons.util.TypedEnumCache;
+
+/**
+ * Built in {@linkplain RandomProvider} strategies.
+ * <ul>
+ * <li>SHARED - a single generator shared by all threads (the default)</li>
+ * <li>THREAD_LOCAL - one generator per thread, best for a fixed number of
+ * platform threads</li>
+ * <li>STRIPED - a fixed set of generators selected by thread, safe for virtual
+ * threads</li>
+ * </ul>
+ */
+public enum RandomProviders implements RandomProvider {
+    SHARED(new SharedRandomProvider()),
+    THREAD_LOCAL(new ThreadLocalRandomProvider()),
+    STRIPED(new StripedRandomProvider());
+
+    private static final TypedEnumCache<RandomProviders, RandomProviders> CACHE = new TypedEnumCache<>(
+            RandomProviders.class, false);
+
+    public static final Set<RandomProviders> all() {
+        return RandomProviders.CACHE.values();
+    }
+
+    public static RandomProviders byName(String name) {
+        return RandomProviders.CACHE.byName(name);
+    }
+
+    public static boolean hasName(String name) {
+        return RandomProviders.CACHE.hasName(name);
+    }
+
+    public static RandomProviders tryParse(String name) {
+        return RandomProviders.CACHE.tryParse(name);
+    }
+
+    private final RandomProvider provider;
+
+    private RandomProviders(RandomProvider provider) {
+        this.provider = provider;
+    }
+
+    @Override
+    public void nextBytes(byte[] bytes) {
+        this.provider.nextBytes(bytes);
+    }
+}
@@ -0,0 +1,45 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Uses the password as the key. The password must be the Base64 encoded key
+ * of exactly the required length, the salt is ignored.
+ */
+class RawKdf implements Kdf {
+    static final byte ID = 0x03;
+
+    private static final byte[] NO_PARAMETERS = new byte[0];
+
+    @Override
+    public byte getId() {
+        return RawKdf.ID;
+    }
+
+    @Override
+    public byte[] getParameters() {
+        return RawKdf.NO_PARAMETERS;
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return "RAW";
+    }
+
+    @Override
+    public SecretKey derive(char[] password, byte[] salt, int keySize) {
+        byte[] key = Base64Decoder.decode(CharBuffer.wrap(password), 0, password.length);
+        try {
+            if (key.length != keySize / 8) {
+                throw new RuntimeException("Raw key must be exactly " + keySize + " bits.");
+            }
+            return new SecretKeySpec(key, "AES");
+        } finally {
+            Arrays.fill(key, (byte) 0x00);
+        }
+    }
+}
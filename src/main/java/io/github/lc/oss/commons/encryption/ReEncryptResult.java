@@ -0,0 +1,42 @@
+package io.github.lc.oss.commons.encryption;
+
+/**
+ * The outcome of one value processed by {@linkplain ReEncryptor}, either the
+ * re-encrypted value or the error that prevented it from being produced.
+ */
+public class ReEncryptResult {
+    private final long index;
+    private final String value;
+    private final RuntimeException error;
+
+    ReEncryptResult(long index, String value, RuntimeException error) {
+        this.index = index;
+        this.value = value;
+        this.error = error;
+    }
+
+    /**
+     * @return The position of the value in the input
+     */
+    public long getIndex() {
+        return this.index;
+    }
+
+    public boolean isSuccess() {
+        return this.error == null;
+    }
+
+    /**
+     * @return The re-encrypted value, null if the value failed
+     */
+    public String getValue() {
+        return this.value;
+    }
+
+    /**
+     * @return The failure, null if the value succeeded
+     */
+    public RuntimeException getError() {
+        return this.error;
+    }
+}
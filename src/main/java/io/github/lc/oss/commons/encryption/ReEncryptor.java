@@ -0,0 +1,260 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Re-encrypts values under a new key, for example after changing the password
+ * behind them.<br/>
+ * <br />
+ * Values are read from the input in batches that are processed in parallel.
+ * Within a batch values are grouped by the key they were encrypted with (see
+ * {@linkplain KeyedCipher#getKeyId(String)}) and every old key is derived
+ * once per call, recently used old keys are kept across batches. All values
+ * are re-encrypted with the same new {@linkplain DerivedKey}.<br/>
+ * <br />
+ * Only a bounded number of batches is read ahead of the slowest one, so
+ * inputs of any size can be streamed from and back to storage. Results are
+ * passed to the sink in input order on the calling thread, a failing value is
+ * reported in its {@linkplain ReEncryptResult} without affecting the other
+ * values.<br/>
+ * <br />
+ * The old keys are only kept for the duration of a call. The executor is owned
+ * by the caller and never shut down by this class.
+ * Instances are thread safe.
+ */
+public class ReEncryptor {
+    private static final int DEFAULT_BATCH_SIZE = 1024;
+    private static final int KEY_CACHE_SIZE = 1024;
+    /*
+     * Batches in flight per thread, the second keeps the workers busy while the
+     * oldest batch is passed to the sink
+     */
+    private static final int BATCHES_PER_THREAD = 2;
+
+    private class Run {
+        private final char[] password;
+        private final DerivedKey key;
+        private final Map<String, DerivedKey> keys;
+        private boolean cleared;
+
+        private final AtomicLong items = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final long start = System.nanoTime();
+
+        public Run(char[] password, DerivedKey key) {
+            this.password = password;
+            this.key = key;
+            this.keys = new LinkedHashMap<String, DerivedKey>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, DerivedKey> eldest) {
+                    return this.size() > ReEncryptor.KEY_CACHE_SIZE;
+                }
+            };
+        }
+
+        /**
+         * Concurrent batches needing the same key may both derive it.
+         */
+        public DerivedKey getKey(String id, String value) {
+            synchronized (this.keys) {
+                DerivedKey key = this.keys.get(id);
+                if (key != null) {
+                    return key;
+                }
+            }
+
+            DerivedKey key = ReEncryptor.this.cipher.deriveKey(value, this.password);
+            synchronized (this.keys) {
+                if (!this.cleared) {
+                    this.keys.put(id, key);
+                }
+            }
+            return key;
+        }
+
+        /**
+         * Drops the old keys, batches still running after this no longer cache
+         * theirs.
+         */
+        public void clear() {
+            synchronized (this.keys) {
+                this.cleared = true;
+                this.keys.clear();
+            }
+        }
+
+        public BulkMetrics getMetrics() {
+            return new BulkMetrics(this.items.get(), this.failures.get(), this.bytes.get(),
+                    System.nanoTime() - this.start);
+        }
+    }
+
+    private final KeyedCipher cipher;
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final int batchSize;
+
+    /**
+     * Creates an instance using {@linkplain Ciphers#AES256} and the common
+     * {@linkplain ForkJoinPool}.
+     */
+    public ReEncryptor() {
+        this(Ciphers.AES256);
+    }
+
+    public ReEncryptor(KeyedCipher cipher) {
+        this(cipher, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    public ReEncryptor(KeyedCipher cipher, ExecutorService executor, int parallelism) {
+        this(cipher, executor, parallelism, ReEncryptor.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param cipher      The cipher used for old and new values
+     * @param executor    Executor used to run the batches
+     * @param parallelism Maximum number of threads expected to work on a single
+     *                    call, normally the number of threads of the executor
+     * @param batchSize   Number of values per batch
+     */
+    public ReEncryptor(KeyedCipher cipher, ExecutorService executor, int parallelism, int batchSize) {
+        if (parallelism < 1) {
+            throw new RuntimeException("Parallelism must be positive");
+        }
+        if (batchSize < 1) {
+            throw new RuntimeException("Batch size must be positive");
+        }
+
+        this.cipher = cipher;
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Derives one new key from <code>newPassword</code> for all of the values.
+     */
+    public BulkMetrics reEncrypt(Iterator<String> values, char[] oldPassword, char[] newPassword,
+            Consumer<ReEncryptResult> sink) {
+        return this.reEncrypt(values, oldPassword, this.cipher.deriveKey(newPassword), sink, null);
+    }
+
+    public BulkMetrics reEncrypt(Iterator<String> values, char[] oldPassword, DerivedKey newKey,
+            Consumer<ReEncryptResult> sink) {
+        return this.reEncrypt(values, oldPassword, newKey, sink, null);
+    }
+
+    /**
+     * @param progress Called on the calling thread after each batch with the
+     *                 totals so far, may be null
+     * @return The totals, bytes are plain text bytes
+     */
+    public BulkMetrics reEncrypt(Iterator<String> values, char[] oldPassword, DerivedKey newKey,
+            Consumer<ReEncryptResult> sink, Consumer<BulkMetrics> progress) {
+        Run run = new Run(oldPassword, newKey);
+        Deque<Future<ReEncryptResult[]>> pending = new ArrayDeque<>();
+        int maxPending = this.parallelism * ReEncryptor.BATCHES_PER_THREAD;
+        long index = 0;
+
+        boolean complete = false;
+        try {
+            while (values.hasNext()) {
+                List<String> batch = new ArrayList<>(this.batchSize);
+                while (batch.size() < this.batchSize && values.hasNext()) {
+                    batch.add(values.next());
+                }
+                long first = index;
+                index += batch.size();
+                pending.add(this.executor.submit(() -> this.process(batch, first, run)));
+
+                if (pending.size() >= maxPending) {
+                    this.deliver(pending.poll(), sink, progress, run);
+                }
+            }
+            while (!pending.isEmpty()) {
+                this.deliver(pending.poll(), sink, progress, run);
+            }
+            complete = true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            if (!complete) {
+                pending.forEach(f -> f.cancel(true));
+            }
+            run.clear();
+        }
+        return run.getMetrics();
+    }
+
+    private void deliver(Future<ReEncryptResult[]> future, Consumer<ReEncryptResult> sink,
+            Consumer<BulkMetrics> progress, Run run) throws InterruptedException, ExecutionException {
+        for (ReEncryptResult result : future.get()) {
+            sink.accept(result);
+        }
+        if (progress != null) {
+            progress.accept(run.getMetrics());
+        }
+    }
+
+    private ReEncryptResult[] process(List<String> batch, long first, Run run) {
+        ReEncryptResult[] results = new ReEncryptResult[batch.size()];
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                groups.computeIfAbsent(this.cipher.getKeyId(batch.get(i)), k -> new ArrayList<>()).add(i);
+            } catch (RuntimeException ex) {
+                results[i] = new ReEncryptResult(first + i, null, ex);
+            }
+        }
+
+        long length = 0;
+        for (Map.Entry<String, List<Integer>> group : groups.entrySet()) {
+            DerivedKey key;
+            try {
+                key = run.getKey(group.getKey(), batch.get(group.getValue().get(0)));
+            } catch (RuntimeException ex) {
+                group.getValue().forEach(i -> results[i] = new ReEncryptResult(first + i, null, ex));
+                continue;
+            }
+
+            for (int i : group.getValue()) {
+                try {
+                    byte[] data = this.cipher.decrypt(batch.get(i), key);
+                    try {
+                        results[i] = new ReEncryptResult(first + i, this.cipher.encrypt(data, run.key), null);
+                        length += data.length;
+                    } finally {
+                        Arrays.fill(data, (byte) 0x00);
+                    }
+                } catch (RuntimeException ex) {
+                    results[i] = new ReEncryptResult(first + i, null, ex);
+                }
+            }
+        }
+
+        long failed = Arrays.stream(results).filter(r -> !r.isSuccess()).count();
+        run.items.addAndGet(results.length);
+        run.failures.addAndGet(failed);
+        run.bytes.addAndGet(length);
+        return results;
+    }
+}
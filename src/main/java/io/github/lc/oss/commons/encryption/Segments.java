@@ -0,0 +1,360 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * Segmented AES-GCM format shared by the streaming, chunked and mapped file
+ * ciphers.<br/>
+ * <br />
+ * Layout: <code>header || segment 0 || ... || segment n</code><br/>
+ * Header: <code>version (1) || kdf id (1) || kdf parameters length (1) || kdf
+ * parameters || salt length (1) || salt || nonce prefix (7) || segment size
+ * (4)</code><br/>
+ * <br />
+ * Every segment except the last holds exactly <code>segment size</code> bytes of
+ * plain text followed by a 16 byte tag, the last segment may hold fewer (even
+ * zero) bytes. The 12 byte nonce of each segment is <code>nonce prefix ||
+ * segment index (4) || last segment flag (1)</code> and the header is
+ * authenticated as associated data of every segment. Reordering, truncating or
+ * extending segments therefore fails authentication.
+ */
+class Segments {
+    static final String ALGORITHM = "AES/GCM/NoPadding";
+    static final byte VERSION = 0x01;
+    static final int TAG_LENGTH = 16;
+    static final int NONCE_PREFIX_LENGTH = 7;
+    static final int DEFAULT_SEGMENT_SIZE = 64 * 1024;
+    static final int MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+    static final long MAX_SEGMENTS = 0xFFFFFFFFL + 1;
+
+    static class Header {
+        private final Kdf kdf;
+        private final byte[] salt;
+        private final byte[] prefix;
+        private final int segmentSize;
+        private final byte[] encoded;
+
+        private Header(Kdf kdf, byte[] salt, byte[] prefix, int segmentSize, byte[] encoded) {
+            this.kdf = kdf;
+            this.salt = salt;
+            this.prefix = prefix;
+            this.segmentSize = segmentSize;
+            this.encoded = encoded;
+        }
+
+        /**
+         * Creates a header with a random nonce prefix.
+         */
+        static Header create(Kdf kdf, byte[] salt, int segmentSize, RandomProvider random) {
+            Segments.validate(segmentSize);
+            byte[] parameters = kdf.getParameters();
+            if (salt.length > 255) {
+                throw new RuntimeException("Salt must not exceed 255 bytes.");
+            }
+            if (parameters.length > 255) {
+                throw new RuntimeException("Key derivation parameters must not exceed 255 bytes.");
+            }
+
+            byte[] prefix = new byte[Segments.NONCE_PREFIX_LENGTH];
+            random.nextBytes(prefix);
+
+            ByteBuffer buffer = ByteBuffer.allocate(Header.length(kdf, salt));
+            buffer.put(Segments.VERSION);
+            buffer.put(kdf.getId());
+            buffer.put((byte) parameters.length);
+            buffer.put(parameters);
+            buffer.put((byte) salt.length);
+            buffer.put(salt);
+            buffer.put(prefix);
+            buffer.putInt(segmentSize);
+            return new Header(kdf, salt, prefix, segmentSize, buffer.array());
+        }
+
+        /**
+         * @return The encoded length of a header for the function and salt
+         */
+        static int length(Kdf kdf, byte[] salt) {
+            return 4 + kdf.getParameters().length + salt.length + Segments.NONCE_PREFIX_LENGTH + 4;
+        }
+
+        static Header read(ReadableByteChannel in) throws IOException {
+            ByteBuffer start = ByteBuffer.allocate(1);
+            Segments.readFully(in, start);
+
+            if (start.get(0) != Segments.VERSION) {
+                throw new RuntimeException("Unsupported segment format version.");
+            }
+
+            ByteBuffer kdfStart = ByteBuffer.allocate(2);
+            Segments.readFully(in, kdfStart);
+            ByteBuffer parameters = ByteBuffer.allocate(kdfStart.get(1) & 0xFF);
+            Segments.readFully(in, parameters);
+            Kdf kdf = Kdfs.decode(kdfStart.get(0), parameters.array());
+            ByteBuffer kdfBytes = ByteBuffer.allocate(2 + parameters.capacity()).put(kdfStart.array())
+                    .put(parameters.array());
+
+            ByteBuffer saltLength = ByteBuffer.allocate(1);
+            Segments.readFully(in, saltLength);
+            ByteBuffer rest = ByteBuffer.allocate((saltLength.get(0) & 0xFF) + Segments.NONCE_PREFIX_LENGTH + 4);
+            Segments.readFully(in, rest);
+            rest.flip();
+
+            byte[] salt = new byte[saltLength.get(0) & 0xFF];
+            rest.get(salt);
+            byte[] prefix = new byte[Segments.NONCE_PREFIX_LENGTH];
+            rest.get(prefix);
+            int segmentSize = rest.getInt();
+            Segments.validate(segmentSize);
+
+            // authenticate exactly the bytes that were read
+            ByteBuffer encoded = ByteBuffer.allocate(2 + kdfBytes.capacity() + rest.capacity());
+            encoded.put(start.array());
+            encoded.put(kdfBytes.array());
+            encoded.put(saltLength.array());
+            encoded.put(rest.array());
+            return new Header(kdf, salt, prefix, segmentSize, encoded.array());
+        }
+
+        /**
+         * Reads the header from the start of the buffer, leaving the buffer
+         * positioned at the first segment.
+         */
+        static Header read(ByteBuffer in) {
+            try {
+                return Header.read(new ReadableByteChannel() {
+                    @Override
+                    public int read(ByteBuffer dst) {
+                        if (!in.hasRemaining()) {
+                            return -1;
+                        }
+                        int count = Math.min(in.remaining(), dst.remaining());
+                        ByteBuffer src = in.duplicate();
+                        src.limit(src.position() + count);
+                        dst.put(src);
+                        in.position(in.position() + count);
+                        return count;
+                    }
+
+                    @Override
+                    public boolean isOpen() {
+                        return true;
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                });
+            } catch (IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+
+        /**
+         * Checks the key was derived using the same function and salt as this
+         * header.
+         */
+        void verify(DerivedKey key) {
+            if (!Kdfs.isSame(key.getKdf(), this.kdf)) {
+                throw new RuntimeException("Value was not encrypted using the key derivation function of this key.");
+            }
+            if (!MessageDigest.isEqual(key.salt(), this.salt)) {
+                throw new RuntimeException("Value was not encrypted using the salt of this key.");
+            }
+        }
+
+        /**
+         * @param length The number of bytes following the header
+         * @return The number of segments
+         */
+        long getSegmentCount(long length) {
+            int encryptedSize = this.segmentSize + Segments.TAG_LENGTH;
+            long count = (length + encryptedSize - 1) / encryptedSize;
+            if (count < 1 || length - (count - 1) * encryptedSize < Segments.TAG_LENGTH) {
+                throw new RuntimeException("Encrypted data is truncated.");
+            }
+            return count;
+        }
+
+        Kdf getKdf() {
+            return this.kdf;
+        }
+
+        byte[] getSalt() {
+            return this.salt;
+        }
+
+        int getSegmentSize() {
+            return this.segmentSize;
+        }
+
+        byte[] getEncoded() {
+            return this.encoded;
+        }
+
+        int length() {
+            return this.encoded.length;
+        }
+
+        /**
+         * Prepares the engine to process one complete segment.
+         */
+        void init(javax.crypto.Cipher cipher, boolean encrypt, SecretKey key, long index, boolean last)
+                throws GeneralSecurityException {
+            if (index < 0 || index >= Segments.MAX_SEGMENTS) {
+                throw new RuntimeException("Segment index out of range.");
+            }
+
+            byte[] nonce = new byte[Segments.NONCE_PREFIX_LENGTH + 5];
+            System.arraycopy(this.prefix, 0, nonce, 0, Segments.NONCE_PREFIX_LENGTH);
+            nonce[7] = (byte) (index >> 24);
+            nonce[8] = (byte) (index >> 16);
+            nonce[9] = (byte) (index >> 8);
+            nonce[10] = (byte) index;
+            nonce[11] = (byte) (last ? 0x01 : 0x00);
+
+            int mode = encrypt ? javax.crypto.Cipher.ENCRYPT_MODE : javax.crypto.Cipher.DECRYPT_MODE;
+            cipher.init(mode, key, new GCMParameterSpec(Segments.TAG_LENGTH * 8, nonce));
+            cipher.updateAAD(this.encoded);
+        }
+    }
+
+    /**
+     * @return The engine strategy configured on the cipher,
+     *         {@linkplain CipherProviders#NEW_INSTANCE} for ciphers without one
+     */
+    static CipherProvider getCipherProvider(Cipher cipher) {
+        if (cipher instanceof AbstractAES) {
+            return ((AbstractAES) cipher).getCipherProvider();
+        } else if (cipher instanceof Ciphers) {
+            return ((Ciphers) cipher).getCipherProvider();
+        }
+        return CipherProviders.NEW_INSTANCE;
+    }
+
+    /**
+     * @return The listener configured on the cipher, null for ciphers without
+     *         one
+     */
+    static MetricsListener getMetricsListener(Cipher cipher) {
+        if (cipher instanceof AbstractAES) {
+            return ((AbstractAES) cipher).getMetricsListener();
+        } else if (cipher instanceof Ciphers) {
+            return ((Ciphers) cipher).getMetricsListener();
+        }
+        return null;
+    }
+
+    /**
+     * Processes one segment, the engine having been prepared by its header. The
+     * segment and authentication failures are reported to the listener if there
+     * is one.
+     *
+     * @return The number of bytes written to <code>out</code>
+     */
+    static int doFinal(javax.crypto.Cipher cipher, boolean encrypt, ByteBuffer in, ByteBuffer out,
+            MetricsListener listener) throws GeneralSecurityException {
+        if (listener == null) {
+            return cipher.doFinal(in, out);
+        }
+
+        long start = System.nanoTime();
+        int length = in.remaining();
+        try {
+            int written = cipher.doFinal(in, out);
+            listener.onCipher(encrypt, length, System.nanoTime() - start);
+            return written;
+        } catch (AEADBadTagException ex) {
+            listener.onDecryptFailure(DecryptFailure.AUTHENTICATION);
+            throw ex;
+        }
+    }
+
+    /**
+     * @return The random strategy configured on the cipher,
+     *         {@linkplain RandomProviders#SHARED} for ciphers without one
+     */
+    static RandomProvider getRandomProvider(Cipher cipher) {
+        if (cipher instanceof AbstractAES) {
+            return ((AbstractAES) cipher).getRandomProvider();
+        } else if (cipher instanceof Ciphers) {
+            return ((Ciphers) cipher).getRandomProvider();
+        }
+        return RandomProviders.SHARED;
+    }
+
+    /**
+     * Derives the key of a header, functions the cipher does not accept (the
+     * built in {@linkplain Kdfs} for ciphers without a list) are rejected before
+     * any key is derived.
+     */
+    static DerivedKey deriveKey(KeyedCipher cipher, char[] password, Header header) {
+        boolean accepted;
+        if (cipher instanceof AbstractAES) {
+            accepted = ((AbstractAES) cipher).isAccepted(header.getKdf());
+        } else if (cipher instanceof Ciphers) {
+            accepted = ((Ciphers) cipher).isAccepted(header.getKdf());
+        } else {
+            accepted = Kdfs.all().stream().anyMatch(k -> Kdfs.isSame(k, header.getKdf()));
+        }
+        if (!accepted) {
+            throw new RuntimeException("Key derivation function is not accepted.");
+        }
+        return cipher.deriveKey(password, header.getSalt(), header.getKdf());
+    }
+
+    /**
+     * @return The number of segments needed for <code>length</code> plain text
+     *         bytes
+     */
+    static long getSegmentCount(long length, int segmentSize) {
+        long count = Math.max(1, (length + segmentSize - 1) / segmentSize);
+        if (count > Segments.MAX_SEGMENTS) {
+            throw new RuntimeException("Data is too large for the segment size.");
+        }
+        return count;
+    }
+
+    static void validate(int segmentSize) {
+        if (segmentSize < 1 || segmentSize > Segments.MAX_SEGMENT_SIZE) {
+            throw new RuntimeException("Segment size must be between 1 and " + Segments.MAX_SEGMENT_SIZE + " bytes.");
+        }
+    }
+
+    /**
+     * Reads until the buffer is full or the channel is exhausted.
+     *
+     * @return true if the buffer is full
+     */
+    static boolean fill(ReadableByteChannel in, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static void readFully(ReadableByteChannel in, ByteBuffer buffer) throws IOException {
+        if (!Segments.fill(in, buffer)) {
+            throw new RuntimeException("Encrypted data is truncated.");
+        }
+    }
+
+    static void writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private Segments() {
+    }
+}
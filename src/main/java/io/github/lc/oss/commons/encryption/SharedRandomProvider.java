@@ -0,0 +1,16 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.security.SecureRandom;
+
+/**
+ * One generator for every thread. Depending on the platform's default
+ * algorithm concurrent callers may contend on it.
+ */
+class SharedRandomProvider implements RandomProvider {
+    private final SecureRandom random = new SecureRandom();
+
+    @Override
+    public void nextBytes(byte[] bytes) {
+        this.random.nextBytes(bytes);
+    }
+}
@@ -0,0 +1,268 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.GeneralSecurityException;
+
+/**
+ * Encrypts and decrypts data of any size using constant memory.<br/>
+ * <br />
+ * Data is split into fixed size segments that are individually authenticated
+ * with AES-GCM (see {@linkplain Segments} for the format). Decrypted data is
+ * written one verified segment at a time so output may be consumed before the
+ * whole input has been read, however a failure part way through means earlier
+ * output must be discarded. Keys are derived using the supplied
+ * {@linkplain Cipher}.<br/>
+ * <br />
+ * Streams and channels are never closed by this class.
+ */
+public class StreamingCipher {
+    private static class InputStreamChannel implements ReadableByteChannel {
+        private final InputStream in;
+
+        public InputStreamChannel(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            int read = this.in.read(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+            if (read > 0) {
+                dst.position(dst.position() + read);
+            }
+            return read;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            // caller owns the stream
+        }
+    }
+
+    private static class OutputStreamChannel implements WritableByteChannel {
+        private final OutputStream out;
+
+        public OutputStreamChannel(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int length = src.remaining();
+            this.out.write(src.array(), src.arrayOffset() + src.position(), length);
+            src.position(src.limit());
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            // caller owns the stream
+        }
+    }
+
+    private final KeyedCipher cipher;
+    private final int segmentSize;
+
+    /**
+     * Creates an instance using {@linkplain Ciphers#AES256} and 64 KiB segments.
+     */
+    public StreamingCipher() {
+        this(Ciphers.AES256);
+    }
+
+    public StreamingCipher(KeyedCipher cipher) {
+        this(cipher, Segments.DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param cipher      The cipher used to derive keys from passwords
+     * @param segmentSize Number of plain text bytes per segment, larger segments
+     *                    use more memory but have less overhead
+     */
+    public StreamingCipher(KeyedCipher cipher, int segmentSize) {
+        Segments.validate(segmentSize);
+        this.cipher = cipher;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * @return The number of plain text bytes encrypted
+     */
+    public long encrypt(InputStream in, OutputStream out, char[] password) {
+        return this.encrypt(in, out, this.cipher.deriveKey(password));
+    }
+
+    /**
+     * @return The number of plain text bytes encrypted
+     */
+    public long encrypt(InputStream in, OutputStream out, DerivedKey key) {
+        long count = this.encrypt(new InputStreamChannel(in), new OutputStreamChannel(out), key);
+        this.flush(out);
+        return count;
+    }
+
+    /**
+     * @return The number of plain text bytes encrypted
+     */
+    public long encrypt(ReadableByteChannel in, WritableByteChannel out, char[] password) {
+        return this.encrypt(in, out, this.cipher.deriveKey(password));
+    }
+
+    /**
+     * @return The number of plain text bytes encrypted
+     */
+    public long encrypt(ReadableByteChannel in, WritableByteChannel out, DerivedKey key) {
+        Segments.Header header = Segments.Header.create(key.getKdf(), key.salt(), this.segmentSize,
+                Segments.getRandomProvider(this.cipher));
+        CipherProvider provider = Segments.getCipherProvider(this.cipher);
+        MetricsListener listener = Segments.getMetricsListener(this.cipher);
+        javax.crypto.Cipher engine = null;
+        try {
+            Segments.writeFully(out, ByteBuffer.wrap(header.getEncoded()));
+
+            engine = provider.acquire(Segments.ALGORITHM);
+            // one extra byte to detect the end of the input without another read
+            ByteBuffer plain = ByteBuffer.allocate(this.segmentSize + 1);
+            ByteBuffer encrypted = ByteBuffer.allocate(this.segmentSize + Segments.TAG_LENGTH);
+
+            long count = 0;
+            long index = 0;
+            boolean last;
+            do {
+                last = !Segments.fill(in, plain);
+                plain.flip();
+                int length = Math.min(plain.remaining(), this.segmentSize);
+
+                ByteBuffer segment = plain.duplicate();
+                segment.limit(length);
+                header.init(engine, true, key.getKey(), index, last);
+                encrypted.clear();
+                Segments.doFinal(engine, true, segment, encrypted, listener);
+                encrypted.flip();
+                Segments.writeFully(out, encrypted);
+
+                count += length;
+                index++;
+                plain.position(length);
+                plain.compact();
+            } while (!last);
+            return count;
+        } catch (IOException | GeneralSecurityException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            if (engine != null) {
+                provider.release(engine);
+            }
+        }
+    }
+
+    /**
+     * @return The number of plain text bytes decrypted
+     */
+    public long decrypt(InputStream in, OutputStream out, char[] password) {
+        long count = this.decrypt(new InputStreamChannel(in), new OutputStreamChannel(out), password);
+        this.flush(out);
+        return count;
+    }
+
+    /**
+     * @return The number of plain text bytes decrypted
+     */
+    public long decrypt(InputStream in, OutputStream out, DerivedKey key) {
+        long count = this.decrypt(new InputStreamChannel(in), new OutputStreamChannel(out), key);
+        this.flush(out);
+        return count;
+    }
+
+    /**
+     * @return The number of plain text bytes decrypted
+     */
+    public long decrypt(ReadableByteChannel in, WritableByteChannel out, char[] password) {
+        Segments.Header header = this.readHeader(in);
+        return this.decrypt(in, out, header, Segments.deriveKey(this.cipher, password, header));
+    }
+
+    /**
+     * @return The number of plain text bytes decrypted
+     */
+    public long decrypt(ReadableByteChannel in, WritableByteChannel out, DerivedKey key) {
+        Segments.Header header = this.readHeader(in);
+        header.verify(key);
+        return this.decrypt(in, out, header, key);
+    }
+
+    private long decrypt(ReadableByteChannel in, WritableByteChannel out, Segments.Header header, DerivedKey key) {
+        int encryptedSize = header.getSegmentSize() + Segments.TAG_LENGTH;
+        CipherProvider provider = Segments.getCipherProvider(this.cipher);
+        MetricsListener listener = Segments.getMetricsListener(this.cipher);
+        javax.crypto.Cipher engine = null;
+        try {
+            engine = provider.acquire(Segments.ALGORITHM);
+            // one extra byte to detect the end of the input without another read
+            ByteBuffer encrypted = ByteBuffer.allocate(encryptedSize + 1);
+            ByteBuffer plain = ByteBuffer.allocate(header.getSegmentSize());
+
+            long count = 0;
+            long index = 0;
+            boolean last;
+            do {
+                last = !Segments.fill(in, encrypted);
+                encrypted.flip();
+                int length = Math.min(encrypted.remaining(), encryptedSize);
+                if (length < Segments.TAG_LENGTH) {
+                    throw new RuntimeException("Encrypted data is truncated.");
+                }
+
+                ByteBuffer segment = encrypted.duplicate();
+                segment.limit(length);
+                header.init(engine, false, key.getKey(), index, last);
+                plain.clear();
+                Segments.doFinal(engine, false, segment, plain, listener);
+                plain.flip();
+                count += plain.remaining();
+                Segments.writeFully(out, plain);
+
+                index++;
+                encrypted.position(length);
+                encrypted.compact();
+            } while (!last);
+            return count;
+        } catch (IOException | GeneralSecurityException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            if (engine != null) {
+                provider.release(engine);
+            }
+        }
+    }
+
+    private Segments.Header readHeader(ReadableByteChannel in) {
+        try {
+            return Segments.Header.read(in);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private void flush(OutputStream out) {
+        try {
+            out.flush();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+}
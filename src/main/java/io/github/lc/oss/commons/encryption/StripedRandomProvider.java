@@ -0,0 +1,39 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.security.SecureRandom;
+
+/**
+ * Keeps a fixed number of DRBG generators shared by all threads, each thread
+ * always uses the same one. Contention is limited to threads sharing a stripe
+ * and the number of generators does not grow with the number of threads. Safe
+ * for use with virtual threads.
+ */
+public class StripedRandomProvider implements RandomProvider {
+    private final SecureRandom[] randoms;
+
+    /**
+     * Creates twice the number of available processors generators.
+     */
+    public StripedRandomProvider() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * @param stripes Number of generators, must be positive
+     */
+    public StripedRandomProvider(int stripes) {
+        if (stripes < 1) {
+            throw new RuntimeException("Stripes must be positive");
+        }
+
+        this.randoms = new SecureRandom[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.randoms[i] = ThreadLocalRandomProvider.create();
+        }
+    }
+
+    @Override
+    public void nextBytes(byte[] bytes) {
+        this.randoms[(int) (Thread.currentThread().getId() % this.randoms.length)].nextBytes(bytes);
+    }
+}
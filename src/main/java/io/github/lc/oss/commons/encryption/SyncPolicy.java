@@ -0,0 +1,42 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.util.Set;
+
+import io.github.lc.oss.commons.util.TypedEnumCache;
+
+/**
+ * When output written through memory mapped files is forced to storage.
+ * <ul>
+ * <li>NONE - never forced, the operating system writes the pages back in its
+ * own time (fastest, output may be lost on a crash)</li>
+ * <li>ON_COMPLETE - forced once after the whole file has been written (the
+ * default)</li>
+ * <li>PER_WINDOW - every mapped window is forced as soon as it has been
+ * written, bounding the amount of unwritten data at the cost of more
+ * syncs</li>
+ * </ul>
+ */
+public enum SyncPolicy {
+    NONE,
+    ON_COMPLETE,
+    PER_WINDOW;
+
+    private static final TypedEnumCache<SyncPolicy, SyncPolicy> CACHE = new TypedEnumCache<>(SyncPolicy.class,
+            false);
+
+    public static final Set<SyncPolicy> all() {
+        return SyncPolicy.CACHE.values();
+    }
+
+    public static SyncPolicy byName(String name) {
+        return SyncPolicy.CACHE.byName(name);
+    }
+
+    public static boolean hasName(String name) {
+        return SyncPolicy.CACHE.hasName(name);
+    }
+
+    public static SyncPolicy tryParse(String name) {
+        return SyncPolicy.CACHE.tryParse(name);
+    }
+}
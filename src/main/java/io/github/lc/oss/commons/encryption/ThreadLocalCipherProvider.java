@@ -0,0 +1,29 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps one idle engine per transformation per thread.<br/>
+ * <br />
+ * Not recommended for virtual threads, each virtual thread would create and
+ * hold its own engines. Use {@linkplain PooledCipherProvider} instead.
+ */
+class ThreadLocalCipherProvider implements CipherProvider {
+    private final ThreadLocal<Map<String, javax.crypto.Cipher>> ciphers = ThreadLocal.withInitial(HashMap::new);
+
+    @Override
+    public javax.crypto.Cipher acquire(String transformation) throws GeneralSecurityException {
+        javax.crypto.Cipher cipher = this.ciphers.get().remove(transformation);
+        if (cipher == null) {
+            cipher = javax.crypto.Cipher.getInstance(transformation);
+        }
+        return cipher;
+    }
+
+    @Override
+    public void release(javax.crypto.Cipher cipher) {
+        this.ciphers.get().put(cipher.getAlgorithm(), cipher);
+    }
+}
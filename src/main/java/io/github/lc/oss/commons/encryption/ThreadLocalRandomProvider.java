@@ -0,0 +1,30 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Keeps one DRBG generator per thread, threads never contend.<br/>
+ * <br />
+ * Not recommended for virtual threads, each virtual thread would create and
+ * seed its own generator. Use {@linkplain StripedRandomProvider} instead.
+ */
+class ThreadLocalRandomProvider implements RandomProvider {
+    private final ThreadLocal<SecureRandom> random = ThreadLocal.withInitial(ThreadLocalRandomProvider::create);
+
+    /**
+     * @return A new, self seeded, DRBG generator
+     */
+    static SecureRandom create() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    @Override
+    public void nextBytes(byte[] bytes) {
+        this.random.get().nextBytes(bytes);
+    }
+}
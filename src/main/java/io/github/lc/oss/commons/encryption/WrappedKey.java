@@ -0,0 +1,77 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import io.github.lc.oss.commons.encoding.Encodings;
+
+/**
+ * A data key encrypted by a {@linkplain MasterKey}, safe to store next to the
+ * data it protects.<br/>
+ * <br />
+ * Encoded as <code>version$id$wrapped</code> where the ID is the Base64 encoded
+ * 16 byte key ID and wrapped is the value returned by
+ * {@linkplain MasterKey#wrap(byte[], byte[])}. The key ID is authenticated as
+ * associated data when wrapping so it can not be swapped onto another key.
+ */
+public class WrappedKey {
+    static final int ID_LENGTH = 16;
+
+    private static final String VERSION = "1";
+    private static final char DELIMITER = '$';
+
+    private final byte[] id;
+    private final String wrapped;
+
+    WrappedKey(byte[] id, String wrapped) {
+        this.id = id.clone();
+        this.wrapped = wrapped;
+    }
+
+    /**
+     * Inverse of {@linkplain #getEncoded()}.
+     */
+    public static WrappedKey decode(String encoded) {
+        int first = encoded == null ? -1 : encoded.indexOf(WrappedKey.DELIMITER);
+        int second = first < 0 ? -1 : encoded.indexOf(WrappedKey.DELIMITER, first + 1);
+        if (second < 0 || second == encoded.length() - 1) {
+            throw new RuntimeException("Invalid wrapped key.");
+        }
+        if (!WrappedKey.VERSION.equals(encoded.substring(0, first))) {
+            throw new RuntimeException("Unsupported wrapped key version.");
+        }
+
+        byte[] id = Base64Decoder.decode(encoded, first + 1, second);
+        if (id.length != WrappedKey.ID_LENGTH) {
+            throw new RuntimeException("Invalid wrapped key.");
+        }
+        return new WrappedKey(id, encoded.substring(second + 1));
+    }
+
+    public String getEncoded() {
+        return WrappedKey.VERSION + WrappedKey.DELIMITER + Encodings.Base64.encode(this.id) + WrappedKey.DELIMITER
+                + this.wrapped;
+    }
+
+    public byte[] getId() {
+        return this.id.clone();
+    }
+
+    public String getWrapped() {
+        return this.wrapped;
+    }
+
+    byte[] id() {
+        return this.id;
+    }
+
+    /**
+     * @return The associated data used to wrap the key with the given ID
+     */
+    static byte[] aad(byte[] id) {
+        byte[] version = WrappedKey.VERSION.getBytes(StandardCharsets.UTF_8);
+        byte[] aad = Arrays.copyOf(version, version.length + id.length);
+        System.arraycopy(id, 0, aad, version.length, id.length);
+        return aad;
+    }
+}
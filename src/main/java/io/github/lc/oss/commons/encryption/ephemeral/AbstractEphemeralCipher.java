@@ -1,18 +1,55 @@
 package io.github.lc.oss.commons.encryption.ephemeral;
 
 import io.github.lc.oss.commons.encryption.Cipher;
+import io.github.lc.oss.commons.encryption.Kdf;
+import io.github.lc.oss.commons.encryption.Kdfs;
+import io.github.lc.oss.commons.encryption.KeyedCipher;
 
 public abstract class AbstractEphemeralCipher implements EphemeralCipher {
     protected abstract char[] getKey();
 
+    /**
+     * Ephemeral keys are random so a per message key is derived with
+     * {@linkplain Kdfs#HKDF_SHA256} rather than a password hash. The function is
+     * recorded in encrypted values, values encrypted using a different function
+     * remain decryptable. Ciphers that are not a {@linkplain KeyedCipher} use
+     * the key as a password instead.
+     */
+    protected Kdf getKdf() {
+        return Kdfs.HKDF_SHA256;
+    }
+
     @Override
     public String encrypt(byte[] data, Cipher cipher) {
-        return cipher.encrypt(data, this.getKey());
+        return this.encrypt(data, null, cipher);
+    }
+
+    @Override
+    public String encrypt(byte[] data, byte[] aad, Cipher cipher) {
+        if (!(cipher instanceof KeyedCipher)) {
+            if (aad != null) {
+                throw new UnsupportedOperationException("Associated data is not supported");
+            }
+            return cipher.encrypt(data, this.getKey());
+        }
+        KeyedCipher keyed = (KeyedCipher) cipher;
+        return keyed.encrypt(data, aad, keyed.deriveKey(this.getKey(), this.getKdf()));
     }
 
     @Override
     public byte[] decrypt(String data, Cipher cipher) {
-        return cipher.decrypt(data, this.getKey());
+        return this.decrypt(data, null, cipher);
+    }
+
+    @Override
+    public byte[] decrypt(String data, byte[] aad, Cipher cipher) {
+        if (!(cipher instanceof KeyedCipher)) {
+            if (aad != null) {
+                throw new UnsupportedOperationException("Associated data is not supported");
+            }
+            return cipher.decrypt(data, this.getKey());
+        }
+        return ((KeyedCipher) cipher).decrypt(data, aad, this.getKey());
     }
 
     @Override
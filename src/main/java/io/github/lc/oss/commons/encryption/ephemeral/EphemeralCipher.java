@@ -12,6 +12,26 @@ public interface EphemeralCipher {
 
     String encrypt(byte[] data, Cipher cipher);
 
+    /**
+     * Encrypts the data and authenticates the associated data along with it,
+     * see
+     * {@linkplain io.github.lc.oss.commons.encryption.KeyedCipher#encrypt(byte[], byte[], char[])}.
+     */
+    default String encrypt(byte[] data, byte[] aad) {
+        return this.encrypt(data, aad, Ciphers.AES256);
+    }
+
+    /**
+     * Implementations that do not support associated data only accept
+     * <code>null</code>.
+     */
+    default String encrypt(byte[] data, byte[] aad, Cipher cipher) {
+        if (aad != null) {
+            throw new UnsupportedOperationException("Associated data is not supported");
+        }
+        return this.encrypt(data, cipher);
+    }
+
     default String encrypt(String data) {
         return this.encrypt(data, Ciphers.AES256);
     }
@@ -26,6 +46,21 @@ public interface EphemeralCipher {
 
     byte[] decrypt(String data, Cipher cipher);
 
+    default byte[] decrypt(String data, byte[] aad) {
+        return this.decrypt(data, aad, Ciphers.AES256);
+    }
+
+    /**
+     * Implementations that do not support associated data only accept
+     * <code>null</code>.
+     */
+    default byte[] decrypt(String data, byte[] aad, Cipher cipher) {
+        if (aad != null) {
+            throw new UnsupportedOperationException("Associated data is not supported");
+        }
+        return this.decrypt(data, cipher);
+    }
+
     default String decryptString(String data) {
         return this.decryptString(data, Ciphers.AES256);
     }
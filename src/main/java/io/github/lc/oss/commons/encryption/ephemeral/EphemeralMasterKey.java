@@ -0,0 +1,41 @@
+package io.github.lc.oss.commons.encryption.ephemeral;
+
+import io.github.lc.oss.commons.encryption.KeyedCipher;
+import io.github.lc.oss.commons.encryption.Ciphers;
+import io.github.lc.oss.commons.encryption.MasterKey;
+
+/**
+ * {@linkplain MasterKey} backed by an {@linkplain EphemeralCipher}, typically a
+ * {@linkplain FileBackedCipher}. Wrapped keys are only as durable as the
+ * ephemeral cipher's key.
+ */
+public class EphemeralMasterKey implements MasterKey {
+    private final EphemeralCipher master;
+    private final KeyedCipher cipher;
+
+    /**
+     * Uses {@linkplain Ciphers#AES256}.
+     */
+    public EphemeralMasterKey(EphemeralCipher master) {
+        this(master, Ciphers.AES256);
+    }
+
+    public EphemeralMasterKey(EphemeralCipher master, KeyedCipher cipher) {
+        if (master == null) {
+            throw new RuntimeException("Master cipher is required");
+        }
+
+        this.master = master;
+        this.cipher = cipher;
+    }
+
+    @Override
+    public String wrap(byte[] key, byte[] aad) {
+        return this.master.encrypt(key, aad, this.cipher);
+    }
+
+    @Override
+    public byte[] unwrap(String wrapped, byte[] aad) {
+        return this.master.decrypt(wrapped, aad, this.cipher);
+    }
+}
@@ -0,0 +1,20 @@
+package io.github.lc.oss.commons.encryption.ephemeral;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.github.lc.oss.commons.encryption.ephemeral.KeyLookupMiss")
+@Label("Key Lookup Miss")
+@Description("A rotating cipher had no usable key to decrypt a value")
+@Category({ "Encryption", "Ephemeral" })
+@Enabled(false)
+class KeyLookupMissEvent extends jdk.jfr.Event {
+    @Label("Key ID")
+    int keyId;
+
+    @Label("Cause")
+    String cause;
+}
@@ -0,0 +1,19 @@
+package io.github.lc.oss.commons.encryption.ephemeral;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("io.github.lc.oss.commons.encryption.ephemeral.KeyPurge")
+@Label("Key Purge")
+@Description("A rotating cipher discarded a key past its decryption TTL")
+@Category({ "Encryption", "Ephemeral" })
+@Enabled(false)
+@StackTrace(false)
+class KeyPurgeEvent extends jdk.jfr.Event {
+    @Label("Key ID")
+    int keyId;
+}
@@ -0,0 +1,21 @@
+package io.github.lc.oss.commons.encryption.ephemeral;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("io.github.lc.oss.commons.encryption.ephemeral.KeyRotation")
+@Label("Key Rotation")
+@Description("A rotating cipher started encrypting with a new key, the duration includes key generation")
+@Category({ "Encryption", "Ephemeral" })
+@Enabled(false)
+class KeyRotationEvent extends jdk.jfr.Event {
+    @Label("Key ID")
+    int keyId;
+
+    @Label("Pre-generated")
+    @Description("The key was generated in the background ahead of time")
+    boolean pregenerated;
+}
@@ -1,9 +1,9 @@
 package io.github.lc.oss.commons.encryption.ephemeral;
 
-import java.security.SecureRandom;
 import java.util.Arrays;
 
 import io.github.lc.oss.commons.encoding.Encodings;
+import io.github.lc.oss.commons.encryption.RandomProviders;
 
 public class MemoryBackedCipher extends AbstractEphemeralCipher {
     private char[] key;
@@ -24,8 +24,7 @@ public class MemoryBackedCipher extends AbstractEphemeralCipher {
         }
 
         byte[] data = new byte[keyBits / 8];
-        SecureRandom random = new SecureRandom();
-        random.nextBytes(data);
+        RandomProviders.SHARED.nextBytes(data);
 
         this.key = Encodings.Base64.encode(data).toCharArray();
     }
@@ -36,8 +35,7 @@ public class MemoryBackedCipher extends AbstractEphemeralCipher {
      */
     public synchronized void rotateKey() {
         byte[] data = new byte[this.key.length];
-        SecureRandom random = new SecureRandom();
-        random.nextBytes(data);
+        RandomProviders.SHARED.nextBytes(data);
 
         Arrays.fill(this.key, '0');
         this.key = Encodings.Base64.encode(data).toCharArray();
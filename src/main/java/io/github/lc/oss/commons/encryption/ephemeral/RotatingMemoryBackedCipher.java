@@ -3,9 +3,24 @@ package io.github.lc.oss.commons.encryption.ephemeral;
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import io.github.lc.oss.commons.encoding.Encodings;
 import io.github.lc.oss.commons.encryption.Cipher;
+import io.github.lc.oss.commons.encryption.DecryptFailure;
+import io.github.lc.oss.commons.encryption.DerivedKey;
+import io.github.lc.oss.commons.encryption.Kdfs;
+import io.github.lc.oss.commons.encryption.KeyedCipher;
+import io.github.lc.oss.commons.encryption.MetricsListener;
+import io.github.lc.oss.commons.encryption.RandomProviders;
 
 /**
  * A memory back temporary cipher manager.<br/>
@@ -13,28 +28,66 @@ import io.github.lc.oss.commons.encryption.Cipher;
  * This class will allocate the specified number of key slots with a specified
  * time to live for encrypt operations. Keys will be generated on-demand during
  * the encryption operation. Encrypted values will contain the ID of which key
- * they used so that key lookups are efficient. If the matching key is found and
+ * they used, IDs are sequential so the ID addresses the key's slot directly
+ * and lookups take constant time. If the matching key is found and
  * has not exceeded it's decryption TTL (e.g. encryption TTL x key slots) the
- * value is decrypted else a {@linkplain RuntimeException} is thrown.
+ * value is decrypted else a {@linkplain RuntimeException} is thrown.<br/>
+ * <br />
+ * Keys are random so the AES key is derived using {@linkplain Kdfs#HKDF_SHA256}
+ * once per key and cipher, then reused for every value until the key leaves
+ * the slots. Ciphers that are not a {@linkplain KeyedCipher} use the key as a
+ * password instead.<br/>
+ * <br />
+ * The key slots are an immutable snapshot published atomically. Encryption and
+ * decryption never block, when a key expires every thread that notices races
+ * to publish the next snapshot and the threads that lose adopt the winner's
+ * key. Keys that leave the slots are zeroed once no thread is using them.<br/>
+ * <br />
+ * If a scheduler is provided the next key is generated in the background ahead
+ * of time and swapped in when the current key expires, so no encryption pays
+ * for key generation, and keys past their decryption TTL are purged and zeroed
+ * as soon as they expire. The scheduler is owned by the caller,
+ * {@linkplain #close()} stops the background work and zeroes every key.<br/>
+ * <br />
+ * Rotations, purges and key lookup misses are recorded as Flight Recorder
+ * events under <code>io.github.lc.oss.commons.encryption.ephemeral</code>
+ * when enabled in the recording settings.
  */
-public class RotatingMemoryBackedCipher implements EphemeralCipher {
+public class RotatingMemoryBackedCipher implements EphemeralCipher, AutoCloseable {
     private static final String DELIMITER = "$";
+    private static final int SALT_BYTES = 16;
 
     private static class Key {
+        private final int id;
         private final long expires;
         private final long maxTtl;
+        /*
+         * Number of threads using the key, once retired the count is stored as
+         * -(users + 1) and the key is zeroed by the last user to leave
+         */
+        private final AtomicInteger users = new AtomicInteger();
+        private final Map<KeyedCipher, DerivedKey> derived = new ConcurrentHashMap<>();
+        private final byte[] salt;
         private char[] key;
 
-        public Key(int keyBits, long ttl, long maxTtl) {
-            byte[] data = new byte[keyBits / 8];
-            SecureRandom random = new SecureRandom();
-            random.nextBytes(data);
-
-            this.key = Encodings.Base64.encode(data).toCharArray();
+        public Key(int id, char[] key, long ttl, long maxTtl) {
+            this.id = id;
+            this.key = key;
+            this.salt = new byte[SALT_BYTES];
+            RandomProviders.SHARED.nextBytes(this.salt);
             this.expires = System.currentTimeMillis() + ttl;
             this.maxTtl = System.currentTimeMillis() + maxTtl;
         }
 
+        public static char[] generate(int keyBits) {
+            byte[] data = new byte[keyBits / 8];
+            RandomProviders.SHARED.nextBytes(data);
+
+            char[] key = Encodings.Base64.encode(data).toCharArray();
+            Arrays.fill(data, (byte) 0x00);
+            return key;
+        }
+
         public boolean isExpired() {
             return System.currentTimeMillis() >= this.expires;
         }
@@ -43,17 +96,141 @@ public class RotatingMemoryBackedCipher implements EphemeralCipher {
             return System.currentTimeMillis() < this.maxTtl;
         }
 
-        public char[] getKey() {
-            return this.key;
+        /**
+         * @return The AES key for the cipher, derived on first use. Only call
+         *         while the key is acquired.
+         */
+        public DerivedKey getKey(KeyedCipher cipher) {
+            return this.derived.computeIfAbsent(cipher,
+                    c -> c.deriveKey(this.key, this.salt, Kdfs.HKDF_SHA256));
+        }
+
+        /**
+         * @return false if the key has been retired and must not be used
+         */
+        public boolean acquire() {
+            int users;
+            do {
+                users = this.users.get();
+                if (users < 0) {
+                    return false;
+                }
+            } while (!this.users.compareAndSet(users, users + 1));
+            return true;
+        }
+
+        public void release() {
+            int users;
+            int next;
+            do {
+                users = this.users.get();
+                next = users > 0 ? users - 1 : users + 1;
+            } while (!this.users.compareAndSet(users, next));
+
+            if (next == -1) {
+                this.zero();
+            }
+        }
+
+        /**
+         * Prevents further use, the key is zeroed now if unused else by the last
+         * user.
+         */
+        public void retire() {
+            int users;
+            do {
+                users = this.users.get();
+                if (users < 0) {
+                    return;
+                }
+            } while (!this.users.compareAndSet(users, -(users + 1)));
+
+            if (users == 0) {
+                this.zero();
+            }
+        }
+
+        private void zero() {
+            this.derived.clear();
+            char[] key = this.key;
+            if (key != null) {
+                Arrays.fill(key, '\0');
+            }
+        }
+    }
+
+    /**
+     * Immutable state of the key slots, replaced as a whole on rotation. Key IDs
+     * are <code>base + sequence</code> and a key lives in slot <code>sequence %
+     * slots</code>.
+     */
+    private static class Slots {
+        private final Key[] keys;
+        private final int keyIndex;
+        private final int base;
+        private final int sequence;
+
+        public Slots(Key[] keys, int base, int sequence) {
+            this.keys = keys;
+            this.keyIndex = Slots.index(sequence, keys.length);
+            this.base = base;
+            this.sequence = sequence;
+        }
+
+        private static int index(int sequence, int slots) {
+            return (int) (Integer.toUnsignedLong(sequence) % slots);
+        }
+
+        public Key current() {
+            return this.keys[this.keyIndex];
+        }
+
+        /**
+         * @return The key with the ID or null
+         */
+        public Key get(int id) {
+            Key key = this.keys[Slots.index(id - this.base, this.keys.length)];
+            return key != null && key.id == id ? key : null;
+        }
+
+        /**
+         * @return The key that is replaced by {@linkplain #rotate(char[], long, long)}
+         */
+        public Key replaced() {
+            return this.current() == null ? null : this.keys[(this.keyIndex + 1) % this.keys.length];
+        }
+
+        /**
+         * @return A copy with a new key in the next slot, or in the current slot
+         *         if it is empty
+         */
+        public Slots rotate(char[] material, long ttl, long maxTtl) {
+            int sequence = this.current() == null ? this.sequence : this.sequence + 1;
+            Key[] keys = Arrays.copyOf(this.keys, this.keys.length);
+            keys[Slots.index(sequence, keys.length)] = new Key(this.base + sequence, material, ttl, maxTtl);
+            return new Slots(keys, this.base, sequence);
+        }
+
+        /**
+         * @return A copy without the key in slot <code>i</code>
+         */
+        public Slots remove(int i) {
+            Key[] keys = Arrays.copyOf(this.keys, this.keys.length);
+            keys[i] = null;
+            return new Slots(keys, this.base, this.sequence);
         }
     }
 
     private final int keyBits;
     private final long keyTtl;
     private final long maxTtl;
-    private final Key[] keys;
+    private final AtomicReference<Slots> slots;
+    private final AtomicReference<char[]> spare = new AtomicReference<>();
+    private final ScheduledExecutorService scheduler;
+    private final AtomicReference<ScheduledFuture<?>> maintenance = new AtomicReference<>();
 
-    private int keyIndex;
+    private volatile boolean closed;
+    private volatile MetricsListener metricsListener;
 
     /***
      * Creates a default instance using 4096-bit keys, 2 key slots, with an
@@ -72,6 +249,20 @@ public class RotatingMemoryBackedCipher implements EphemeralCipher {
      *                      slots)
      */
     public RotatingMemoryBackedCipher(int keyBits, int keySlots, long encryptionTtl) {
+        this(keyBits, keySlots, encryptionTtl, null);
+    }
+
+    /***
+     * @param keyBits       Length of key in bits, must be a positive multiple of 8
+     * @param keySlots      Number of key slots to allocate
+     * @param encryptionTtl Time to Live of each key for encryption purposes
+     *                      (decryption TTL is this value times the number of key
+     *                      slots)
+     * @param scheduler     Used to generate keys ahead of time and purge expired
+     *                      keys, null to generate keys on-demand only
+     */
+    public RotatingMemoryBackedCipher(int keyBits, int keySlots, long encryptionTtl,
+            ScheduledExecutorService scheduler) {
         if (keyBits < 8 || keyBits % 8 != 0) {
             throw new RuntimeException("Key size must be a positive multiple of 8");
         }
@@ -80,64 +271,283 @@ public class RotatingMemoryBackedCipher implements EphemeralCipher {
         this.keyTtl = encryptionTtl;
         this.maxTtl = encryptionTtl * keySlots;
 
-        this.keys = new Key[keySlots];
-        this.keyIndex = 0;
+        // IDs start at a random value so values from other instances are not
+        // mistaken for our own
+        this.slots = new AtomicReference<>(new Slots(new Key[keySlots], new SecureRandom().nextInt(), 0));
+        this.scheduler = scheduler;
+        if (scheduler != null) {
+            ScheduledFuture<?> first = scheduler.schedule(this::maintain, 0, TimeUnit.MILLISECONDS);
+            // the first run may already have scheduled the next one
+            this.maintenance.compareAndSet(null, first);
+        }
     }
 
     @Override
     public String encrypt(byte[] data, Cipher cipher) {
-        Key current = this.keys[this.keyIndex];
-        if (current == null) {
-            synchronized (this.keys) {
-                current = this.keys[this.keyIndex];
-                if (current == null) {
-                    current = new Key(this.keyBits, this.keyTtl, this.maxTtl);
-                    this.keys[this.keyIndex] = current;
-                }
+        return this.encrypt(data, null, cipher);
+    }
+
+    @Override
+    public String encrypt(byte[] data, byte[] aad, Cipher cipher) {
+        KeyedCipher keyed = cipher instanceof KeyedCipher ? (KeyedCipher) cipher : null;
+        if (keyed == null && aad != null) {
+            throw new UnsupportedOperationException("Associated data is not supported");
+        }
+
+        while (true) {
+            if (this.closed) {
+                throw new RuntimeException("Cipher is closed.");
             }
-        } else if (current.isExpired()) {
-            synchronized (this.keys) {
-                current = this.keys[this.keyIndex];
-                if (current.isExpired()) {
-                    current = new Key(this.keyBits, this.keyTtl, this.maxTtl);
 
-                    int i = (this.keyIndex + 1) % this.keys.length;
+            Slots slots = this.slots.get();
+            Key current = slots.current();
+            if (current == null || current.isExpired()) {
+                Slots next = this.rotate(slots);
+                if (next == null) {
+                    continue;
+                }
+                // the key just published is used even if it is already expired
+                current = next.current();
+            }
 
-                    this.keys[i] = current;
-                    this.keyIndex = i;
+            if (current.acquire()) {
+                try {
+                    String encrypted = keyed != null ? keyed.encrypt(data, aad, current.getKey(keyed))
+                            : cipher.encrypt(data, current.key);
+                    return this.toBase64(current.id) + DELIMITER + encrypted;
+                } finally {
+                    current.release();
                 }
             }
         }
-
-        return this.toBase64(current.hashCode()) + DELIMITER + cipher.encrypt(data, current.getKey());
     }
 
     @Override
     public byte[] decrypt(String data, Cipher cipher) {
-        int id = this.fromBase64(data.substring(0, data.indexOf(DELIMITER)));
-        String encrypted = data.substring(data.indexOf(DELIMITER) + 1);
-
-        int index = this.keyIndex;
-        Key key = null;
-        do {
-            key = this.keys[index];
-            if (key != null && key.hashCode() == id && key.isValid()) {
-                try {
-                    return cipher.decrypt(encrypted, key.getKey());
-                } catch (RuntimeException ex) {
-                    if (!(ex.getCause() instanceof GeneralSecurityException)) {
-                        throw ex;
-                    }
+        return this.decrypt(data, null, cipher);
+    }
+
+    @Override
+    public byte[] decrypt(String data, byte[] aad, Cipher cipher) {
+        KeyedCipher keyed = cipher instanceof KeyedCipher ? (KeyedCipher) cipher : null;
+        if (keyed == null && aad != null) {
+            throw new UnsupportedOperationException("Associated data is not supported");
+        }
+
+        int delimiter = data.indexOf(DELIMITER);
+        int id = this.fromBase64(data, delimiter);
+        int encrypted = delimiter + 1;
+
+        Key key = this.slots.get().get(id);
+        if (key == null || !key.isValid() || !key.acquire()) {
+            DecryptFailure cause = key == null ? DecryptFailure.KEY_NOT_FOUND : DecryptFailure.KEY_EXPIRED;
+            KeyLookupMissEvent event = new KeyLookupMissEvent();
+            if (event.shouldCommit()) {
+                event.keyId = id;
+                event.cause = cause.name();
+                event.commit();
+            }
+            this.failed(cause);
+            throw new RuntimeException("Unable to decrypt value using available keys.");
+        }
+
+        try {
+            if (keyed == null) {
+                return cipher.decrypt(data, encrypted, key.key);
+            }
+            return keyed.decrypt(data, encrypted, aad, key.getKey(keyed));
+        } catch (RuntimeException ex) {
+            if (ex.getCause() instanceof GeneralSecurityException) {
+                throw new RuntimeException("Unable to decrypt value using available keys.");
+            }
+            throw ex;
+        } finally {
+            key.release();
+        }
+    }
+
+    public MetricsListener getMetricsListener() {
+        return this.metricsListener;
+    }
+
+    /**
+     * Reports key rotations, purges and key lookup failures to the listener.
+     * Timings and authentication failures are reported by the cipher's own
+     * listener. Pass <code>null</code> to stop reporting (the default).
+     */
+    public void setMetricsListener(MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    private void failed(DecryptFailure cause) {
+        MetricsListener listener = this.metricsListener;
+        if (listener != null) {
+            listener.onDecryptFailure(cause);
+        }
+    }
+
+    /**
+     * Stops the background work and zeroes every key, values can no longer be
+     * encrypted or decrypted.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        ScheduledFuture<?> maintenance = this.maintenance.get();
+        if (maintenance != null) {
+            maintenance.cancel(false);
+        }
+
+        Slots slots = this.slots.get();
+        for (Key key : this.slots.getAndSet(new Slots(new Key[slots.keys.length], slots.base, 0)).keys) {
+            if (key != null) {
+                key.retire();
+            }
+        }
+        char[] spare = this.spare.getAndSet(null);
+        if (spare != null) {
+            Arrays.fill(spare, '\0');
+        }
+    }
+
+    /**
+     * Publishes a new key, using the pre-generated key if there is one.
+     *
+     * @return The published snapshot or null if another thread changed the slots
+     *         first
+     */
+    private Slots rotate(Slots slots) {
+        KeyRotationEvent event = new KeyRotationEvent();
+        event.begin();
+        char[] material = this.spare.getAndSet(null);
+        boolean pregenerated = material != null;
+        if (!pregenerated) {
+            material = Key.generate(this.keyBits);
+        }
+
+        Slots next = slots.rotate(material, this.keyTtl, this.maxTtl);
+        if (!this.slots.compareAndSet(slots, next)) {
+            // keep the material for the next rotation
+            if (!this.spare.compareAndSet(null, material)) {
+                Arrays.fill(material, '\0');
+            }
+            return null;
+        }
+
+        Key replaced = slots.replaced();
+        if (replaced != null) {
+            replaced.retire();
+        }
+        if (event.shouldCommit()) {
+            event.keyId = next.current().id;
+            event.pregenerated = pregenerated;
+            event.commit();
+        }
+        MetricsListener listener = this.metricsListener;
+        if (listener != null) {
+            listener.onKeyRotated();
+        }
+        if (pregenerated && this.scheduler != null) {
+            try {
+                this.scheduler.execute(this::refill);
+            } catch (RejectedExecutionException ex) {
+                // scheduler shut down, fall back to on-demand keys
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Background work: swaps in the next key if the current key has expired,
+     * purges keys past their decryption TTL and generates the next key.
+     * Reschedules itself for the next expiry.
+     */
+    private void maintain() {
+        if (this.closed) {
+            return;
+        }
+
+        try {
+            Slots slots = this.slots.get();
+            Key current = slots.current();
+            if (current != null && current.isExpired()) {
+                this.rotate(slots);
+            }
+
+            this.purge();
+            this.refill();
+        } finally {
+            this.schedule();
+        }
+    }
+
+    private void refill() {
+        if (this.spare.get() == null) {
+            char[] material = Key.generate(this.keyBits);
+            if (!this.spare.compareAndSet(null, material)) {
+                Arrays.fill(material, '\0');
+            }
+        }
+
+        if (this.closed) {
+            // raced with close
+            char[] spare = this.spare.getAndSet(null);
+            if (spare != null) {
+                Arrays.fill(spare, '\0');
+            }
+        }
+    }
+
+    private void purge() {
+        Slots slots = this.slots.get();
+        for (int i = 0; i < slots.keys.length; i++) {
+            Key key = slots.keys[i];
+            if (key != null && i != slots.keyIndex && !key.isValid()) {
+                Slots next = slots.remove(i);
+                if (!this.slots.compareAndSet(slots, next)) {
+                    // changed concurrently, the next run will retry
+                    return;
+                }
+                key.retire();
+                slots = next;
+                KeyPurgeEvent event = new KeyPurgeEvent();
+                if (event.shouldCommit()) {
+                    event.keyId = key.id;
+                    event.commit();
+                }
+                MetricsListener listener = this.metricsListener;
+                if (listener != null) {
+                    listener.onKeyPurged();
                 }
             }
+        }
+    }
 
-            index--;
-            if (index < 0) {
-                index = this.keys.length - 1;
+    private void schedule() {
+        if (this.closed) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long next = now + Math.max(this.keyTtl, 1);
+        for (Key key : this.slots.get().keys) {
+            if (key != null) {
+                if (key.expires > now) {
+                    next = Math.min(next, key.expires);
+                }
+                if (key.maxTtl > now) {
+                    next = Math.min(next, key.maxTtl);
+                }
             }
-        } while (index != this.keyIndex);
+        }
 
-        throw new RuntimeException("Unable to decrypt value using available keys.");
+        ScheduledFuture<?> future = this.scheduler.schedule(this::maintain, Math.max(next - now, 1),
+                TimeUnit.MILLISECONDS);
+        this.maintenance.set(future);
+        if (this.closed) {
+            // raced with close
+            future.cancel(false);
+        }
     }
 
     @Override
@@ -155,11 +565,36 @@ public class RotatingMemoryBackedCipher implements EphemeralCipher {
         return Encodings.Base64.encode(bytes);
     }
 
-    private int fromBase64(String value) {
-        byte[] bytes = Encodings.Base64.decode(value);
-        return ((bytes[0] & 0xFF) << 24) | //
-                ((bytes[1] & 0xFF) << 16) | //
-                ((bytes[2] & 0xFF) << 8) | //
-                ((bytes[3] & 0xFF) << 0);
+    /**
+     * Decodes the ID directly from the value. IDs are always 4 bytes, which is 6
+     * significant Base64 characters.
+     */
+    private int fromBase64(String value, int end) {
+        if (end < 6) {
+            this.failed(DecryptFailure.INVALID_VALUE);
+            throw new RuntimeException("Invalid key ID.");
+        }
+
+        long bits = 0;
+        for (int i = 0; i < 6; i++) {
+            bits = (bits << 6) | this.fromBase64(value.charAt(i));
+        }
+        return (int) (bits >> 4);
+    }
+
+    private int fromBase64(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        } else if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 26;
+        } else if (c >= '0' && c <= '9') {
+            return c - '0' + 52;
+        } else if (c == '+' || c == '-') {
+            return 62;
+        } else if (c == '/' || c == '_') {
+            return 63;
+        }
+        this.failed(DecryptFailure.INVALID_VALUE);
+        throw new RuntimeException("Invalid key ID.");
     }
 }
@@ -1,6 +1,7 @@
 module io.github.lc.oss.commons.encryption {
     requires io.github.lc.oss.commons.encoding;
     requires io.github.lc.oss.commons.util;
+    requires jdk.jfr;
 
     exports io.github.lc.oss.commons.encryption;
     exports io.github.lc.oss.commons.encryption.ephemeral;
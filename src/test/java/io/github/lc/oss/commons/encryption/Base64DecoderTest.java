@@ -0,0 +1,42 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.util.Base64;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.testing.AbstractTest;
+
+public class Base64DecoderTest extends AbstractTest {
+    @Test
+    public void test_decode() {
+        Random random = new Random(0);
+        for (int i = 0; i < 200; i++) {
+            byte[] data = new byte[i];
+            random.nextBytes(data);
+
+            String padded = Base64.getEncoder().encodeToString(data);
+            String unpadded = Base64.getEncoder().withoutPadding().encodeToString(data);
+            String url = Base64.getUrlEncoder().encodeToString(data);
+            Assertions.assertArrayEquals(data, Base64Decoder.decode(padded, 0, padded.length()));
+            Assertions.assertArrayEquals(data, Base64Decoder.decode(unpadded, 0, unpadded.length()));
+            Assertions.assertArrayEquals(data, Base64Decoder.decode(url, 0, url.length()));
+
+            String embedded = "ab$" + padded + "$cd";
+            Assertions.assertArrayEquals(data, Base64Decoder.decode(embedded, 3, embedded.length() - 3));
+        }
+    }
+
+    @Test
+    public void test_invalid() {
+        for (String value : new String[] { "A", "AAAAA", "AA$A", "AA A", "AA\u00e9A" }) {
+            try {
+                Base64Decoder.decode(value, 0, value.length());
+                Assertions.fail("Expected exception");
+            } catch (RuntimeException ex) {
+                Assertions.assertEquals("Invalid Base64 value.", ex.getMessage());
+            }
+        }
+    }
+}
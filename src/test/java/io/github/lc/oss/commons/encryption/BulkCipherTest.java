@@ -0,0 +1,158 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.testing.AbstractTest;
+
+public class BulkCipherTest extends AbstractTest {
+    private static final char[] PASSWORD = "password".toCharArray();
+
+    private List<byte[]> values(int count) {
+        List<byte[]> values = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            values.add(("value " + i).getBytes(StandardCharsets.UTF_8));
+        }
+        return values;
+    }
+
+    private List<byte[]> values(List<BulkResult> results) {
+        return results.stream().map(r -> r.getValue()).collect(Collectors.toList());
+    }
+
+    @Test
+    public void test_badParallelism() {
+        try {
+            new BulkCipher(Ciphers.AES128, ForkJoinPool.commonPool(), 0);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Parallelism must be positive", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_defaults() {
+        BulkCipher bulk = new BulkCipher();
+        Assertions.assertSame(Ciphers.AES256, this.getField("cipher", bulk));
+        Assertions.assertSame(ForkJoinPool.commonPool(), this.getField("executor", bulk));
+        int parallelism = this.getField("parallelism", bulk);
+        Assertions.assertEquals(ForkJoinPool.getCommonPoolParallelism(), parallelism);
+
+        Assertions.assertTrue(bulk.encrypt(new ArrayList<>(), BulkCipherTest.PASSWORD).isEmpty());
+    }
+
+    @Test
+    public void test_roundTrip() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            BulkCipher bulk = new BulkCipher(Ciphers.AES128, executor, 4);
+            List<byte[]> values = this.values(1000);
+
+            List<BulkResult> encrypted = bulk.encrypt(values, BulkCipherTest.PASSWORD);
+            Assertions.assertEquals(values.size(), encrypted.size());
+            for (int i = 0; i < values.size(); i++) {
+                BulkResult result = encrypted.get(i);
+                Assertions.assertEquals(i, result.getIndex());
+                Assertions.assertTrue(result.isSuccess());
+                Assertions.assertNull(result.getError());
+            }
+            Assertions.assertArrayEquals(values.get(500),
+                    Ciphers.AES128.decryptEnvelope(encrypted.get(500).getValue(), BulkCipherTest.PASSWORD));
+
+            List<BulkResult> decrypted = bulk.decrypt(this.values(encrypted), BulkCipherTest.PASSWORD);
+            for (int i = 0; i < values.size(); i++) {
+                Assertions.assertArrayEquals(values.get(i), decrypted.get(i).getValue());
+            }
+
+            DerivedKey key = Ciphers.AES128.deriveKey(BulkCipherTest.PASSWORD);
+            encrypted = bulk.encrypt(values.stream(), key);
+            decrypted = bulk.decrypt(this.values(encrypted).stream(), key);
+            for (int i = 0; i < values.size(); i++) {
+                Assertions.assertArrayEquals(values.get(i), decrypted.get(i).getValue());
+            }
+
+            // fewer items than threads
+            decrypted = bulk.decrypt(this.values(encrypted).subList(0, 2), key);
+            Assertions.assertEquals(2, decrypted.size());
+            Assertions.assertArrayEquals(values.get(1), decrypted.get(1).getValue());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_failures() {
+        BulkCipher bulk = new BulkCipher(Ciphers.AES128, ForkJoinPool.commonPool(), 2);
+        DerivedKey key = Ciphers.AES128.deriveKey(BulkCipherTest.PASSWORD);
+
+        List<byte[]> values = this.values(20);
+        values.set(3, null);
+        List<BulkResult> encrypted = bulk.encrypt(values, key);
+        Assertions.assertFalse(encrypted.get(3).isSuccess());
+        Assertions.assertNull(encrypted.get(3).getValue());
+        Assertions.assertNotNull(encrypted.get(3).getError());
+        Assertions.assertEquals(19, encrypted.stream().filter(r -> r.isSuccess()).count());
+
+        List<byte[]> envelopes = this.values(encrypted);
+        envelopes.set(3, new byte[] { 0x00 });
+        envelopes.set(7, Arrays.copyOf(envelopes.get(7), envelopes.get(7).length - 1));
+        List<BulkResult> decrypted = bulk.decrypt(envelopes, key);
+        Assertions.assertEquals("Envelope is truncated.", decrypted.get(3).getError().getMessage());
+        Assertions.assertTrue(decrypted.get(7).getError().getMessage().contains("AEADBadTagException"));
+        for (int i = 0; i < values.size(); i++) {
+            if (i != 3 && i != 7) {
+                Assertions.assertArrayEquals(values.get(i), decrypted.get(i).getValue());
+            }
+        }
+
+        // every item fails, the call does not
+        decrypted = bulk.decrypt(envelopes, Ciphers.AES128.deriveKey(BulkCipherTest.PASSWORD));
+        Assertions.assertTrue(decrypted.stream().noneMatch(r -> r.isSuccess()));
+        Assertions.assertEquals("Value was not encrypted using the salt of this key.",
+                decrypted.get(0).getError().getMessage());
+    }
+
+    @Test
+    public void test_metrics() {
+        BulkCipher bulk = new BulkCipher(Ciphers.AES128, ForkJoinPool.commonPool(), 2);
+        DerivedKey key = Ciphers.AES128.deriveKey(BulkCipherTest.PASSWORD);
+
+        BulkMetrics metrics = bulk.getMetrics();
+        Assertions.assertEquals(0, metrics.getItems());
+        Assertions.assertEquals(0, metrics.getItemsPerSecond());
+        Assertions.assertEquals(0, metrics.getBytesPerSecond());
+
+        List<byte[]> values = this.values(10);
+        values.add(new byte[] { 0x00 });
+        List<BulkResult> encrypted = bulk.encrypt(values, key);
+        List<byte[]> envelopes = this.values(encrypted);
+        envelopes.set(10, new byte[] { 0x00 });
+        bulk.decrypt(envelopes, key);
+
+        metrics = bulk.getMetrics();
+        Assertions.assertEquals(22, metrics.getItems());
+        Assertions.assertEquals(1, metrics.getFailures());
+        long bytes = values.stream().mapToLong(v -> v.length).sum()
+                + envelopes.stream().mapToLong(v -> v.length).sum();
+        Assertions.assertEquals(bytes, metrics.getBytes());
+        Assertions.assertTrue(metrics.getNanos() > 0);
+        Assertions.assertTrue(metrics.getItemsPerSecond() > 0);
+        Assertions.assertTrue(metrics.getBytesPerSecond() > metrics.getItemsPerSecond());
+
+        bulk.resetMetrics();
+        metrics = bulk.getMetrics();
+        Assertions.assertEquals(0, metrics.getItems());
+        Assertions.assertEquals(0, metrics.getFailures());
+        Assertions.assertEquals(0, metrics.getBytes());
+        Assertions.assertEquals(0, metrics.getNanos());
+    }
+}
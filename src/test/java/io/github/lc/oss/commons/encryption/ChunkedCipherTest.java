@@ -0,0 +1,195 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.testing.AbstractTest;
+
+public class ChunkedCipherTest extends AbstractTest {
+    private static final int SEGMENT = 16;
+    private static final char[] PASSWORD = "password".toCharArray();
+
+    private static DerivedKey key;
+
+    private DerivedKey getKey() {
+        if (ChunkedCipherTest.key == null) {
+            ChunkedCipherTest.key = Ciphers.AES128.deriveKey(ChunkedCipherTest.PASSWORD);
+        }
+        return ChunkedCipherTest.key;
+    }
+
+    private byte[] data(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    private void assertFails(Runnable r, String message) {
+        try {
+            r.run();
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertTrue(ex.getMessage().contains(message), ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_badArguments() {
+        Arrays.asList(0, 64 * 1024 * 1024 + 1).forEach(i -> {
+            try {
+                new ChunkedCipher(Ciphers.AES128, i);
+                Assertions.fail("Expected exception");
+            } catch (RuntimeException ex) {
+                Assertions.assertEquals("Segment size must be between 1 and 67108864 bytes.", ex.getMessage());
+            }
+        });
+
+        try {
+            new ChunkedCipher(Ciphers.AES128, 16, ForkJoinPool.commonPool(), 0);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Parallelism must be positive", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_defaults() {
+        ChunkedCipher cipher = new ChunkedCipher();
+        Assertions.assertSame(Ciphers.AES256, this.getField("cipher", cipher));
+        Assertions.assertSame(ForkJoinPool.commonPool(), this.getField("executor", cipher));
+        int segmentSize = this.getField("segmentSize", cipher);
+        Assertions.assertEquals(64 * 1024, segmentSize);
+        int parallelism = this.getField("parallelism", cipher);
+        Assertions.assertEquals(ForkJoinPool.getCommonPoolParallelism(), parallelism);
+    }
+
+    @Test
+    public void test_roundTrip() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ChunkedCipher cipher = new ChunkedCipher(Ciphers.AES128, ChunkedCipherTest.SEGMENT, executor, 4);
+            final int header = 4 + 4 + 16 + 7 + 4;
+
+            for (int size : new int[] { 0, 1, 15, 16, 17, 32, 33, 1000, 4096 }) {
+                byte[] data = this.data(size);
+                byte[] encrypted = cipher.encrypt(data, this.getKey());
+                int segments = Math.max(1, (size + 15) / 16);
+                Assertions.assertEquals(header + size + segments * 16, encrypted.length);
+                Assertions.assertEquals(encrypted.length, cipher.getEncryptedSize(size, this.getKey()));
+                Assertions.assertEquals(segments, cipher.getSegmentCount(ByteBuffer.wrap(encrypted)));
+                Assertions.assertEquals(size, cipher.getDecryptedSize(ByteBuffer.wrap(encrypted)));
+
+                Assertions.assertArrayEquals(data, cipher.decrypt(encrypted, this.getKey()));
+            }
+
+            byte[] data = this.data(1000);
+            Assertions.assertArrayEquals(data,
+                    cipher.decrypt(cipher.encrypt(data, ChunkedCipherTest.PASSWORD), ChunkedCipherTest.PASSWORD));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_buffers() {
+        ChunkedCipher cipher = new ChunkedCipher(Ciphers.AES128, ChunkedCipherTest.SEGMENT);
+        byte[] data = this.data(100);
+
+        // direct buffers with non zero positions
+        ByteBuffer in = ByteBuffer.allocateDirect(110);
+        in.position(10);
+        in.put(data);
+        in.position(10);
+        ByteBuffer out = ByteBuffer.allocateDirect((int) cipher.getEncryptedSize(100, this.getKey()) + 5);
+        out.position(5);
+
+        int written = cipher.encrypt(in, out, this.getKey());
+        Assertions.assertEquals(out.capacity() - 5, written);
+        Assertions.assertEquals(0, in.remaining());
+        Assertions.assertEquals(0, out.remaining());
+
+        out.position(5);
+        ByteBuffer plain = ByteBuffer.allocate(103);
+        plain.position(3);
+        Assertions.assertEquals(100, cipher.decrypt(out, plain, this.getKey()));
+        Assertions.assertEquals(0, out.remaining());
+        Assertions.assertArrayEquals(data, Arrays.copyOfRange(plain.array(), 3, 103));
+
+        this.assertFails(() -> cipher.encrypt(ByteBuffer.wrap(data), ByteBuffer.allocate(100), this.getKey()),
+                "Output buffer is too small.");
+        byte[] encrypted = cipher.encrypt(data, this.getKey());
+        this.assertFails(() -> cipher.decrypt(ByteBuffer.wrap(encrypted), ByteBuffer.allocate(99), this.getKey()),
+                "Output buffer is too small.");
+    }
+
+    @Test
+    public void test_streamingInterop() {
+        ChunkedCipher chunked = new ChunkedCipher(Ciphers.AES128, ChunkedCipherTest.SEGMENT);
+        StreamingCipher streaming = new StreamingCipher(Ciphers.AES128, ChunkedCipherTest.SEGMENT);
+
+        for (int size : new int[] { 0, 16, 100 }) {
+            byte[] data = this.data(size);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            streaming.decrypt(new ByteArrayInputStream(chunked.encrypt(data, this.getKey())), out, this.getKey());
+            Assertions.assertArrayEquals(data, out.toByteArray());
+
+            out = new ByteArrayOutputStream();
+            streaming.encrypt(new ByteArrayInputStream(data), out, this.getKey());
+            Assertions.assertArrayEquals(data, chunked.decrypt(out.toByteArray(), this.getKey()));
+        }
+    }
+
+    @Test
+    public void test_randomAccess() {
+        ChunkedCipher cipher = new ChunkedCipher(Ciphers.AES128, ChunkedCipherTest.SEGMENT);
+        byte[] data = this.data(100);
+        ByteBuffer encrypted = ByteBuffer.wrap(cipher.encrypt(data, ChunkedCipherTest.PASSWORD));
+
+        DerivedKey key = cipher.deriveKey(encrypted, ChunkedCipherTest.PASSWORD);
+        Assertions.assertEquals(7, cipher.getSegmentCount(encrypted));
+        Assertions.assertArrayEquals(Arrays.copyOfRange(data, 32, 48), cipher.decryptSegment(encrypted, 2, key));
+        Assertions.assertArrayEquals(Arrays.copyOfRange(data, 96, 100), cipher.decryptSegment(encrypted, 6, key));
+        Assertions.assertEquals(0, encrypted.position());
+
+        Assertions.assertArrayEquals(Arrays.copyOfRange(data, 10, 60), cipher.decrypt(encrypted, 10, 50, key));
+        Assertions.assertArrayEquals(Arrays.copyOfRange(data, 20, 25), cipher.decrypt(encrypted, 20, 5, key));
+        Assertions.assertArrayEquals(data, cipher.decrypt(encrypted, 0, 100, key));
+        Assertions.assertArrayEquals(new byte[0], cipher.decrypt(encrypted, 100, 0, key));
+
+        this.assertFails(() -> cipher.decryptSegment(encrypted, 7, key), "Segment index out of range.");
+        this.assertFails(() -> cipher.decryptSegment(encrypted, -1, key), "Segment index out of range.");
+        this.assertFails(() -> cipher.decrypt(encrypted, 90, 11, key), "Range is outside of the decrypted value.");
+        this.assertFails(() -> cipher.decrypt(encrypted, -1, 1, key), "Range is outside of the decrypted value.");
+        this.assertFails(() -> cipher.decryptSegment(encrypted, 0, this.getKey()),
+                "Value was not encrypted using the salt of this key.");
+    }
+
+    @Test
+    public void test_tampering() {
+        ChunkedCipher cipher = new ChunkedCipher(Ciphers.AES128, ChunkedCipherTest.SEGMENT);
+        byte[] encrypted = cipher.encrypt(this.data(100), this.getKey());
+
+        byte[] flipped = Arrays.copyOf(encrypted, encrypted.length);
+        flipped[flipped.length - 20] ^= 0x01;
+        this.assertFails(() -> cipher.decrypt(flipped, this.getKey()), "Tag mismatch");
+        // other segments still decrypt
+        Assertions.assertEquals(16, cipher.decryptSegment(ByteBuffer.wrap(flipped), 0, this.getKey()).length);
+
+        // dropping the last segment leaves a full segment flagged as not last
+        byte[] truncated = Arrays.copyOf(encrypted, encrypted.length - 20);
+        this.assertFails(() -> cipher.decrypt(truncated, this.getKey()), "Tag mismatch");
+
+        byte[] partial = Arrays.copyOf(encrypted, 35 + 10);
+        this.assertFails(() -> cipher.decrypt(partial, this.getKey()), "Encrypted data is truncated.");
+    }
+}
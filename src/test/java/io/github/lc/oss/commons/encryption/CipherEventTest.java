@@ -0,0 +1,84 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.testing.AbstractTest;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class CipherEventTest extends AbstractTest {
+    private static final String PREFIX = "io.github.lc.oss.commons.encryption.";
+    private static final char[] PASSWORD = "password".toCharArray();
+
+    private List<RecordedEvent> record(boolean enable, Runnable work) {
+        try (Recording recording = new Recording()) {
+            if (enable) {
+                for (String name : new String[] { "DeriveKey", "Encrypt", "Decrypt" }) {
+                    recording.enable(CipherEventTest.PREFIX + name);
+                }
+            }
+            recording.start();
+            work.run();
+            recording.stop();
+
+            Path file = Files.createTempFile("cipher-events", ".jfr");
+            try {
+                recording.dump(file);
+                return RecordingFile.readAllEvents(file).stream()
+                        .filter(e -> e.getEventType().getName().startsWith(CipherEventTest.PREFIX))
+                        .collect(Collectors.toList());
+            } finally {
+                Files.delete(file);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream().filter(e -> e.getEventType().getName().equals(CipherEventTest.PREFIX + name))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void test_disabledByDefault() {
+        List<RecordedEvent> events = this.record(false, () -> Ciphers.AES128
+                .decryptString(Ciphers.AES128.encrypt("data", CipherEventTest.PASSWORD), CipherEventTest.PASSWORD));
+        Assertions.assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void test_events() {
+        AES256 aes = new AES256();
+        List<RecordedEvent> events = this.record(true, () -> {
+            DerivedKey key = aes.deriveKey(CipherEventTest.PASSWORD, Kdfs.HKDF_SHA256);
+            aes.decrypt(aes.encrypt(new byte[100], key), key);
+            aes.decryptAll(aes.encryptAll(Arrays.asList(new byte[10]), key), key);
+        });
+
+        List<RecordedEvent> derive = this.named(events, "DeriveKey");
+        Assertions.assertEquals(1, derive.size());
+        Assertions.assertEquals(Kdfs.HKDF_SHA256.getAlgorithm(), derive.get(0).getString("kdf"));
+        Assertions.assertEquals(256, derive.get(0).getInt("keySize"));
+
+        List<RecordedEvent> encrypt = this.named(events, "Encrypt");
+        Assertions.assertEquals(2, encrypt.size());
+        Assertions.assertEquals("AES/GCM/NoPadding", encrypt.get(0).getString("algorithm"));
+        Assertions.assertEquals(100, encrypt.get(0).getLong("bytes"));
+        Assertions.assertEquals(10, encrypt.get(1).getLong("bytes"));
+
+        List<RecordedEvent> decrypt = this.named(events, "Decrypt");
+        Assertions.assertEquals(2, decrypt.size());
+        Assertions.assertEquals(116, decrypt.get(0).getLong("bytes"));
+        Assertions.assertEquals(256, decrypt.get(1).getInt("keySize"));
+    }
+}
@@ -0,0 +1,206 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.encoding.Encodings;
+import io.github.lc.oss.commons.testing.AbstractTest;
+
+public class CipherMetricsTest extends AbstractTest {
+    private static final char[] PASSWORD = "password".toCharArray();
+
+    @Test
+    public void test_decryptFailure() {
+        Assertions.assertEquals(4, DecryptFailure.all().size());
+        Assertions.assertTrue(DecryptFailure.hasName("key_expired"));
+        Assertions.assertSame(DecryptFailure.AUTHENTICATION, DecryptFailure.byName("Authentication"));
+        Assertions.assertSame(DecryptFailure.KEY_NOT_FOUND, DecryptFailure.tryParse("KEY_NOT_FOUND"));
+    }
+
+    @Test
+    public void test_disabled() {
+        AES128 aes = new AES128();
+        Assertions.assertNull(aes.getMetricsListener());
+
+        CipherMetrics metrics = new CipherMetrics();
+        aes.setMetricsListener(metrics);
+        Assertions.assertSame(metrics, aes.getMetricsListener());
+        aes.setMetricsListener(null);
+
+        aes.decryptString(aes.encrypt("data", CipherMetricsTest.PASSWORD), CipherMetricsTest.PASSWORD);
+        Assertions.assertEquals(0, metrics.getDerivations().getCount());
+        Assertions.assertEquals(0, metrics.getEncryptions().getCount());
+    }
+
+    @Test
+    public void test_operations() {
+        AES128 aes = new AES128();
+        CipherMetrics metrics = new CipherMetrics();
+        aes.setMetricsListener(metrics);
+
+        DerivedKey key = aes.deriveKey(CipherMetricsTest.PASSWORD);
+        Assertions.assertEquals(1, metrics.getDerivations().getCount());
+
+        String encrypted = aes.encrypt("data", key);
+        Assertions.assertEquals(1, metrics.getEncryptions().getCount());
+        Assertions.assertEquals(4, metrics.getBytesEncrypted());
+        Assertions.assertEquals(1, metrics.getEncodes().getCount());
+        Assertions.assertEquals(4 + 16, metrics.getBytesEncoded());
+
+        Assertions.assertEquals("data", aes.decryptString(encrypted, key));
+        Assertions.assertEquals(1, metrics.getDecryptions().getCount());
+        Assertions.assertEquals(4 + 16, metrics.getBytesDecrypted());
+        Assertions.assertEquals(1, metrics.getDecodes().getCount());
+        Assertions.assertEquals(4 + 16, metrics.getBytesDecoded());
+
+        // password operations derive every time
+        aes.decrypt(aes.encrypt("data", CipherMetricsTest.PASSWORD), CipherMetricsTest.PASSWORD);
+        Assertions.assertEquals(3, metrics.getDerivations().getCount());
+        Assertions.assertTrue(metrics.getDerivations().getTotalNanos() > 0);
+
+        // batches and buffers
+        List<byte[]> envelopes = aes.encryptAll(Arrays.asList(new byte[10], new byte[20]), key);
+        aes.decryptAll(envelopes, key);
+        Assertions.assertEquals(4, metrics.getEncryptions().getCount());
+        Assertions.assertEquals(4 + 4 + 10 + 20, metrics.getBytesEncrypted());
+        Assertions.assertEquals(4, metrics.getDecryptions().getCount());
+        Assertions.assertEquals(2 * 20 + 26 + 36, metrics.getBytesDecrypted());
+
+        metrics.reset();
+        Assertions.assertEquals(0, metrics.getEncryptions().getCount());
+        Assertions.assertEquals(0, metrics.getBytesDecrypted());
+    }
+
+    @Test
+    public void test_keyCache() {
+        AES128 aes = new AES128();
+        CipherMetrics metrics = new CipherMetrics();
+        aes.setMetricsListener(metrics);
+        aes.setKeyCache(new KeyCache());
+
+        byte[] salt = new byte[16];
+        String encrypted = aes.encrypt("data".getBytes(StandardCharsets.UTF_8), CipherMetricsTest.PASSWORD, salt);
+        aes.decrypt(encrypted, CipherMetricsTest.PASSWORD);
+        Assertions.assertEquals(1, metrics.getCacheMisses());
+        Assertions.assertEquals(1, metrics.getCacheHits());
+        Assertions.assertEquals(1, metrics.getDerivations().getCount());
+    }
+
+    @Test
+    public void test_failures() {
+        AES128 aes = new AES128();
+        CipherMetrics metrics = new CipherMetrics();
+        aes.setMetricsListener(metrics);
+
+        String encrypted = aes.encrypt("data", CipherMetricsTest.PASSWORD);
+        try {
+            aes.decrypt(encrypted, "wrong".toCharArray());
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertTrue(ex.getMessage().contains("AEADBadTagException"), ex.getMessage());
+        }
+        Assertions.assertEquals(1, metrics.getFailures(DecryptFailure.AUTHENTICATION));
+
+        try {
+            aes.decrypt("a$b", CipherMetricsTest.PASSWORD);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Invalid encrypted value.", ex.getMessage());
+        }
+        Assertions.assertEquals(1, metrics.getFailures(DecryptFailure.INVALID_VALUE));
+        Assertions.assertEquals(0, metrics.getFailures(DecryptFailure.KEY_NOT_FOUND));
+
+        try {
+            aes.decrypt("!!$b$c", CipherMetricsTest.PASSWORD);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Invalid Base64 value.", ex.getMessage());
+        }
+        Assertions.assertEquals(2, metrics.getFailures(DecryptFailure.INVALID_VALUE));
+
+        try {
+            aes.decrypt(Encodings.Base64.encode(new byte[] { 0x7F }) + "$a$b$c", CipherMetricsTest.PASSWORD);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Unsupported key derivation function.", ex.getMessage());
+        }
+        Assertions.assertEquals(3, metrics.getFailures(DecryptFailure.INVALID_VALUE));
+
+        try {
+            aes.decryptEnvelope(new byte[1], CipherMetricsTest.PASSWORD);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Envelope is truncated.", ex.getMessage());
+        }
+        Assertions.assertEquals(4, metrics.getFailures(DecryptFailure.INVALID_VALUE));
+        Assertions.assertEquals(1, metrics.getFailures(DecryptFailure.AUTHENTICATION));
+
+        metrics.reset();
+        Assertions.assertEquals(0, metrics.getFailures(DecryptFailure.AUTHENTICATION));
+    }
+
+    @Test
+    public void test_segments() {
+        AES128 aes = new AES128();
+        CipherMetrics metrics = new CipherMetrics();
+        aes.setMetricsListener(metrics);
+        DerivedKey key = aes.deriveKey(CipherMetricsTest.PASSWORD);
+        byte[] data = new byte[100];
+
+        // 7 segments of up to 16 bytes
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamingCipher streaming = new StreamingCipher(aes, 16);
+        streaming.encrypt(new ByteArrayInputStream(data), out, key);
+        Assertions.assertEquals(7, metrics.getEncryptions().getCount());
+        Assertions.assertEquals(100, metrics.getBytesEncrypted());
+        byte[] encrypted = out.toByteArray();
+
+        streaming.decrypt(new ByteArrayInputStream(encrypted), new ByteArrayOutputStream(), key);
+        Assertions.assertEquals(7, metrics.getDecryptions().getCount());
+        Assertions.assertEquals(100 + 7 * 16, metrics.getBytesDecrypted());
+
+        ChunkedCipher chunked = new ChunkedCipher(aes, 16);
+        Assertions.assertArrayEquals(data, chunked.decrypt(chunked.encrypt(data, key), key));
+        Assertions.assertEquals(14, metrics.getEncryptions().getCount());
+        Assertions.assertEquals(14, metrics.getDecryptions().getCount());
+        Assertions.assertEquals(16, chunked.decryptSegment(ByteBuffer.wrap(encrypted), 0, key).length);
+        Assertions.assertEquals(15, metrics.getDecryptions().getCount());
+
+        encrypted[encrypted.length - 1] ^= 0x01;
+        try {
+            streaming.decrypt(new ByteArrayInputStream(encrypted), new ByteArrayOutputStream(), key);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertTrue(ex.getMessage().contains("Tag mismatch"), ex.getMessage());
+        }
+        Assertions.assertEquals(1, metrics.getFailures(DecryptFailure.AUTHENTICATION));
+
+        try {
+            chunked.decrypt(encrypted, key);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertTrue(ex.getMessage().contains("Tag mismatch"), ex.getMessage());
+        }
+        Assertions.assertEquals(2, metrics.getFailures(DecryptFailure.AUTHENTICATION));
+    }
+
+    @Test
+    public void test_ciphers() {
+        CipherMetrics metrics = new CipherMetrics();
+        try {
+            Ciphers.AES256.setMetricsListener(metrics);
+            Assertions.assertSame(metrics, Ciphers.AES256.getMetricsListener());
+            Ciphers.AES256.encrypt("data", CipherMetricsTest.PASSWORD);
+            Assertions.assertEquals(1, metrics.getEncryptions().getCount());
+        } finally {
+            Ciphers.AES256.setMetricsListener(null);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.testing.AbstractTest;
+
+public class CipherProvidersTest extends AbstractTest {
+    private static final String ALGORITHM = "AES/GCM/NoPadding";
+
+    @Test
+    public void test_caching() {
+        Set<CipherProviders> expected = new HashSet<>(Arrays.asList(CipherProviders.values()));
+        Assertions.assertEquals(expected, CipherProviders.all());
+
+        Assertions.assertTrue(CipherProviders.hasName("thread_local"));
+        Assertions.assertSame(CipherProviders.POOLED, CipherProviders.byName("Pooled"));
+        Assertions.assertSame(CipherProviders.NEW_INSTANCE, CipherProviders.tryParse("NEW_INSTANCE"));
+    }
+
+    @Test
+    public void test_newInstance() throws Exception {
+        javax.crypto.Cipher c1 = CipherProviders.NEW_INSTANCE.acquire(CipherProvidersTest.ALGORITHM);
+        CipherProviders.NEW_INSTANCE.release(c1);
+        javax.crypto.Cipher c2 = CipherProviders.NEW_INSTANCE.acquire(CipherProvidersTest.ALGORITHM);
+        Assertions.assertNotSame(c1, c2);
+    }
+
+    @Test
+    public void test_threadLocal() throws Exception {
+        javax.crypto.Cipher c1 = CipherProviders.THREAD_LOCAL.acquire(CipherProvidersTest.ALGORITHM);
+        javax.crypto.Cipher c2 = CipherProviders.THREAD_LOCAL.acquire(CipherProvidersTest.ALGORITHM);
+        Assertions.assertNotSame(c1, c2);
+        CipherProviders.THREAD_LOCAL.release(c1);
+
+        javax.crypto.Cipher c3 = CipherProviders.THREAD_LOCAL.acquire(CipherProvidersTest.ALGORITHM);
+        Assertions.assertSame(c1, c3);
+        CipherProviders.THREAD_LOCAL.release(c3);
+
+        Object[] other = new Object[1];
+        Thread t = new Thread(() -> {
+            try {
+                other[0] = CipherProviders.THREAD_LOCAL.acquire(CipherProvidersTest.ALGORITHM);
+            } catch (Exception ex) {
+                other[0] = ex;
+            }
+        });
+        t.start();
+        t.join();
+        Assertions.assertTrue(other[0] instanceof javax.crypto.Cipher);
+        Assertions.assertNotSame(c1, other[0]);
+    }
+
+    @Test
+    public void test_ciphers() {
+        final String data = "data";
+        final char[] password = "password".toCharArray();
+
+        for (CipherProvider provider : Arrays.asList(CipherProviders.NEW_INSTANCE, CipherProviders.THREAD_LOCAL,
+                CipherProviders.POOLED, new PooledCipherProvider(1))) {
+            AES128 aes = new AES128();
+            aes.setCipherProvider(provider);
+            Assertions.assertSame(provider, aes.getCipherProvider());
+
+            DerivedKey key = aes.deriveKey(password);
+            for (int i = 0; i < 3; i++) {
+                Assertions.assertEquals(data, aes.decryptString(aes.encrypt(data, key), key));
+            }
+
+            // reused engines must not reject a repeated key and IV
+            final byte[] iv = aes.generateIV();
+            byte[] raw1 = aes.encrypt(data.getBytes(StandardCharsets.UTF_8), key, iv);
+            byte[] raw2 = aes.encrypt(data.getBytes(StandardCharsets.UTF_8), key, iv);
+            Assertions.assertArrayEquals(raw1, raw2);
+
+            // failures release the engine in a usable state
+            raw1[0]++;
+            try {
+                aes.decrypt(raw1, key, iv);
+                Assertions.fail("Expected exception");
+            } catch (RuntimeException ex) {
+                Assertions.assertTrue(ex.getMessage().contains("javax.crypto.AEADBadTagException"));
+            }
+            Assertions.assertArrayEquals(data.getBytes(StandardCharsets.UTF_8), aes.decrypt(raw2, key, iv));
+        }
+    }
+
+    @Test
+    public void test_ciphers_required() {
+        try {
+            Ciphers.AES128.setCipherProvider(null);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Cipher provider is required", ex.getMessage());
+        }
+        Assertions.assertSame(CipherProviders.NEW_INSTANCE, Ciphers.AES128.getCipherProvider());
+
+        try {
+            Ciphers.AES256.setCipherProvider(CipherProviders.POOLED);
+            Assertions.assertSame(CipherProviders.POOLED, Ciphers.AES256.getCipherProvider());
+            String cipher = Ciphers.AES256.encrypt("data", "pw".toCharArray());
+            Assertions.assertEquals("data", Ciphers.AES256.decryptString(cipher, "pw".toCharArray()));
+        } finally {
+            Ciphers.AES256.setCipherProvider(CipherProviders.NEW_INSTANCE);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.testing.AbstractTest;
+
+public class CipherTest extends AbstractTest {
+    /*
+     * Implements only the abstract methods, as an implementation written before
+     * the default was added would.
+     */
+    private static class BasicCipher implements Cipher {
+        private final Cipher delegate = Ciphers.AES128;
+
+        @Override
+        public String encrypt(String data, char[] password) {
+            return this.delegate.encrypt(data, password);
+        }
+
+        @Override
+        public String encrypt(String data, char[] password, String salt) {
+            return this.delegate.encrypt(data, password, salt);
+        }
+
+        @Override
+        public String encrypt(byte[] data, char[] password) {
+            return this.delegate.encrypt(data, password);
+        }
+
+        @Override
+        public String encrypt(byte[] data, char[] password, byte[] salt) {
+            return this.delegate.encrypt(data, password, salt);
+        }
+
+        @Override
+        public byte[] encrypt(byte[] data, char[] password, byte[] salt, byte[] iv) {
+            return this.delegate.encrypt(data, password, salt, iv);
+        }
+
+        @Override
+        public String decryptString(String data, char[] password) {
+            return this.delegate.decryptString(data, password);
+        }
+
+        @Override
+        public byte[] decrypt(String data, char[] password) {
+            return this.delegate.decrypt(data, password);
+        }
+
+        @Override
+        public byte[] decrypt(byte[] data, char[] password, byte[] salt, byte[] iv) {
+            return this.delegate.decrypt(data, password, salt, iv);
+        }
+    }
+
+    @Test
+    public void test_defaults() {
+        Cipher cipher = new BasicCipher();
+        char[] password = "password".toCharArray();
+
+        String encrypted = cipher.encrypt("data", password);
+        Assertions.assertEquals("data", new String(cipher.decrypt("prefix" + encrypted, 6, password),
+                StandardCharsets.UTF_8));
+        Assertions.assertFalse(cipher instanceof KeyedCipher);
+    }
+}
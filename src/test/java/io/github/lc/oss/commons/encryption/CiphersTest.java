@@ -1,9 +1,18 @@
 package io.github.lc.oss.commons.encryption;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.crypto.AEADBadTagException;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -81,4 +90,368 @@ public class CiphersTest extends AbstractTest {
             Assertions.assertEquals(data, clear5);
         }
     }
+
+    @Test
+    public void test_keyCache() {
+        KeyCache cache = new KeyCache();
+        try {
+            Ciphers.AES128.setKeyCache(cache);
+            Ciphers.AES256.setKeyCache(cache);
+            Assertions.assertSame(cache, Ciphers.AES128.getKeyCache());
+            Assertions.assertSame(cache, Ciphers.AES256.getKeyCache());
+
+            final char[] password = "password".toCharArray();
+            final String salt = "salt";
+            String cipher128 = Ciphers.AES128.encrypt("data", password, salt);
+            String cipher256 = Ciphers.AES256.encrypt("data", password, salt);
+            Assertions.assertEquals(2, cache.getMisses());
+
+            Assertions.assertEquals("data", Ciphers.AES128.decryptString(cipher128, password));
+            Assertions.assertEquals("data", Ciphers.AES256.decryptString(cipher256, password));
+            Assertions.assertEquals(2, cache.getMisses());
+            Assertions.assertEquals(2, cache.getHits());
+
+            // cheap functions bypass the cache
+            DerivedKey key = Ciphers.AES128.deriveKey(password, Kdfs.HKDF_SHA256);
+            Assertions.assertEquals("data", Ciphers.AES128.decryptString(Ciphers.AES128.encrypt("data", key), password));
+            Assertions.assertEquals(2, cache.getMisses());
+            Assertions.assertEquals(2, cache.getHits());
+            Assertions.assertEquals(2, cache.size());
+        } finally {
+            Ciphers.AES128.setKeyCache(null);
+            Ciphers.AES256.setKeyCache(null);
+        }
+        Assertions.assertNull(Ciphers.AES128.getKeyCache());
+        Assertions.assertNull(Ciphers.AES256.getKeyCache());
+    }
+
+    @Test
+    public void test_byteBuffers() {
+        final byte[] data = "data".getBytes(StandardCharsets.UTF_8);
+        final char[] password = "password".toCharArray();
+        final byte[] salt = "salt".getBytes(StandardCharsets.UTF_8);
+        final byte[] iv = new AES128().generateIV();
+
+        for (KeyedCipher c : Ciphers.all()) {
+            DerivedKey key = c.deriveKey(password, salt);
+            byte[] expected = c.encrypt(data, key, iv);
+            Assertions.assertEquals(expected.length, c.getEncryptedSize(data.length));
+            Assertions.assertEquals(data.length, c.getDecryptedSize(expected.length));
+            Assertions.assertEquals(0, c.getDecryptedSize(1));
+
+            // heap
+            ByteBuffer out = ByteBuffer.allocate(c.getEncryptedSize(data.length));
+            Assertions.assertEquals(expected.length, c.encrypt(ByteBuffer.wrap(data), out, password, salt, iv));
+            Assertions.assertArrayEquals(expected, out.array());
+
+            ByteBuffer clear = ByteBuffer.allocate(c.getDecryptedSize(expected.length));
+            Assertions.assertEquals(data.length, c.decrypt(ByteBuffer.wrap(expected), clear, password, salt, iv));
+            Assertions.assertArrayEquals(data, clear.array());
+
+            // direct
+            ByteBuffer directIn = ByteBuffer.allocateDirect(data.length);
+            directIn.put(data).flip();
+            ByteBuffer directOut = ByteBuffer.allocateDirect(c.getEncryptedSize(data.length) + 2);
+            directOut.position(2);
+            Assertions.assertEquals(expected.length, c.encrypt(directIn, directOut, key, iv));
+            Assertions.assertFalse(directIn.hasRemaining());
+            Assertions.assertFalse(directOut.hasRemaining());
+
+            directOut.position(2);
+            ByteBuffer directClear = ByteBuffer.allocateDirect(data.length);
+            Assertions.assertEquals(data.length, c.decrypt(directOut, directClear, key, iv));
+            byte[] result = new byte[data.length];
+            directClear.flip().get(result);
+            Assertions.assertArrayEquals(data, result);
+
+            // in place
+            ByteBuffer buffer = ByteBuffer.allocateDirect(c.getEncryptedSize(data.length));
+            buffer.put(data).flip();
+            Assertions.assertEquals(expected.length, c.encrypt(buffer, buffer, key, iv));
+            Assertions.assertEquals(expected.length, buffer.position());
+            buffer.flip();
+            Assertions.assertEquals(data.length, c.decrypt(buffer, buffer, key, iv));
+            Assertions.assertEquals(data.length, buffer.position());
+            buffer.flip().get(result);
+            Assertions.assertArrayEquals(data, result);
+
+            // too small
+            try {
+                c.encrypt(ByteBuffer.wrap(data), ByteBuffer.allocate(data.length), key, iv);
+                Assertions.fail("Expected exception");
+            } catch (RuntimeException ex) {
+                Assertions.assertTrue(ex.getMessage().contains("javax.crypto.ShortBufferException"));
+            }
+        }
+    }
+
+    @Test
+    public void test_offset() {
+        final char[] password = "password".toCharArray();
+
+        for (KeyedCipher c : Ciphers.all()) {
+            DerivedKey key = c.deriveKey(password);
+            String legacy = "prefix$" + c.encrypt("data", key);
+            String compact = "prefix$" + c.encryptCompact("data".getBytes(StandardCharsets.UTF_8), key);
+
+            Assertions.assertArrayEquals("data".getBytes(StandardCharsets.UTF_8), c.decrypt(legacy, 7, password));
+            Assertions.assertArrayEquals("data".getBytes(StandardCharsets.UTF_8), c.decrypt(legacy, 7, key));
+            Assertions.assertArrayEquals("data".getBytes(StandardCharsets.UTF_8), c.decrypt(compact, 7, password));
+            Assertions.assertArrayEquals("data".getBytes(StandardCharsets.UTF_8), c.decrypt(compact, 7, key));
+
+            try {
+                c.decrypt("AAAA$AAAA", password);
+                Assertions.fail("Expected exception");
+            } catch (RuntimeException ex) {
+                Assertions.assertEquals("Invalid encrypted value.", ex.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void test_keyId() {
+        final char[] password = "password".toCharArray();
+
+        for (KeyedCipher c : Ciphers.all()) {
+            DerivedKey key = c.deriveKey(password);
+            DerivedKey hkdf = c.deriveKey(password, key.getSalt(), Kdfs.HKDF_SHA256);
+            String legacy = c.encrypt("data", key);
+            String compact = c.encryptCompact("data".getBytes(StandardCharsets.UTF_8), key);
+
+            // the default function is not recorded in the legacy format
+            Assertions.assertEquals(c.getKeyId(legacy), c.getKeyId(compact));
+            Assertions.assertEquals(c.getKeyId(legacy), c.getKeyId(c.encrypt("other", key)));
+            Assertions.assertNotEquals(c.getKeyId(legacy), c.getKeyId(c.encrypt("data", hkdf)));
+            Assertions.assertNotEquals(c.getKeyId(legacy), c.getKeyId(c.encrypt("data", password)));
+
+            DerivedKey derived = c.deriveKey(compact, password);
+            Assertions.assertArrayEquals(key.getSalt(), derived.getSalt());
+            Assertions.assertEquals("data", c.decryptString(legacy, derived));
+            Assertions.assertEquals("data", c.decryptString(c.encrypt("data", hkdf), c.deriveKey(c.encrypt("x",
+                    hkdf), password)));
+
+            try {
+                c.getKeyId("AAAA$AAAA");
+                Assertions.fail("Expected exception");
+            } catch (RuntimeException ex) {
+                Assertions.assertEquals("Invalid encrypted value.", ex.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void test_associatedData() {
+        final byte[] data = "data".getBytes(StandardCharsets.UTF_8);
+        final byte[] aad = "record-1".getBytes(StandardCharsets.UTF_8);
+        final char[] password = "password".toCharArray();
+
+        for (KeyedCipher c : Ciphers.all()) {
+            DerivedKey key = c.deriveKey(password);
+            String encrypted = c.encrypt(data, aad, key);
+            Assertions.assertArrayEquals(data, c.decrypt(encrypted, aad, key));
+            Assertions.assertArrayEquals(data, c.decrypt(encrypted, aad, password));
+            Assertions.assertArrayEquals(data, c.decrypt("prefix$" + encrypted, 7, aad, key));
+            Assertions.assertArrayEquals(data, c.decrypt("prefix$" + encrypted, 7, aad, password));
+            Assertions.assertArrayEquals(data,
+                    c.decrypt(c.encrypt(data, aad, password), aad, password));
+
+            // no associated data is the same as none at all
+            Assertions.assertArrayEquals(data, c.decrypt(c.encrypt(data, key), null, key));
+            Assertions.assertArrayEquals(data, c.decrypt(c.encrypt(data, null, key), key));
+
+            this.assertBadTag(() -> c.decrypt(encrypted, key));
+            this.assertBadTag(() -> c.decrypt(encrypted, "record-2".getBytes(StandardCharsets.UTF_8), key));
+            this.assertBadTag(() -> c.decrypt(c.encrypt(data, key), aad, key));
+            this.assertBadTag(() -> c.decrypt(c.encryptCompact(data, key), aad, key));
+            this.assertBadTag(() -> c.decrypt(c.encryptCompact(data, key), 0, aad, password));
+
+            // ByteBuffers, the associated data is not consumed
+            final byte[] iv = new AES128().generateIV();
+            ByteBuffer associated = ByteBuffer.allocateDirect(aad.length + 1);
+            associated.put((byte) 0x7F).put(aad).position(1);
+            ByteBuffer out = ByteBuffer.allocate(c.getEncryptedSize(data.length));
+            Assertions.assertEquals(out.capacity(), c.encrypt(ByteBuffer.wrap(data), out, associated, key, iv));
+            Assertions.assertEquals(1, associated.position());
+            Assertions.assertFalse(Arrays.equals(c.encrypt(data, key, iv), out.array()));
+
+            ByteBuffer clear = ByteBuffer.allocate(data.length);
+            Assertions.assertEquals(data.length, c.decrypt(out.flip(), clear, associated, key, iv));
+            Assertions.assertArrayEquals(data, clear.array());
+            Assertions.assertEquals(1, associated.position());
+
+            this.assertBadTag(() -> c.decrypt(ByteBuffer.wrap(out.array()), ByteBuffer.allocate(data.length),
+                    ByteBuffer.wrap(aad, 1, aad.length - 1), key, iv));
+            Assertions.assertEquals(data.length,
+                    c.decrypt(ByteBuffer.wrap(c.encrypt(data, key, iv)), ByteBuffer.allocate(data.length), null, key,
+                            iv));
+        }
+    }
+
+    private void assertBadTag(Runnable r) {
+        try {
+            r.run();
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertTrue(ex.getCause() instanceof AEADBadTagException, String.valueOf(ex.getCause()));
+        }
+    }
+
+    private List<byte[]> values(int count) {
+        List<byte[]> values = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            values.add(("value " + i).getBytes(StandardCharsets.UTF_8));
+        }
+        return values;
+    }
+
+    private void assertValues(List<byte[]> expected, List<byte[]> actual) {
+        Assertions.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assertions.assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+
+    @Test
+    public void test_batch() {
+        final char[] password = "password".toCharArray();
+        List<byte[]> values = this.values(5);
+
+        for (KeyedCipher c : Ciphers.all()) {
+            List<byte[]> envelopes = c.encryptAll(values, password);
+            Assertions.assertEquals(values.size(), envelopes.size());
+
+            // one salt for the batch but unique IVs
+            Set<String> ivs = new HashSet<>();
+            for (byte[] envelope : envelopes) {
+                Assertions.assertArrayEquals(Arrays.copyOfRange(envelopes.get(0), 9, 9 + 16),
+                        Arrays.copyOfRange(envelope, 9, 9 + 16));
+                ivs.add(Arrays.toString(Arrays.copyOfRange(envelope, 9 + 16, 9 + 16 + 12)));
+            }
+            Assertions.assertEquals(values.size(), ivs.size());
+
+            // envelopes are interchangeable with the single value methods
+            Assertions.assertArrayEquals(values.get(3), c.decryptEnvelope(envelopes.get(3), password));
+            this.assertValues(values, c.decryptAll(envelopes, password));
+
+            DerivedKey key = c.deriveKey(password);
+            List<byte[]> keyed = c.encryptAll(values, key);
+            Assertions.assertArrayEquals(values.get(1), c.decryptEnvelope(keyed.get(1), key));
+            this.assertValues(values, c.decryptAll(keyed, key));
+
+            // mixed salts
+            List<byte[]> mixed = new ArrayList<>(envelopes);
+            mixed.addAll(keyed);
+            mixed.add(c.encryptEnvelope(values.get(0), password));
+            List<byte[]> expected = new ArrayList<>(values);
+            expected.addAll(values);
+            expected.add(values.get(0));
+            this.assertValues(expected, c.decryptAll(mixed, password));
+
+            try {
+                c.decryptAll(mixed, key);
+                Assertions.fail("Expected exception");
+            } catch (RuntimeException ex) {
+                Assertions.assertEquals("Value was not encrypted using the salt of this key.", ex.getMessage());
+            }
+
+            Assertions.assertTrue(c.encryptAll(new ArrayList<>(), key).isEmpty());
+        }
+    }
+
+    @Test
+    public void test_batchKeyDerivation() {
+        final char[] password = "password".toCharArray();
+        List<byte[]> values = this.values(3);
+        KeyCache cache = new KeyCache();
+        try {
+            Ciphers.AES128.setKeyCache(cache);
+
+            // the batch key uses a new random salt, it is not cached
+            List<byte[]> envelopes = Ciphers.AES128.encryptAll(values, password);
+            Assertions.assertEquals(0, cache.getMisses());
+            Assertions.assertEquals(0, cache.size());
+
+            // the shared key is derived once for the whole batch
+            this.assertValues(values, Ciphers.AES128.decryptAll(envelopes, password));
+            Assertions.assertEquals(1, cache.getMisses());
+            Assertions.assertEquals(0, cache.getHits());
+        } finally {
+            Ciphers.AES128.setKeyCache(null);
+        }
+    }
+
+    @Test
+    public void test_batchEngineReuse() {
+        List<Integer> counts = new ArrayList<>(Arrays.asList(0, 0));
+        CipherProvider provider = new CipherProvider() {
+            @Override
+            public javax.crypto.Cipher acquire(String transformation) throws GeneralSecurityException {
+                counts.set(0, counts.get(0) + 1);
+                return javax.crypto.Cipher.getInstance(transformation);
+            }
+
+            @Override
+            public void release(javax.crypto.Cipher cipher) {
+                counts.set(1, counts.get(1) + 1);
+            }
+        };
+
+        DerivedKey key = Ciphers.AES256.deriveKey("password".toCharArray());
+        List<byte[]> values = this.values(10);
+        try {
+            Ciphers.AES256.setCipherProvider(provider);
+
+            List<byte[]> envelopes = Ciphers.AES256.encryptAll(values, key);
+            Assertions.assertEquals(Arrays.asList(1, 1), counts);
+
+            Iterator<byte[]> i = Ciphers.AES256.decryptAll(envelopes.iterator(), key);
+            Assertions.assertArrayEquals(values.get(0), i.next());
+            Assertions.assertEquals(Arrays.asList(2, 1), counts);
+            for (int j = 1; j < values.size(); j++) {
+                Assertions.assertArrayEquals(values.get(j), i.next());
+            }
+            Assertions.assertFalse(i.hasNext());
+            Assertions.assertEquals(Arrays.asList(2, 2), counts);
+        } finally {
+            Ciphers.AES256.setCipherProvider(CipherProviders.NEW_INSTANCE);
+        }
+    }
+
+    @Test
+    public void test_batchStreams() {
+        final char[] password = "password".toCharArray();
+        List<byte[]> values = this.values(20);
+        List<Boolean> closed = new ArrayList<>();
+
+        List<byte[]> envelopes;
+        try (Stream<byte[]> s = Ciphers.AES128.encryptAll(values.stream().onClose(() -> closed.add(true)),
+                password)) {
+            envelopes = s.collect(Collectors.toList());
+        }
+        Assertions.assertEquals(1, closed.size());
+
+        // parallel sources are consumed in order
+        this.assertValues(values,
+                Ciphers.AES128.decryptAll(envelopes.parallelStream(), password).collect(Collectors.toList()));
+
+        DerivedKey key = Ciphers.AES128.deriveKey(password);
+        List<byte[]> keyed = Ciphers.AES128.encryptAll(values.stream(), key).collect(Collectors.toList());
+        this.assertValues(values, Ciphers.AES128.decryptAll(keyed.stream(), key).collect(Collectors.toList()));
+
+        Iterator<byte[]> i = Ciphers.AES128.encryptAll(values.iterator(), password);
+        Assertions.assertArrayEquals(values.get(0), Ciphers.AES128.decryptEnvelope(i.next(), password));
+
+        // failures are per item
+        List<byte[]> bad = new ArrayList<>(keyed);
+        bad.set(1, Arrays.copyOf(keyed.get(1), keyed.get(1).length - 1));
+        Iterator<byte[]> decrypted = Ciphers.AES128.decryptAll(bad.iterator(), key);
+        Assertions.assertArrayEquals(values.get(0), decrypted.next());
+        try {
+            decrypted.next();
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertTrue(ex.getMessage().contains("AEADBadTagException"), ex.getMessage());
+        }
+        Assertions.assertArrayEquals(values.get(2), decrypted.next());
+    }
 }
@@ -0,0 +1,224 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.encoding.Encodings;
+import io.github.lc.oss.commons.testing.AbstractTest;
+
+public class DataKeyCipherTest extends AbstractTest {
+    private static final char[] PASSWORD = "password".toCharArray();
+
+    private static MasterKey master;
+
+    private MasterKey getMaster() {
+        if (DataKeyCipherTest.master == null) {
+            DataKeyCipherTest.master = new PasswordMasterKey(DataKeyCipherTest.PASSWORD);
+        }
+        return DataKeyCipherTest.master;
+    }
+
+    @Test
+    public void test_badArguments() {
+        try {
+            new DataKeyCipher(null);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Master key is required", ex.getMessage());
+        }
+
+        try {
+            new DataKeyCipher(Ciphers.AES128, this.getMaster(), 0);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Cache size must be positive", ex.getMessage());
+        }
+
+        try {
+            new PasswordMasterKey(new char[0]);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Password is required", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_defaults() {
+        DataKeyCipher cipher = new DataKeyCipher(this.getMaster());
+        Assertions.assertSame(Ciphers.AES256, this.getField("cipher", cipher));
+        int cacheSize = this.getField("cacheSize", cipher);
+        Assertions.assertEquals(1024, cacheSize);
+    }
+
+    @Test
+    public void test_roundTrip() {
+        for (KeyedCipher c : Ciphers.all()) {
+            DataKeyCipher cipher = new DataKeyCipher(c, this.getMaster());
+            WrappedKey tenant1 = cipher.generateKey();
+            WrappedKey tenant2 = cipher.generateKey();
+            Assertions.assertFalse(Arrays.equals(tenant1.getId(), tenant2.getId()));
+
+            String encrypted = cipher.encrypt("data", tenant1);
+            Assertions.assertEquals("data", cipher.decryptString(encrypted, tenant1));
+            Assertions.assertArrayEquals("data".getBytes(StandardCharsets.UTF_8), cipher.decrypt(encrypted, tenant1));
+
+            // regular values, the key ID is the salt
+            DerivedKey key = cipher.getKey(tenant1);
+            Assertions.assertArrayEquals(tenant1.getId(), key.getSalt());
+            Assertions.assertSame(Kdfs.HKDF_SHA256, key.getKdf());
+            Assertions.assertEquals("data", c.decryptString(encrypted, key));
+
+            byte[] aad = "row-1".getBytes(StandardCharsets.UTF_8);
+            encrypted = cipher.encrypt("data".getBytes(StandardCharsets.UTF_8), aad, tenant2);
+            Assertions.assertArrayEquals("data".getBytes(StandardCharsets.UTF_8), cipher.decrypt(encrypted, aad,
+                    tenant2));
+
+            String value = encrypted;
+            try {
+                cipher.decrypt(value, aad, tenant1);
+                Assertions.fail("Expected exception");
+            } catch (RuntimeException ex) {
+                Assertions.assertEquals("Value was not encrypted using the salt of this key.", ex.getMessage());
+            }
+
+            try {
+                cipher.decrypt(value, tenant2);
+                Assertions.fail("Expected exception");
+            } catch (RuntimeException ex) {
+                Assertions.assertTrue(ex.getMessage().contains("Tag mismatch"), ex.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void test_cache() {
+        DataKeyCipher cipher = new DataKeyCipher(Ciphers.AES128, this.getMaster(), 2);
+        WrappedKey key1 = cipher.generateKey();
+        WrappedKey key2 = cipher.generateKey();
+        Assertions.assertEquals(2, cipher.size());
+        Assertions.assertEquals(0, cipher.getMisses());
+
+        String encrypted = cipher.encrypt("data", key1);
+        Assertions.assertEquals(1, cipher.getHits());
+
+        // least recently used is evicted
+        Map<String, Object> cache = this.getField("cache", cipher);
+        byte[] evicted = this.getCachedKey(cache, key2);
+        WrappedKey key3 = cipher.generateKey();
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertTrue(cache.containsKey(key1.getEncoded()));
+        Assertions.assertFalse(cache.containsKey(key2.getEncoded()));
+        Assertions.assertArrayEquals(new byte[16], evicted);
+        Assertions.assertEquals("data", cipher.decryptString(encrypted, key1));
+        Assertions.assertEquals(2, cipher.getHits());
+        cipher.getKey(key3);
+        Assertions.assertEquals(0, cipher.getMisses());
+
+        cipher.getKey(key2);
+        Assertions.assertEquals(1, cipher.getMisses());
+
+        // a new instance unwraps stored keys
+        DataKeyCipher other = new DataKeyCipher(Ciphers.AES128, new PasswordMasterKey(DataKeyCipherTest.PASSWORD));
+        Assertions.assertEquals("data", other.decryptString(encrypted, WrappedKey.decode(key1.getEncoded())));
+        Assertions.assertEquals(1, other.getMisses());
+        Assertions.assertEquals("data", other.decryptString(encrypted, key1));
+        Assertions.assertEquals(1, other.getMisses());
+        Assertions.assertEquals(1, other.getHits());
+
+        byte[] cleared = this.getCachedKey(cache, key2);
+        cipher.clear();
+        Assertions.assertEquals(0, cipher.size());
+        Assertions.assertArrayEquals(new byte[16], cleared);
+        Assertions.assertEquals("data", cipher.decryptString(encrypted, key1));
+        Assertions.assertEquals(2, cipher.getMisses());
+    }
+
+    @Test
+    public void test_rewrap() {
+        DataKeyCipher cipher = new DataKeyCipher(this.getMaster());
+        WrappedKey key = cipher.generateKey();
+        String encrypted = cipher.encrypt("data", key);
+
+        MasterKey rotated = new PasswordMasterKey("rotated".toCharArray());
+        WrappedKey rewrapped = cipher.rewrap(key, rotated);
+        Assertions.assertArrayEquals(key.getId(), rewrapped.getId());
+        Assertions.assertNotEquals(key.getWrapped(), rewrapped.getWrapped());
+
+        DataKeyCipher next = new DataKeyCipher(rotated);
+        Assertions.assertEquals("data", next.decryptString(encrypted, rewrapped));
+
+        // the old master can not unwrap the new key
+        try {
+            new DataKeyCipher(this.getMaster()).getKey(rewrapped);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertTrue(ex.getMessage().contains("Tag mismatch"), ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_keyIdIsAuthenticated() {
+        DataKeyCipher cipher = new DataKeyCipher(this.getMaster());
+        WrappedKey key1 = cipher.generateKey();
+        WrappedKey key2 = cipher.generateKey();
+
+        WrappedKey swapped = new WrappedKey(key2.getId(), key1.getWrapped());
+        try {
+            new DataKeyCipher(this.getMaster()).getKey(swapped);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertTrue(ex.getMessage().contains("Tag mismatch"), ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_forgedKeyNotServedFromCache() {
+        DataKeyCipher cipher = new DataKeyCipher(this.getMaster());
+        WrappedKey victim = cipher.generateKey();
+        WrappedKey other = cipher.generateKey();
+        String encrypted = cipher.encrypt("data", victim);
+
+        // the ID is public, the wrapped bytes are not authenticated by a cache hit
+        String id = Encodings.Base64.encode(victim.getId());
+        for (String wrapped : new String[] { "garbage", other.getWrapped() }) {
+            WrappedKey forged = WrappedKey.decode("1$" + id + "$" + wrapped);
+            try {
+                cipher.decryptString(encrypted, forged);
+                Assertions.fail("Expected exception");
+            } catch (RuntimeException ex) {
+                // expected
+            }
+        }
+        Assertions.assertEquals(1, cipher.getHits());
+        Assertions.assertEquals(2, cipher.getMisses());
+        Assertions.assertEquals("data", cipher.decryptString(encrypted, victim));
+        Assertions.assertEquals(2, cipher.getHits());
+    }
+
+    @Test
+    public void test_invalidKey() {
+        DataKeyCipher cipher = new DataKeyCipher(this.getMaster());
+        byte[] id = new byte[16];
+        WrappedKey key = new WrappedKey(id, this.getMaster().wrap(new byte[8], WrappedKey.aad(id)));
+        try {
+            cipher.getKey(key);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Invalid wrapped key.", ex.getMessage());
+        }
+    }
+
+    private byte[] getCachedKey(Map<String, Object> cache, WrappedKey key) {
+        // iterating does not change the access order
+        for (Map.Entry<String, Object> e : cache.entrySet()) {
+            if (e.getKey().equals(key.getEncoded())) {
+                return this.getField("key", e.getValue());
+            }
+        }
+        return null;
+    }
+}
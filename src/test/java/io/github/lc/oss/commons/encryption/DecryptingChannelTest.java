@@ -0,0 +1,270 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.testing.AbstractTest;
+
+public class DecryptingChannelTest extends AbstractTest {
+    private static final int SEGMENT = 16;
+    private static final char[] PASSWORD = "password".toCharArray();
+
+    private static String tempDir = null;
+    private static DerivedKey key;
+
+    private DerivedKey getKey() {
+        if (DecryptingChannelTest.key == null) {
+            DecryptingChannelTest.key = Ciphers.AES256.deriveKey(DecryptingChannelTest.PASSWORD);
+        }
+        return DecryptingChannelTest.key;
+    }
+
+    private String getTempDir() {
+        if (DecryptingChannelTest.tempDir == null) {
+            DecryptingChannelTest.tempDir = System.getProperty("java.io.tmpdir").replace("\\", "/");
+            Assertions.assertTrue(Files.isDirectory(Paths.get(DecryptingChannelTest.tempDir)));
+            if (!DecryptingChannelTest.tempDir.endsWith("/")) {
+                DecryptingChannelTest.tempDir += "/";
+            }
+        }
+        return DecryptingChannelTest.tempDir;
+    }
+
+    private Path getTempFile() {
+        return Paths.get(this.getTempDir() + "decrypting-channel.dat");
+    }
+
+    private byte[] data(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    private FileChannel encrypt(byte[] data) {
+        return this.write(new ChunkedCipher(Ciphers.AES256, DecryptingChannelTest.SEGMENT).encrypt(data,
+                this.getKey()));
+    }
+
+    private FileChannel write(byte[] encrypted) {
+        try {
+            Files.write(this.getTempFile(), encrypted);
+            return FileChannel.open(this.getTempFile(), StandardOpenOption.READ);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private byte[] read(DecryptingChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        channel.position(position);
+        while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    @AfterEach
+    public void cleanup() {
+        new File(this.getTempFile().toString()).delete();
+    }
+
+    @Test
+    public void test_read() throws IOException {
+        byte[] data = this.data(100);
+        try (DecryptingChannel channel = new DecryptingChannel(this.encrypt(data), DecryptingChannelTest.PASSWORD)) {
+            Assertions.assertEquals(100, channel.size());
+            Assertions.assertEquals(0, channel.position());
+            Assertions.assertArrayEquals(data, this.read(channel, 0, 200));
+            Assertions.assertEquals(100, channel.position());
+            Assertions.assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+
+            Assertions.assertArrayEquals(Arrays.copyOfRange(data, 40, 60), this.read(channel, 40, 20));
+            Assertions.assertArrayEquals(Arrays.copyOfRange(data, 99, 100), this.read(channel, 99, 10));
+            Assertions.assertArrayEquals(Arrays.copyOfRange(data, 0, 1), this.read(channel, 0, 1));
+
+            channel.position(1000);
+            Assertions.assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+            Assertions.assertEquals(0, channel.position(5).read(ByteBuffer.allocate(0)));
+        }
+
+        try (DecryptingChannel channel = new DecryptingChannel(this.encrypt(new byte[0]), this.getKey())) {
+            Assertions.assertEquals(0, channel.size());
+            Assertions.assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+        }
+    }
+
+    @Test
+    public void test_cache() throws IOException {
+        byte[] data = this.data(160);
+        try (DecryptingChannel channel = new DecryptingChannel(this.encrypt(data), this.getKey(), 2)) {
+            Map<Long, byte[]> cache = this.getField("cache", channel);
+
+            // only the touched segments are decrypted
+            Assertions.assertArrayEquals(Arrays.copyOfRange(data, 70, 75), this.read(channel, 70, 5));
+            Assertions.assertEquals(1, cache.size());
+            Assertions.assertTrue(cache.containsKey(4L));
+
+            Assertions.assertArrayEquals(Arrays.copyOfRange(data, 150, 160), this.read(channel, 150, 10));
+            Assertions.assertArrayEquals(Arrays.copyOfRange(data, 64, 70), this.read(channel, 64, 6));
+            Assertions.assertEquals(2, cache.size());
+
+            // least recently used is evicted and cleared
+            byte[] evicted = cache.values().iterator().next();
+            this.read(channel, 0, 1);
+            Assertions.assertEquals(2, cache.size());
+            Assertions.assertTrue(cache.containsKey(0L));
+            Assertions.assertTrue(cache.containsKey(4L));
+            Assertions.assertArrayEquals(new byte[16], Arrays.copyOf(evicted, 16));
+
+            byte[] cached = cache.values().iterator().next();
+            channel.close();
+            Assertions.assertTrue(cache.isEmpty());
+            Assertions.assertArrayEquals(new byte[16], cached);
+        }
+    }
+
+    @Test
+    public void test_cipherProvider() throws IOException {
+        byte[] data = this.data(100);
+        try (DecryptingChannel channel = new DecryptingChannel(this.encrypt(data), this.getKey())) {
+            Assertions.assertSame(CipherProviders.NEW_INSTANCE, this.getField("provider", channel));
+        }
+
+        AES256 cipher = new AES256();
+        PooledCipherProvider pool = new PooledCipherProvider(1);
+        cipher.setCipherProvider(pool);
+        try (DecryptingChannel channel = new DecryptingChannel(this.encrypt(data), cipher, this.getKey())) {
+            Assertions.assertSame(pool, this.getField("provider", channel));
+            Assertions.assertArrayEquals(data, this.read(channel, 0, 100));
+        }
+
+        try (DecryptingChannel channel = new DecryptingChannel(this.encrypt(data), cipher, this.getKey(), 1)) {
+            Assertions.assertArrayEquals(Arrays.copyOfRange(data, 40, 60), this.read(channel, 40, 20));
+            Map<Long, byte[]> cache = this.getField("cache", channel);
+            Assertions.assertEquals(1, cache.size());
+        }
+    }
+
+    @Test
+    public void test_metrics() throws IOException {
+        AES256 cipher = new AES256();
+        CipherMetrics metrics = new CipherMetrics();
+        cipher.setMetricsListener(metrics);
+
+        byte[] encrypted = new ChunkedCipher(Ciphers.AES256, DecryptingChannelTest.SEGMENT).encrypt(this.data(100),
+                this.getKey());
+        encrypted[encrypted.length - 1] ^= 0x01;
+        try (DecryptingChannel channel = new DecryptingChannel(this.write(encrypted), cipher, this.getKey())) {
+            Assertions.assertEquals(20, this.read(channel, 0, 20).length);
+            Assertions.assertEquals(2, metrics.getDecryptions().getCount());
+            Assertions.assertEquals(16 + 16 + 16 + 16, metrics.getBytesDecrypted());
+
+            try {
+                this.read(channel, 96, 1);
+                Assertions.fail("Expected exception");
+            } catch (RuntimeException ex) {
+                Assertions.assertTrue(ex.getMessage().contains("Tag mismatch"), ex.getMessage());
+            }
+            Assertions.assertEquals(1, metrics.getFailures(DecryptFailure.AUTHENTICATION));
+        }
+    }
+
+    @Test
+    public void test_streamingInterop() throws IOException {
+        byte[] data = this.data(1000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new StreamingCipher(Ciphers.AES256, 64).encrypt(new ByteArrayInputStream(data), out, this.getKey());
+
+        try (DecryptingChannel channel = new DecryptingChannel(this.write(out.toByteArray()), Ciphers.AES256,
+                DecryptingChannelTest.PASSWORD)) {
+            Assertions.assertArrayEquals(Arrays.copyOfRange(data, 500, 700), this.read(channel, 500, 200));
+        }
+    }
+
+    @Test
+    public void test_errors() throws IOException {
+        byte[] encrypted = new ChunkedCipher(Ciphers.AES256, DecryptingChannelTest.SEGMENT).encrypt(this.data(100),
+                this.getKey());
+
+        try (FileChannel in = this.write(encrypted)) {
+            new DecryptingChannel(in, this.getKey(), 0);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Cache size must be positive", ex.getMessage());
+        }
+
+        try (FileChannel in = this.write(encrypted)) {
+            new DecryptingChannel(in, Ciphers.AES256.deriveKey(DecryptingChannelTest.PASSWORD));
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Value was not encrypted using the salt of this key.", ex.getMessage());
+        }
+
+        try (FileChannel in = this.write(Arrays.copyOf(encrypted, 50))) {
+            new DecryptingChannel(in, this.getKey());
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Encrypted data is truncated.", ex.getMessage());
+        }
+
+        byte[] flipped = Arrays.copyOf(encrypted, encrypted.length);
+        flipped[flipped.length - 1] ^= 0x01;
+        try (DecryptingChannel channel = new DecryptingChannel(this.write(flipped), this.getKey())) {
+            // untouched segments still decrypt
+            Assertions.assertEquals(16, this.read(channel, 0, 16).length);
+            try {
+                this.read(channel, 96, 1);
+                Assertions.fail("Expected exception");
+            } catch (RuntimeException ex) {
+                Assertions.assertTrue(ex.getMessage().contains("Tag mismatch"), ex.getMessage());
+            }
+
+            try {
+                channel.position(-1);
+                Assertions.fail("Expected exception");
+            } catch (IllegalArgumentException ex) {
+                Assertions.assertEquals("Position must not be negative", ex.getMessage());
+            }
+
+            try {
+                channel.write(ByteBuffer.allocate(1));
+                Assertions.fail("Expected exception");
+            } catch (NonWritableChannelException ex) {
+                // expected
+            }
+
+            try {
+                channel.truncate(0);
+                Assertions.fail("Expected exception");
+            } catch (NonWritableChannelException ex) {
+                // expected
+            }
+
+            channel.close();
+            Assertions.assertFalse(channel.isOpen());
+            channel.close();
+            try {
+                channel.read(ByteBuffer.allocate(1));
+                Assertions.fail("Expected exception");
+            } catch (ClosedChannelException ex) {
+                // expected
+            }
+        }
+    }
+}
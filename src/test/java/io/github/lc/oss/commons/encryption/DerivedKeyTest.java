@@ -0,0 +1,100 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.testing.AbstractTest;
+
+public class DerivedKeyTest extends AbstractTest {
+    @Test
+    public void test_salt() {
+        final byte[] salt = new byte[] { 0x01, 0x02 };
+        DerivedKey key = Ciphers.AES128.deriveKey("pw".toCharArray(), salt);
+        Assertions.assertEquals(128, key.getKeySize());
+        Assertions.assertArrayEquals(salt, key.getSalt());
+        Assertions.assertNotSame(salt, key.getSalt());
+        Assertions.assertNotSame(key.getSalt(), key.getSalt());
+
+        salt[0] = 0x00;
+        Assertions.assertArrayEquals(new byte[] { 0x01, 0x02 }, key.getSalt());
+
+        DerivedKey random1 = Ciphers.AES256.deriveKey("pw".toCharArray());
+        DerivedKey random2 = Ciphers.AES256.deriveKey("pw".toCharArray());
+        Assertions.assertEquals(256, random1.getKeySize());
+        Assertions.assertEquals(16, random1.getSalt().length);
+        Assertions.assertNotEquals(new String(random1.getSalt(), StandardCharsets.ISO_8859_1),
+                new String(random2.getSalt(), StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void test_interchangeable() {
+        final char[] password = "password".toCharArray();
+        final String data = "data";
+
+        for (KeyedCipher c : Ciphers.all()) {
+            DerivedKey key = c.deriveKey(password);
+
+            String cipher1 = c.encrypt(data, key);
+            String cipher2 = c.encrypt(data.getBytes(StandardCharsets.UTF_8), key);
+            Assertions.assertNotEquals(cipher1, cipher2);
+
+            Assertions.assertEquals(data, c.decryptString(cipher1, key));
+            Assertions.assertArrayEquals(data.getBytes(StandardCharsets.UTF_8), c.decrypt(cipher2, key));
+            Assertions.assertEquals(data, c.decryptString(cipher1, password));
+
+            String cipher3 = c.encrypt(data, password, new String(key.getSalt(), StandardCharsets.UTF_8));
+            String cipher4 = c.encrypt(data.getBytes(StandardCharsets.UTF_8), password, key.getSalt());
+            Assertions.assertEquals(data, c.decryptString(cipher4, key));
+            try {
+                // String salts are UTF-8 encoded, random bytes do not survive that
+                c.decryptString(cipher3, key);
+                Assertions.fail("Expected exception");
+            } catch (RuntimeException ex) {
+                Assertions.assertEquals("Value was not encrypted using the salt of this key.", ex.getMessage());
+            }
+
+            final byte[] iv = new AES128().generateIV();
+            byte[] raw1 = c.encrypt(data.getBytes(StandardCharsets.UTF_8), key, iv);
+            byte[] raw2 = c.encrypt(data.getBytes(StandardCharsets.UTF_8), password, key.getSalt(), iv);
+            Assertions.assertArrayEquals(raw1, raw2);
+            Assertions.assertArrayEquals(data.getBytes(StandardCharsets.UTF_8), c.decrypt(raw2, key, iv));
+        }
+    }
+
+    @Test
+    public void test_wrongKeySize() {
+        DerivedKey key = Ciphers.AES128.deriveKey("pw".toCharArray());
+
+        try {
+            Ciphers.AES256.encrypt("data", key);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Key was derived for a different key size.", ex.getMessage());
+        }
+
+        String cipher = Ciphers.AES128.encrypt("data", key);
+        try {
+            Ciphers.AES256.decrypt(cipher, key);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Key was derived for a different key size.", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_wrongPassword() {
+        final byte[] salt = new byte[] { 0x01 };
+        DerivedKey key1 = Ciphers.AES256.deriveKey("pw1".toCharArray(), salt);
+        DerivedKey key2 = Ciphers.AES256.deriveKey("pw2".toCharArray(), salt);
+
+        String cipher = Ciphers.AES256.encrypt("data", key1);
+        try {
+            Ciphers.AES256.decrypt(cipher, key2);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertTrue(ex.getMessage().contains("javax.crypto.AEADBadTagException"));
+        }
+    }
+}
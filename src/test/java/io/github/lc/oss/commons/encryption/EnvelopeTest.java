@@ -0,0 +1,178 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.encoding.Encodings;
+import io.github.lc.oss.commons.testing.AbstractTest;
+
+public class EnvelopeTest extends AbstractTest {
+    private static final byte[] DATA = "data".getBytes(StandardCharsets.UTF_8);
+    private static final char[] PASSWORD = "password".toCharArray();
+
+    @Test
+    public void test_layout() {
+        final byte[] salt = new byte[] { 0x0A, 0x0B };
+        DerivedKey key = Ciphers.AES256.deriveKey(EnvelopeTest.PASSWORD, salt);
+
+        byte[] envelope = Ciphers.AES256.encryptEnvelope(EnvelopeTest.DATA, key);
+        Assertions.assertEquals(9 + 2 + 12 + 4 + 16, envelope.length);
+        Assertions.assertEquals(envelope.length, Ciphers.AES256.getEnvelopeSize(4, key));
+
+        ByteBuffer buffer = ByteBuffer.wrap(envelope);
+        Assertions.assertEquals(0x01, buffer.get());
+        Assertions.assertEquals(32, buffer.get());
+        Assertions.assertEquals(0x01, buffer.get());
+        Assertions.assertEquals(4, buffer.get());
+        Assertions.assertEquals(101113, buffer.getInt());
+        Assertions.assertEquals(2, buffer.get());
+        Assertions.assertEquals(0x0A, buffer.get());
+        Assertions.assertEquals(0x0B, buffer.get());
+
+        byte[] iv = new byte[12];
+        buffer.get(iv);
+        byte[] cipher = new byte[buffer.remaining()];
+        buffer.get(cipher);
+        Assertions.assertArrayEquals(EnvelopeTest.DATA, Ciphers.AES256.decrypt(cipher, key, iv));
+
+        Assertions.assertEquals(16, Ciphers.AES128.encryptEnvelope(EnvelopeTest.DATA, EnvelopeTest.PASSWORD)[1]);
+
+        // functions without parameters
+        key = Ciphers.AES256.deriveKey(EnvelopeTest.PASSWORD, salt, Kdfs.HKDF_SHA256);
+        envelope = Ciphers.AES256.encryptEnvelope(EnvelopeTest.DATA, key);
+        Assertions.assertEquals(5 + 2 + 12 + 4 + 16, envelope.length);
+        Assertions.assertEquals(0x02, envelope[2]);
+        Assertions.assertEquals(0, envelope[3]);
+        Assertions.assertEquals(2, envelope[4]);
+    }
+
+    @Test
+    public void test_roundTrip() {
+        for (KeyedCipher c : Ciphers.all()) {
+            DerivedKey key = c.deriveKey(EnvelopeTest.PASSWORD);
+
+            byte[] envelope1 = c.encryptEnvelope(EnvelopeTest.DATA, EnvelopeTest.PASSWORD);
+            byte[] envelope2 = c.encryptEnvelope(EnvelopeTest.DATA, key);
+            Assertions.assertArrayEquals(EnvelopeTest.DATA, c.decryptEnvelope(envelope1, EnvelopeTest.PASSWORD));
+            Assertions.assertArrayEquals(EnvelopeTest.DATA, c.decryptEnvelope(envelope2, EnvelopeTest.PASSWORD));
+            Assertions.assertArrayEquals(EnvelopeTest.DATA, c.decryptEnvelope(envelope2, key));
+
+            // compact strings are accepted alongside the legacy format
+            String compact1 = c.encryptCompact(EnvelopeTest.DATA, EnvelopeTest.PASSWORD);
+            String compact2 = c.encryptCompact(EnvelopeTest.DATA, key);
+            Assertions.assertEquals(-1, compact1.indexOf('$'));
+            Assertions.assertArrayEquals(EnvelopeTest.DATA, c.decrypt(compact1, EnvelopeTest.PASSWORD));
+            Assertions.assertEquals("data", c.decryptString(compact2, key));
+            Assertions.assertEquals("data", c.decryptString(compact2, EnvelopeTest.PASSWORD));
+            Assertions.assertTrue(envelope2.length < c.encrypt(EnvelopeTest.DATA, key).length());
+
+            // ByteBuffers, including direct buffers
+            ByteBuffer out = ByteBuffer.allocateDirect(c.getEnvelopeSize(EnvelopeTest.DATA.length, key) + 1);
+            out.put((byte) 0x7F);
+            int length = c.encryptEnvelope(ByteBuffer.wrap(EnvelopeTest.DATA), out, key);
+            Assertions.assertEquals(out.capacity() - 1, length);
+            Assertions.assertFalse(out.hasRemaining());
+
+            out.position(1);
+            ByteBuffer clear = ByteBuffer.allocate(c.getDecryptedSize(length));
+            Assertions.assertEquals(4, c.decryptEnvelope(out.duplicate(), clear, key));
+            Assertions.assertArrayEquals(EnvelopeTest.DATA, Arrays.copyOf(clear.array(), 4));
+
+            clear.clear();
+            Assertions.assertEquals(4, c.decryptEnvelope(out, clear, EnvelopeTest.PASSWORD));
+            Assertions.assertArrayEquals(EnvelopeTest.DATA, Arrays.copyOf(clear.array(), 4));
+        }
+    }
+
+    @Test
+    public void test_iterations() {
+        final byte[] salt = new byte[] { 0x01 };
+        byte[] envelope = Ciphers.AES128.encryptEnvelope(EnvelopeTest.DATA,
+                Ciphers.AES128.deriveKey(EnvelopeTest.PASSWORD, salt));
+
+        // iteration count comes from the envelope, not the cipher
+        AES128 cheap = new AES128() {
+            @Override
+            protected int getPasswordIterations() {
+                return 1000;
+            }
+        };
+        Assertions.assertArrayEquals(EnvelopeTest.DATA, cheap.decryptEnvelope(envelope, EnvelopeTest.PASSWORD));
+
+        DerivedKey cheapKey = cheap.deriveKey(EnvelopeTest.PASSWORD, salt);
+        byte[] cheapEnvelope = cheap.encryptEnvelope(EnvelopeTest.DATA, cheapKey);
+        Assertions.assertEquals(1000, ByteBuffer.wrap(cheapEnvelope, 4, 4).getInt());
+        AES128 aes = new AES128();
+        aes.setAcceptedKdfs(Arrays.asList(Kdfs.pbkdf2(1000)));
+        Assertions.assertArrayEquals(EnvelopeTest.DATA, aes.decryptEnvelope(cheapEnvelope, EnvelopeTest.PASSWORD));
+        this.assertFails(cheapEnvelope, Ciphers.AES128, "Key derivation function is not accepted.");
+
+        try {
+            cheap.decryptEnvelope(envelope, cheapKey);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Value was not encrypted using the key derivation function of this key.",
+                    ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_errors() {
+        DerivedKey key = Ciphers.AES128.deriveKey(EnvelopeTest.PASSWORD);
+        byte[] envelope = Ciphers.AES128.encryptEnvelope(EnvelopeTest.DATA, key);
+
+        this.assertFails(envelope, Ciphers.AES256, "Envelope was encrypted using a different key size.");
+
+        byte[] modified = envelope.clone();
+        modified[0] = 0x03;
+        this.assertFails(modified, Ciphers.AES128, "Unsupported envelope version.");
+
+        modified = envelope.clone();
+        modified[2] = (byte) 0x80;
+        this.assertFails(modified, Ciphers.AES128, "Unsupported key derivation function.");
+
+        modified = new byte[5 + 12 + 16];
+        modified[0] = 0x01;
+        modified[1] = 0x10;
+        modified[2] = 0x01;
+        this.assertFails(modified, Ciphers.AES128, "Invalid key derivation parameters.");
+
+        modified = envelope.clone();
+        modified[4] = (byte) 0x80;
+        this.assertFails(modified, Ciphers.AES128, "Iterations must be positive");
+
+        this.assertFails(new byte[3], Ciphers.AES128, "Envelope is truncated.");
+        this.assertFails(new byte[] { 0x01, 0x10, 0x01, 0x04, 0x00 }, Ciphers.AES128, "Envelope is truncated.");
+        this.assertFails(new byte[] { 0x01, 0x10, 0x00, 0x00 }, Ciphers.AES128, "Envelope is truncated.");
+        this.assertFails(Arrays.copyOf(envelope, 9 + 16 + 11), Ciphers.AES128, "Envelope is truncated.");
+        this.assertFails(Arrays.copyOf(envelope, envelope.length - 1), Ciphers.AES128, "AEADBadTagException");
+
+        DerivedKey other = Ciphers.AES128.deriveKey(EnvelopeTest.PASSWORD);
+        try {
+            Ciphers.AES128.decryptEnvelope(envelope, other);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Value was not encrypted using the salt of this key.", ex.getMessage());
+        }
+
+        try {
+            Ciphers.AES128.decrypt(Encodings.Base64.encode(envelope), "wrong".toCharArray());
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertTrue(ex.getMessage().contains("AEADBadTagException"));
+        }
+    }
+
+    private void assertFails(byte[] envelope, KeyedCipher cipher, String message) {
+        try {
+            cipher.decryptEnvelope(envelope, EnvelopeTest.PASSWORD);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertTrue(ex.getMessage().contains(message), ex.getMessage());
+        }
+    }
+}
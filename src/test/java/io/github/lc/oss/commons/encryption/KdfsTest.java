@@ -0,0 +1,295 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.crypto.AEADBadTagException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.encoding.Encodings;
+import io.github.lc.oss.commons.testing.AbstractTest;
+
+public class KdfsTest extends AbstractTest {
+    private static final char[] PASSWORD = "password".toCharArray();
+    private static final byte[] SALT = new byte[] { 0x01, 0x02, 0x03, 0x04 };
+
+    private byte[] hex(String value) {
+        byte[] bytes = new byte[value.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(value.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+
+    @Test
+    public void test_caching() {
+        Set<Kdfs> expected = new HashSet<>(Arrays.asList(Kdfs.values()));
+        Assertions.assertEquals(expected, Kdfs.all());
+
+        Assertions.assertTrue(Kdfs.hasName("hkdf_sha256"));
+        Assertions.assertSame(Kdfs.RAW, Kdfs.byName("Raw"));
+        Assertions.assertSame(Kdfs.PBKDF2, Kdfs.tryParse("PBKDF2"));
+    }
+
+    @Test
+    public void test_encoding() {
+        Assertions.assertArrayEquals(new byte[] { 0x01, 0x00, 0x01, (byte) 0x8A, (byte) 0xF9 },
+                Kdfs.encode(Kdfs.PBKDF2));
+        Assertions.assertArrayEquals(new byte[] { 0x01, 0x00, 0x00, 0x03, (byte) 0xE8 },
+                Kdfs.encode(Kdfs.pbkdf2(1000)));
+        Assertions.assertArrayEquals(new byte[] { 0x02 }, Kdfs.encode(Kdfs.HKDF_SHA256));
+        Assertions.assertArrayEquals(new byte[] { 0x03 }, Kdfs.encode(Kdfs.RAW));
+
+        for (Kdf kdf : new Kdf[] { Kdfs.PBKDF2, Kdfs.pbkdf2(1000), Kdfs.HKDF_SHA256, Kdfs.RAW }) {
+            Assertions.assertTrue(Kdfs.isSame(kdf, Kdfs.decode(Kdfs.encode(kdf))));
+        }
+        Assertions.assertTrue(Kdfs.isSame(Kdfs.PBKDF2, Kdfs.pbkdf2(101113)));
+        Assertions.assertFalse(Kdfs.isSame(Kdfs.PBKDF2, Kdfs.pbkdf2(1000)));
+        Assertions.assertFalse(Kdfs.isSame(Kdfs.HKDF_SHA256, Kdfs.RAW));
+    }
+
+    @Test
+    public void test_decodeErrors() {
+        Arrays.asList(new byte[0], new byte[] { 0x00 }, new byte[] { 0x04 }, new byte[] { 0x01, 0x00 },
+                new byte[] { 0x01, 0x00, 0x00, 0x00, 0x00 }).forEach(encoded -> {
+                    try {
+                        Kdfs.decode(encoded);
+                        Assertions.fail("Expected exception");
+                    } catch (RuntimeException ex) {
+                        Assertions.assertTrue(ex.getMessage().equals("Invalid key derivation parameters.")
+                                || ex.getMessage().equals("Unsupported key derivation function.")
+                                || ex.getMessage().equals("Iterations must be positive"), ex.getMessage());
+                    }
+                });
+    }
+
+    @Test
+    public void test_pbkdf2() {
+        try {
+            Kdfs.pbkdf2(0);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Iterations must be positive", ex.getMessage());
+        }
+
+        byte[] key1 = Kdfs.pbkdf2(1000).derive(KdfsTest.PASSWORD, KdfsTest.SALT, 128).getEncoded();
+        byte[] key2 = Kdfs.pbkdf2(1001).derive(KdfsTest.PASSWORD, KdfsTest.SALT, 128).getEncoded();
+        Assertions.assertEquals(16, key1.length);
+        Assertions.assertFalse(Arrays.equals(key1, key2));
+        Assertions.assertEquals("PBKDF2WithHmacSHA512", Kdfs.PBKDF2.getAlgorithm());
+    }
+
+    @Test
+    public void test_hkdf() {
+        // RFC 5869 test case 1
+        byte[] okm = new HkdfKdf().derive(this.hex("0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b"),
+                this.hex("000102030405060708090a0b0c"), this.hex("f0f1f2f3f4f5f6f7f8f9"), 42);
+        Assertions.assertArrayEquals(
+                this.hex("3cb25f25faacd57a90434f64d0362f2a2d2d0a90cf1a5a4c5db02d56ecc4c5bf34007208d5b887185865"), okm);
+
+        // RFC 5869 test case 3, no salt and no info
+        okm = new HkdfKdf().derive(this.hex("0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b0b"), new byte[0], new byte[0],
+                42);
+        Assertions.assertArrayEquals(
+                this.hex("8da4e775a563c18f715f802a063c5a31b8a11f5c5ee1879ec3454e5f3c738d2d9d201395faa4b61a96c8"), okm);
+
+        byte[] key128 = Kdfs.HKDF_SHA256.derive(KdfsTest.PASSWORD, KdfsTest.SALT, 128).getEncoded();
+        byte[] key256 = Kdfs.HKDF_SHA256.derive(KdfsTest.PASSWORD, KdfsTest.SALT, 256).getEncoded();
+        Assertions.assertEquals(16, key128.length);
+        Assertions.assertEquals(32, key256.length);
+        // key size is bound into the derivation
+        Assertions.assertFalse(Arrays.equals(key128, Arrays.copyOf(key256, 16)));
+    }
+
+    @Test
+    public void test_raw() {
+        byte[] key = new byte[16];
+        Arrays.fill(key, (byte) 0x42);
+        char[] password = Encodings.Base64.encode(key).toCharArray();
+
+        Assertions.assertArrayEquals(key, Kdfs.RAW.derive(password, KdfsTest.SALT, 128).getEncoded());
+        Assertions.assertArrayEquals(key, Kdfs.RAW.derive(password, new byte[0], 128).getEncoded());
+
+        try {
+            Kdfs.RAW.derive(password, KdfsTest.SALT, 256);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Raw key must be exactly 256 bits.", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_ciphers() {
+        final byte[] data = "data".getBytes(StandardCharsets.UTF_8);
+        byte[] rawKey = new byte[32];
+        Arrays.fill(rawKey, (byte) 0x07);
+        char[] raw = Encodings.Base64.encode(rawKey).toCharArray();
+
+        AES256 aes = new AES256();
+        aes.setAcceptedKdfs(Arrays.asList(Kdfs.PBKDF2, Kdfs.pbkdf2(1000), Kdfs.HKDF_SHA256, Kdfs.RAW));
+        for (Kdf kdf : new Kdf[] { Kdfs.pbkdf2(1000), Kdfs.HKDF_SHA256, Kdfs.RAW }) {
+            char[] password = kdf == Kdfs.RAW ? raw : KdfsTest.PASSWORD;
+            DerivedKey key = aes.deriveKey(password, kdf);
+            Assertions.assertSame(kdf, key.getKdf());
+
+            // the function is recorded so the password alone is enough to decrypt
+            String encrypted = aes.encrypt(data, key);
+            Assertions.assertEquals(3, encrypted.chars().filter(c -> c == '$').count());
+            Assertions.assertArrayEquals(data, aes.decrypt(encrypted, password));
+            Assertions.assertArrayEquals(data, aes.decrypt(encrypted, key));
+
+            String compact = aes.encryptCompact(data, key);
+            Assertions.assertArrayEquals(data, aes.decrypt(compact, password));
+            Assertions.assertArrayEquals(data, aes.decrypt(compact, key));
+
+            try {
+                aes.decrypt(encrypted, aes.deriveKey(password, key.getSalt()));
+                Assertions.fail("Expected exception");
+            } catch (RuntimeException ex) {
+                Assertions.assertEquals("Value was not encrypted using the key derivation function of this key.",
+                        ex.getMessage());
+            }
+        }
+
+        // the default function is not recorded
+        DerivedKey key = Ciphers.AES128.deriveKey(KdfsTest.PASSWORD, Kdfs.PBKDF2);
+        String encrypted = Ciphers.AES128.encrypt(data, key);
+        Assertions.assertEquals(2, encrypted.chars().filter(c -> c == '$').count());
+        Assertions.assertArrayEquals(data, Ciphers.AES128.decrypt(encrypted, KdfsTest.PASSWORD));
+        Assertions.assertArrayEquals(data,
+                Ciphers.AES128.decrypt(encrypted, Ciphers.AES128.deriveKey(KdfsTest.PASSWORD, key.getSalt())));
+
+        try {
+            Ciphers.AES128.decrypt("AQ$" + encrypted, KdfsTest.PASSWORD);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Invalid key derivation parameters.", ex.getMessage());
+        }
+
+        try {
+            Ciphers.AES128.decrypt("$" + encrypted, KdfsTest.PASSWORD);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Invalid encrypted value.", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_legacyKdf() {
+        final byte[] data = "data".getBytes(StandardCharsets.UTF_8);
+        String legacy = Ciphers.AES128.encrypt(data, KdfsTest.PASSWORD);
+        Assertions.assertEquals(2, legacy.chars().filter(c -> c == '$').count());
+
+        AES128 hkdf = new AES128() {
+            @Override
+            protected Kdf getKdf() {
+                return Kdfs.HKDF_SHA256;
+            }
+        };
+        AES128 cheap = new AES128() {
+            @Override
+            protected int getPasswordIterations() {
+                return 1000;
+            }
+        };
+
+        // overriding the default function does not change how legacy values are read
+        Assertions.assertArrayEquals(data, hkdf.decrypt(legacy, KdfsTest.PASSWORD));
+        String encrypted = hkdf.encrypt(data, KdfsTest.PASSWORD);
+        Assertions.assertEquals(3, encrypted.chars().filter(c -> c == '$').count());
+        Assertions.assertArrayEquals(data, hkdf.decrypt(encrypted, KdfsTest.PASSWORD));
+
+        // legacy values use the iterations of the cipher
+        String own = cheap.encrypt(data, KdfsTest.PASSWORD);
+        Assertions.assertEquals(2, own.chars().filter(c -> c == '$').count());
+        Assertions.assertArrayEquals(data, cheap.decrypt(own, KdfsTest.PASSWORD));
+        try {
+            Ciphers.AES128.decrypt(own, KdfsTest.PASSWORD);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertTrue(ex.getCause() instanceof AEADBadTagException);
+        }
+
+        // configured iterations are not limited
+        AES128 expensive = new AES128() {
+            @Override
+            protected int getPasswordIterations() {
+                return 2000000;
+            }
+        };
+        Assertions.assertTrue(expensive.isAccepted(Kdfs.pbkdf2(2000000)));
+    }
+
+    @Test
+    public void test_forgedIterations() {
+        final byte[] data = "data".getBytes(StandardCharsets.UTF_8);
+        String encrypted = Ciphers.AES128.encrypt(data, KdfsTest.PASSWORD);
+        String huge = Encodings.Base64.encode(new byte[] { 0x01, 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF });
+        String capped = Encodings.Base64.encode(new byte[] { 0x01, 0x00, 0x0F, 0x42, 0x40 });
+
+        long start = System.currentTimeMillis();
+        try {
+            Ciphers.AES128.decrypt(huge + "$" + encrypted, KdfsTest.PASSWORD);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Iterations must not exceed 1000000", ex.getMessage());
+        }
+
+        // within the limit but not accepted, rejected before deriving
+        try {
+            Ciphers.AES128.decrypt(capped + "$" + encrypted, KdfsTest.PASSWORD);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Key derivation function is not accepted.", ex.getMessage());
+        }
+        Assertions.assertTrue(System.currentTimeMillis() - start < 1000);
+
+        // only recorded counts are limited
+        Assertions.assertArrayEquals(new byte[] { 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF },
+                Kdfs.pbkdf2(Integer.MAX_VALUE).getParameters());
+    }
+
+    @Test
+    public void test_acceptedKdfs() {
+        AES128 aes = new AES128();
+        Assertions.assertTrue(aes.isAccepted(Kdfs.pbkdf2(101113)));
+        Assertions.assertTrue(aes.isAccepted(Kdfs.HKDF_SHA256));
+        Assertions.assertTrue(aes.isAccepted(Kdfs.RAW));
+        Assertions.assertFalse(aes.isAccepted(Kdfs.pbkdf2(1000)));
+        Assertions.assertEquals(3, aes.getAcceptedKdfs().size());
+
+        AES128 cheap = new AES128() {
+            @Override
+            protected int getPasswordIterations() {
+                return 1000;
+            }
+        };
+        Assertions.assertTrue(cheap.isAccepted(Kdfs.pbkdf2(1000)));
+        Assertions.assertTrue(cheap.isAccepted(Kdfs.PBKDF2));
+        Assertions.assertEquals(4, cheap.getAcceptedKdfs().size());
+
+        String encrypted = aes.encrypt("data", aes.deriveKey(KdfsTest.PASSWORD, Kdfs.pbkdf2(1000)));
+        try {
+            aes.decrypt(encrypted, KdfsTest.PASSWORD);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Key derivation function is not accepted.", ex.getMessage());
+        }
+
+        aes.setAcceptedKdfs(Arrays.asList(Kdfs.pbkdf2(1000)));
+        Assertions.assertEquals("data", aes.decryptString(encrypted, KdfsTest.PASSWORD));
+        Assertions.assertFalse(aes.isAccepted(Kdfs.PBKDF2));
+        Assertions.assertFalse(aes.isAccepted(Kdfs.HKDF_SHA256));
+
+        aes.setAcceptedKdfs(null);
+        Assertions.assertTrue(aes.isAccepted(Kdfs.PBKDF2));
+        Assertions.assertFalse(aes.isAccepted(Kdfs.pbkdf2(1000)));
+
+        Assertions.assertEquals(Ciphers.AES256.getAcceptedKdfs().size(), 3);
+        Assertions.assertTrue(Ciphers.AES256.isAccepted(Kdfs.PBKDF2));
+    }
+}
@@ -0,0 +1,160 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.testing.AbstractTest;
+
+public class KeyCacheTest extends AbstractTest {
+    private static final Kdf KDF = new Pbkdf2Kdf("hash", 1);
+
+    private SecretKey key(int value) {
+        return new SecretKeySpec(new byte[] { (byte) value, (byte) value }, "AES");
+    }
+
+    @Test
+    public void test_badArgs() {
+        try {
+            new KeyCache(0, 1);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Max entries must be positive", ex.getMessage());
+        }
+
+        try {
+            new KeyCache(1, 0);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("TTL must be positive", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_hitsAndMisses() {
+        KeyCache cache = new KeyCache();
+        final byte[] salt = new byte[] { 0x01 };
+
+        SecretKey key1 = cache.get(KeyCacheTest.KDF, "pw".toCharArray(), salt, 128, () -> this.key(1));
+        SecretKey key2 = cache.get(KeyCacheTest.KDF, "pw".toCharArray(), salt, 128, () -> this.key(2));
+        Assertions.assertArrayEquals(key1.getEncoded(), key2.getEncoded());
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(1, cache.getMisses());
+
+        // any parameter change is a different key
+        cache.get(KeyCacheTest.KDF, "pw2".toCharArray(), salt, 128, () -> this.key(3));
+        cache.get(KeyCacheTest.KDF, "pw".toCharArray(), new byte[] { 0x02 }, 128, () -> this.key(4));
+        cache.get(new Pbkdf2Kdf("hash", 2), "pw".toCharArray(), salt, 128, () -> this.key(5));
+        cache.get(KeyCacheTest.KDF, "pw".toCharArray(), salt, 256, () -> this.key(6));
+        cache.get(new Pbkdf2Kdf("hash2", 1), "pw".toCharArray(), salt, 128, () -> this.key(7));
+        cache.get(Kdfs.HKDF_SHA256, "pw".toCharArray(), salt, 128, () -> this.key(8));
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(7, cache.getMisses());
+        Assertions.assertEquals(7, cache.size());
+        Assertions.assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    public void test_sizeEviction() {
+        KeyCache cache = new KeyCache(2, 60000);
+        final byte[] salt = new byte[] { 0x01 };
+
+        cache.get(KeyCacheTest.KDF, "a".toCharArray(), salt, 128, () -> this.key(1));
+        cache.get(KeyCacheTest.KDF, "b".toCharArray(), salt, 128, () -> this.key(2));
+        // touch "a" so "b" is the least recently used
+        cache.get(KeyCacheTest.KDF, "a".toCharArray(), salt, 128, () -> this.key(3));
+        Map<String, Object> entries = this.getField("entries", cache);
+        Object b = entries.values().iterator().next();
+
+        cache.get(KeyCacheTest.KDF, "c".toCharArray(), salt, 128, () -> this.key(4));
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertEquals(1, cache.getEvictions());
+        Assertions.assertFalse(entries.containsValue(b));
+        byte[] zeroed = this.getField("key", b);
+        Assertions.assertArrayEquals(new byte[2], zeroed);
+
+        SecretKey a = cache.get(KeyCacheTest.KDF, "a".toCharArray(), salt, 128, () -> this.key(5));
+        Assertions.assertArrayEquals(this.key(1).getEncoded(), a.getEncoded());
+    }
+
+    @Test
+    public void test_ttlEviction() {
+        KeyCache cache = new KeyCache(10, 50);
+        final byte[] salt = new byte[] { 0x01 };
+
+        cache.get(KeyCacheTest.KDF, "a".toCharArray(), salt, 128, () -> this.key(1));
+        final long start = System.currentTimeMillis();
+        this.waitUntil(() -> System.currentTimeMillis() > start + 100);
+
+        SecretKey key = cache.get(KeyCacheTest.KDF, "a".toCharArray(), salt, 128, () -> this.key(2));
+        Assertions.assertArrayEquals(this.key(2).getEncoded(), key.getEncoded());
+        Assertions.assertEquals(0, cache.getHits());
+        Assertions.assertEquals(2, cache.getMisses());
+        Assertions.assertEquals(1, cache.getEvictions());
+        Assertions.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void test_clear() {
+        KeyCache cache = new KeyCache();
+        cache.get(KeyCacheTest.KDF, "a".toCharArray(), new byte[0], 128, () -> this.key(1));
+        Map<String, Object> entries = this.getField("entries", cache);
+        Object entry = entries.values().iterator().next();
+
+        cache.clear();
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertEquals(1, cache.getEvictions());
+        byte[] zeroed = this.getField("key", entry);
+        Assertions.assertTrue(Arrays.equals(new byte[2], zeroed));
+    }
+
+    @Test
+    public void test_cipher() {
+        KeyCache cache = new KeyCache();
+        AES128 aes = new AES128();
+        Assertions.assertNull(aes.getKeyCache());
+        aes.setKeyCache(cache);
+        Assertions.assertSame(cache, aes.getKeyCache());
+
+        final char[] password = "pw".toCharArray();
+        final byte[] salt = new byte[] { 0x01 };
+        String cipher = aes.encrypt("data".getBytes(), password, salt);
+        Assertions.assertEquals("data", aes.decryptString(cipher, password));
+        Assertions.assertEquals(1, cache.getMisses());
+        Assertions.assertEquals(1, cache.getHits());
+
+        aes.setKeyCache(null);
+        Assertions.assertEquals("data", aes.decryptString(cipher, password));
+        Assertions.assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void test_cipher_randomSalt() {
+        KeyCache cache = new KeyCache();
+        AES128 aes = new AES128();
+        aes.setKeyCache(cache);
+
+        final char[] password = "pw".toCharArray();
+        String cipher = aes.encrypt("data", password);
+        aes.encrypt("data".getBytes(), password);
+        DerivedKey key = aes.deriveKey(password);
+        aes.deriveKey(password, Kdfs.PBKDF2);
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertEquals(0, cache.getMisses());
+
+        // decrypting reads the salt from the value
+        Assertions.assertEquals("data", aes.decryptString(cipher, password));
+        Assertions.assertEquals("data", aes.decryptString(cipher, password));
+        Assertions.assertEquals(1, cache.size());
+        Assertions.assertEquals(1, cache.getHits());
+
+        // caller supplied salts are cached
+        aes.deriveKey(password, key.getSalt());
+        Assertions.assertEquals(2, cache.size());
+    }
+}
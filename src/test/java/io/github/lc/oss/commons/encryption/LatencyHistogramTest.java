@@ -0,0 +1,60 @@
+package io.github.lc.oss.commons.encryption;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.testing.AbstractTest;
+
+public class LatencyHistogramTest extends AbstractTest {
+    @Test
+    public void test_empty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assertions.assertEquals(0, histogram.getCount());
+        Assertions.assertEquals(0, histogram.getMeanNanos());
+        Assertions.assertEquals(0, histogram.getPercentileNanos(99));
+    }
+
+    @Test
+    public void test_percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(100);
+        }
+        for (int i = 0; i < 9; i++) {
+            histogram.record(5000);
+        }
+        histogram.record(2_000_000);
+        histogram.record(-1);
+
+        Assertions.assertEquals(101, histogram.getCount());
+        Assertions.assertEquals(90 * 100 + 9 * 5000 + 2_000_000, histogram.getTotalNanos());
+        Assertions.assertEquals(0, histogram.getPercentileNanos(0));
+        Assertions.assertEquals(127, histogram.getPercentileNanos(50));
+        Assertions.assertEquals(8191, histogram.getPercentileNanos(95));
+        Assertions.assertEquals(2097151, histogram.getPercentileNanos(100));
+        Assertions.assertEquals(Long.MAX_VALUE, this.max());
+
+        histogram.reset();
+        Assertions.assertEquals(0, histogram.getCount());
+        Assertions.assertEquals(0, histogram.getTotalNanos());
+        Assertions.assertEquals(0, histogram.getPercentileNanos(100));
+    }
+
+    private long max() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+        return histogram.getPercentileNanos(50);
+    }
+
+    @Test
+    public void test_badPercentile() {
+        for (double p : new double[] { -1, 100.1 }) {
+            try {
+                new LatencyHistogram().getPercentileNanos(p);
+                Assertions.fail("Expected exception");
+            } catch (RuntimeException ex) {
+                Assertions.assertEquals("Percentile must be between 0 and 100", ex.getMessage());
+            }
+        }
+    }
+}
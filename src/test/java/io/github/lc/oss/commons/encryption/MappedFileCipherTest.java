@@ -0,0 +1,224 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.testing.AbstractTest;
+
+public class MappedFileCipherTest extends AbstractTest {
+    private static final int SEGMENT = 16;
+    private static final char[] PASSWORD = "password".toCharArray();
+
+    private static String tempDir = null;
+    private static DerivedKey key;
+
+    private DerivedKey getKey() {
+        if (MappedFileCipherTest.key == null) {
+            MappedFileCipherTest.key = Ciphers.AES128.deriveKey(MappedFileCipherTest.PASSWORD);
+        }
+        return MappedFileCipherTest.key;
+    }
+
+    private String getTempDir() {
+        if (MappedFileCipherTest.tempDir == null) {
+            MappedFileCipherTest.tempDir = System.getProperty("java.io.tmpdir").replace("\\", "/");
+            Assertions.assertTrue(Files.isDirectory(Paths.get(MappedFileCipherTest.tempDir)));
+            if (!MappedFileCipherTest.tempDir.endsWith("/")) {
+                MappedFileCipherTest.tempDir += "/";
+            }
+        }
+        return MappedFileCipherTest.tempDir;
+    }
+
+    private Path getTempFile(String name) {
+        return Paths.get(this.getTempDir() + "mapped-file-cipher-" + name + ".dat");
+    }
+
+    private byte[] data(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    private Path write(String name, byte[] data) {
+        try {
+            return Files.write(this.getTempFile(name), data);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private byte[] read(Path path) {
+        try {
+            return Files.readAllBytes(path);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    @AfterEach
+    public void cleanup() {
+        for (String name : new String[] { "plain", "encrypted", "decrypted" }) {
+            new File(this.getTempFile(name).toString()).delete();
+        }
+    }
+
+    @Test
+    public void test_badArguments() {
+        try {
+            new MappedFileCipher(Ciphers.AES128, 0);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Segment size must be between 1 and 67108864 bytes.", ex.getMessage());
+        }
+
+        try {
+            new MappedFileCipher(Ciphers.AES128, 16, null);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Sync policy is required", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_defaults() {
+        MappedFileCipher cipher = new MappedFileCipher();
+        Assertions.assertSame(Ciphers.AES256, this.getField("cipher", cipher));
+        Assertions.assertSame(SyncPolicy.ON_COMPLETE, this.getField("syncPolicy", cipher));
+        int segmentSize = this.getField("segmentSize", cipher);
+        Assertions.assertEquals(64 * 1024, segmentSize);
+        long windowSize = this.getField("windowSize", cipher);
+        Assertions.assertEquals(64 * 1024 * 1024, windowSize);
+
+        Assertions.assertTrue(SyncPolicy.hasName("per_window"));
+        Assertions.assertSame(SyncPolicy.NONE, SyncPolicy.tryParse("None"));
+        Assertions.assertEquals(3, SyncPolicy.all().size());
+    }
+
+    @Test
+    public void test_roundTrip() {
+        Path encrypted = this.getTempFile("encrypted");
+        Path decrypted = this.getTempFile("decrypted");
+        final int header = 4 + 4 + 16 + 7 + 4;
+
+        for (SyncPolicy policy : SyncPolicy.values()) {
+            // 3 segments per window
+            MappedFileCipher cipher = new MappedFileCipher(Ciphers.AES128, MappedFileCipherTest.SEGMENT, policy, 48);
+
+            for (int size : new int[] { 0, 1, 16, 17, 48, 49, 96, 1000 }) {
+                byte[] data = this.data(size);
+                Path plain = this.write("plain", data);
+
+                Assertions.assertEquals(size, cipher.encrypt(plain, encrypted, this.getKey()));
+                int segments = Math.max(1, (size + 15) / 16);
+                Assertions.assertEquals(header + size + segments * 16, this.read(encrypted).length);
+
+                Assertions.assertEquals(size, cipher.decrypt(encrypted, decrypted, this.getKey()));
+                Assertions.assertArrayEquals(data, this.read(decrypted));
+            }
+        }
+
+        // existing output is replaced
+        MappedFileCipher cipher = new MappedFileCipher(Ciphers.AES128, MappedFileCipherTest.SEGMENT);
+        byte[] data = this.data(10);
+        this.write("decrypted", this.data(1000));
+        cipher.encrypt(this.write("plain", data), encrypted, MappedFileCipherTest.PASSWORD);
+        Assertions.assertEquals(10, cipher.decrypt(encrypted, decrypted, MappedFileCipherTest.PASSWORD));
+        Assertions.assertArrayEquals(data, this.read(decrypted));
+    }
+
+    @Test
+    public void test_streamingInterop() {
+        MappedFileCipher mapped = new MappedFileCipher(Ciphers.AES128, MappedFileCipherTest.SEGMENT, SyncPolicy.NONE,
+                32);
+        StreamingCipher streaming = new StreamingCipher(Ciphers.AES128, MappedFileCipherTest.SEGMENT);
+        byte[] data = this.data(100);
+        Path encrypted = this.getTempFile("encrypted");
+
+        mapped.encrypt(this.write("plain", data), encrypted, this.getKey());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        streaming.decrypt(new ByteArrayInputStream(this.read(encrypted)), out, this.getKey());
+        Assertions.assertArrayEquals(data, out.toByteArray());
+
+        out = new ByteArrayOutputStream();
+        streaming.encrypt(new ByteArrayInputStream(data), out, this.getKey());
+        this.write("encrypted", out.toByteArray());
+        mapped.decrypt(encrypted, this.getTempFile("decrypted"), MappedFileCipherTest.PASSWORD);
+        Assertions.assertArrayEquals(data, this.read(this.getTempFile("decrypted")));
+    }
+
+    @Test
+    public void test_metrics() {
+        AES128 aes = new AES128();
+        CipherMetrics metrics = new CipherMetrics();
+        aes.setMetricsListener(metrics);
+        MappedFileCipher cipher = new MappedFileCipher(aes, MappedFileCipherTest.SEGMENT);
+        Path encrypted = this.getTempFile("encrypted");
+        Path decrypted = this.getTempFile("decrypted");
+
+        // 7 segments of up to 16 bytes
+        cipher.encrypt(this.write("plain", this.data(100)), encrypted, this.getKey());
+        Assertions.assertEquals(7, metrics.getEncryptions().getCount());
+        Assertions.assertEquals(100, metrics.getBytesEncrypted());
+        cipher.decrypt(encrypted, decrypted, this.getKey());
+        Assertions.assertEquals(7, metrics.getDecryptions().getCount());
+        Assertions.assertEquals(100 + 7 * 16, metrics.getBytesDecrypted());
+
+        byte[] flipped = this.read(encrypted);
+        flipped[flipped.length - 1] ^= 0x01;
+        this.write("encrypted", flipped);
+        try {
+            cipher.decrypt(encrypted, decrypted, this.getKey());
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertTrue(ex.getMessage().contains("Tag mismatch"), ex.getMessage());
+        }
+        Assertions.assertEquals(1, metrics.getFailures(DecryptFailure.AUTHENTICATION));
+    }
+
+    @Test
+    public void test_tampering() {
+        MappedFileCipher cipher = new MappedFileCipher(Ciphers.AES128, MappedFileCipherTest.SEGMENT);
+        Path encrypted = this.getTempFile("encrypted");
+        Path decrypted = this.getTempFile("decrypted");
+        cipher.encrypt(this.write("plain", this.data(100)), encrypted, this.getKey());
+        byte[] valid = this.read(encrypted);
+
+        byte[] flipped = Arrays.copyOf(valid, valid.length);
+        flipped[flipped.length - 1] ^= 0x01;
+        this.write("encrypted", flipped);
+        try {
+            cipher.decrypt(encrypted, decrypted, this.getKey());
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertTrue(ex.getMessage().contains("Tag mismatch"), ex.getMessage());
+        }
+
+        this.write("encrypted", Arrays.copyOf(valid, 35 + 10));
+        try {
+            cipher.decrypt(encrypted, decrypted, this.getKey());
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Encrypted data is truncated.", ex.getMessage());
+        }
+
+        this.write("encrypted", valid);
+        try {
+            cipher.decrypt(encrypted, decrypted, Ciphers.AES128.deriveKey(MappedFileCipherTest.PASSWORD));
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Value was not encrypted using the salt of this key.", ex.getMessage());
+        }
+    }
+}
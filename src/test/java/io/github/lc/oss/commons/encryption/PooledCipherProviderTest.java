@@ -0,0 +1,55 @@
+package io.github.lc.oss.commons.encryption;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.testing.AbstractTest;
+
+public class PooledCipherProviderTest extends AbstractTest {
+    private static final String ALGORITHM = "AES/GCM/NoPadding";
+
+    @Test
+    public void test_badSize() {
+        try {
+            new PooledCipherProvider(0);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Max idle must be positive", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_defaults() {
+        PooledCipherProvider pool = new PooledCipherProvider();
+        int maxIdle = this.getField("maxIdle", pool);
+        Assertions.assertEquals(Runtime.getRuntime().availableProcessors() * 2, maxIdle);
+    }
+
+    @Test
+    public void test_bounded() throws Exception {
+        PooledCipherProvider pool = new PooledCipherProvider(2);
+        Assertions.assertEquals(0, pool.getIdle(PooledCipherProviderTest.ALGORITHM));
+
+        javax.crypto.Cipher c1 = pool.acquire(PooledCipherProviderTest.ALGORITHM);
+        javax.crypto.Cipher c2 = pool.acquire(PooledCipherProviderTest.ALGORITHM);
+        javax.crypto.Cipher c3 = pool.acquire(PooledCipherProviderTest.ALGORITHM);
+        Assertions.assertNotSame(c1, c2);
+        Assertions.assertNotSame(c2, c3);
+
+        pool.release(c1);
+        pool.release(c2);
+        pool.release(c3);
+        Assertions.assertEquals(2, pool.getIdle(PooledCipherProviderTest.ALGORITHM));
+
+        Assertions.assertSame(c1, pool.acquire(PooledCipherProviderTest.ALGORITHM));
+        Assertions.assertSame(c2, pool.acquire(PooledCipherProviderTest.ALGORITHM));
+        Assertions.assertEquals(0, pool.getIdle(PooledCipherProviderTest.ALGORITHM));
+        Assertions.assertNotSame(c3, pool.acquire(PooledCipherProviderTest.ALGORITHM));
+
+        Assertions.assertEquals(0, pool.getIdle("AES/CBC/PKCS5Padding"));
+        javax.crypto.Cipher cbc = pool.acquire("AES/CBC/PKCS5Padding");
+        pool.release(cbc);
+        Assertions.assertEquals(1, pool.getIdle("AES/CBC/PKCS5Padding"));
+        Assertions.assertEquals(0, pool.getIdle(PooledCipherProviderTest.ALGORITHM));
+    }
+}
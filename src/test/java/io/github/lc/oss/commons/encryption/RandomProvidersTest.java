@@ -0,0 +1,90 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.testing.AbstractTest;
+
+public class RandomProvidersTest extends AbstractTest {
+    @Test
+    public void test_caching() {
+        Set<RandomProviders> expected = new HashSet<>(Arrays.asList(RandomProviders.values()));
+        Assertions.assertEquals(expected, RandomProviders.all());
+
+        Assertions.assertTrue(RandomProviders.hasName("thread_local"));
+        Assertions.assertSame(RandomProviders.STRIPED, RandomProviders.byName("Striped"));
+        Assertions.assertSame(RandomProviders.SHARED, RandomProviders.tryParse("SHARED"));
+    }
+
+    @Test
+    public void test_nextBytes() {
+        for (RandomProvider provider : RandomProviders.values()) {
+            byte[] b1 = new byte[32];
+            byte[] b2 = new byte[32];
+            provider.nextBytes(b1);
+            provider.nextBytes(b2);
+            Assertions.assertFalse(Arrays.equals(new byte[32], b1));
+            Assertions.assertFalse(Arrays.equals(b1, b2));
+        }
+    }
+
+    @Test
+    public void test_threadLocal() throws Exception {
+        ThreadLocal<?> random = this.getField("random", this.getField("provider", RandomProviders.THREAD_LOCAL));
+        RandomProviders.THREAD_LOCAL.nextBytes(new byte[1]);
+        Object mine = random.get();
+        Assertions.assertSame(mine, random.get());
+
+        Object[] other = new Object[1];
+        Thread t = new Thread(() -> {
+            RandomProviders.THREAD_LOCAL.nextBytes(new byte[1]);
+            other[0] = random.get();
+        });
+        t.start();
+        t.join();
+        Assertions.assertNotNull(other[0]);
+        Assertions.assertNotSame(mine, other[0]);
+    }
+
+    @Test
+    public void test_ciphers() {
+        final String data = "data";
+        final char[] password = "password".toCharArray();
+
+        for (RandomProvider provider : Arrays.asList(RandomProviders.SHARED, RandomProviders.THREAD_LOCAL,
+                RandomProviders.STRIPED, new StripedRandomProvider(1))) {
+            AES128 aes = new AES128();
+            aes.setRandomProvider(provider);
+            Assertions.assertSame(provider, aes.getRandomProvider());
+
+            DerivedKey key = aes.deriveKey(password);
+            Assertions.assertEquals(data, aes.decryptString(aes.encrypt(data, key), key));
+            Assertions.assertEquals(data, aes.decryptString(aes.encrypt(data, password), password));
+            Assertions.assertFalse(Arrays.equals(aes.generateIV(), aes.generateIV()));
+        }
+    }
+
+    @Test
+    public void test_ciphers_required() {
+        try {
+            Ciphers.AES128.setRandomProvider(null);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Random provider is required", ex.getMessage());
+        }
+        Assertions.assertSame(RandomProviders.SHARED, Ciphers.AES128.getRandomProvider());
+
+        try {
+            Ciphers.AES256.setRandomProvider(RandomProviders.STRIPED);
+            Assertions.assertSame(RandomProviders.STRIPED, Ciphers.AES256.getRandomProvider());
+            String cipher = Ciphers.AES256.encrypt("data", "pw".toCharArray());
+            Assertions.assertEquals("data", Ciphers.AES256.decryptString(cipher, "pw".toCharArray()));
+        } finally {
+            Ciphers.AES256.setRandomProvider(RandomProviders.SHARED);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.nio.charset.StandardCharsets;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.testing.AbstractTest;
+
+public class ReEncryptorTest extends AbstractTest {
+    private static final char[] OLD_PASSWORD = "old".toCharArray();
+    private static final char[] NEW_PASSWORD = "new".toCharArray();
+    private static final Kdf KDF = Kdfs.pbkdf2(1000);
+
+    private AES128 cipher() {
+        AES128 cipher = new AES128();
+        cipher.setAcceptedKdfs(Arrays.asList(Kdfs.PBKDF2, ReEncryptorTest.KDF));
+        return cipher;
+    }
+
+    private byte[] data(int i) {
+        return ("value " + i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void test_badArguments() {
+        try {
+            new ReEncryptor(Ciphers.AES128, ForkJoinPool.commonPool(), 0);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Parallelism must be positive", ex.getMessage());
+        }
+
+        try {
+            new ReEncryptor(Ciphers.AES128, ForkJoinPool.commonPool(), 1, 0);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Batch size must be positive", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_defaults() {
+        ReEncryptor reEncryptor = new ReEncryptor();
+        Assertions.assertSame(Ciphers.AES256, this.getField("cipher", reEncryptor));
+        Assertions.assertSame(ForkJoinPool.commonPool(), this.getField("executor", reEncryptor));
+        int parallelism = this.getField("parallelism", reEncryptor);
+        Assertions.assertEquals(ForkJoinPool.getCommonPoolParallelism(), parallelism);
+        int batchSize = this.getField("batchSize", reEncryptor);
+        Assertions.assertEquals(1024, batchSize);
+    }
+
+    @Test
+    public void test_reEncrypt() {
+        AES128 cipher = this.cipher();
+        CipherMetrics metrics = new CipherMetrics();
+        cipher.setMetricsListener(metrics);
+
+        // 3 keys, values of each spread over several batches
+        List<DerivedKey> keys = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            keys.add(cipher.deriveKey(ReEncryptorTest.OLD_PASSWORD, ReEncryptorTest.KDF));
+        }
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            DerivedKey key = keys.get(i % 3);
+            values.add(i % 10 == 9 ? cipher.encryptCompact(this.data(i), key) : cipher.encrypt(this.data(i), key));
+        }
+        values.set(20, "invalid");
+        values.set(40, cipher.encrypt(this.data(40), cipher.deriveKey("other".toCharArray(), ReEncryptorTest.KDF)));
+        values.set(50, null);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ReEncryptor reEncryptor = new ReEncryptor(cipher, executor, 2, 8);
+            DerivedKey newKey = cipher.deriveKey(ReEncryptorTest.NEW_PASSWORD, ReEncryptorTest.KDF);
+            metrics.reset();
+
+            List<ReEncryptResult> results = new ArrayList<>();
+            List<BulkMetrics> progress = new ArrayList<>();
+            BulkMetrics totals = reEncryptor.reEncrypt(values.iterator(), ReEncryptorTest.OLD_PASSWORD, newKey,
+                    results::add, progress::add);
+
+            Assertions.assertEquals(60, results.size());
+            for (int i = 0; i < 60; i++) {
+                ReEncryptResult result = results.get(i);
+                Assertions.assertEquals(i, result.getIndex());
+                if (i == 20 || i == 40 || i == 50) {
+                    Assertions.assertFalse(result.isSuccess());
+                    Assertions.assertNull(result.getValue());
+                    Assertions.assertNotNull(result.getError());
+                } else {
+                    Assertions.assertTrue(result.isSuccess(), String.valueOf(result.getError()));
+                    Assertions.assertNull(result.getError());
+                    Assertions.assertArrayEquals(this.data(i), cipher.decrypt(result.getValue(), newKey));
+                }
+            }
+            Assertions.assertTrue(results.get(40).getError().getMessage().contains("Tag mismatch"));
+
+            // each old key once (at most once per worker), the "other" key once
+            long derivations = metrics.getDerivations().getCount();
+            Assertions.assertTrue(derivations >= 4 && derivations <= 7, "Derivations: " + derivations);
+
+            Assertions.assertEquals(60, totals.getItems());
+            Assertions.assertEquals(3, totals.getFailures());
+            Assertions.assertTrue(totals.getBytes() > 0);
+            Assertions.assertTrue(totals.getNanos() > 0);
+            Assertions.assertTrue(totals.getItemsPerSecond() > 0);
+
+            Assertions.assertEquals(8, progress.size());
+            for (int i = 1; i < progress.size(); i++) {
+                Assertions.assertTrue(progress.get(i).getItems() >= progress.get(i - 1).getItems());
+            }
+            Assertions.assertEquals(60, progress.get(progress.size() - 1).getItems());
+
+            // new password
+            results.clear();
+            reEncryptor.reEncrypt(Arrays.asList(values.get(0)).iterator(), ReEncryptorTest.OLD_PASSWORD,
+                    ReEncryptorTest.NEW_PASSWORD, results::add);
+            Assertions.assertEquals(1, results.size());
+            Assertions.assertArrayEquals(this.data(0),
+                    cipher.decrypt(results.get(0).getValue(), ReEncryptorTest.NEW_PASSWORD));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_backPressure() {
+        AES128 cipher = this.cipher();
+        DerivedKey key = cipher.deriveKey(ReEncryptorTest.OLD_PASSWORD, ReEncryptorTest.KDF);
+        String value = cipher.encrypt(this.data(0), key);
+        AtomicInteger read = new AtomicInteger();
+        AtomicInteger delivered = new AtomicInteger();
+        AtomicInteger maxAhead = new AtomicInteger();
+
+        Iterator<String> values = new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return read.get() < 200;
+            }
+
+            @Override
+            public String next() {
+                maxAhead.accumulateAndGet(read.incrementAndGet() - delivered.get(), Math::max);
+                return value;
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ReEncryptor reEncryptor = new ReEncryptor(cipher, executor, 2, 4);
+            BulkMetrics totals = reEncryptor.reEncrypt(values, ReEncryptorTest.OLD_PASSWORD, key,
+                    r -> delivered.incrementAndGet());
+
+            Assertions.assertEquals(200, delivered.get());
+            Assertions.assertEquals(200, totals.getItems());
+            Assertions.assertEquals(0, totals.getFailures());
+            // at most 2 batches per thread in flight
+            Assertions.assertTrue(maxAhead.get() <= 16, "Read ahead: " + maxAhead.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_sinkFailure() {
+        AES128 cipher = this.cipher();
+        DerivedKey key = cipher.deriveKey(ReEncryptorTest.OLD_PASSWORD, ReEncryptorTest.KDF);
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            values.add(cipher.encrypt(this.data(i), key));
+        }
+
+        ReEncryptor reEncryptor = new ReEncryptor(cipher, ForkJoinPool.commonPool(), 1, 2);
+        try {
+            reEncryptor.reEncrypt(values.iterator(), ReEncryptorTest.OLD_PASSWORD, key, r -> {
+                throw new RuntimeException("Sink failed");
+            });
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Sink failed", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_keysCleared() throws Exception {
+        AES128 cipher = this.cipher();
+        DerivedKey key = cipher.deriveKey(ReEncryptorTest.OLD_PASSWORD, ReEncryptorTest.KDF);
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            values.add(cipher.encrypt(this.data(i), key));
+        }
+
+        List<Callable<?>> tasks = new ArrayList<>();
+        ExecutorService executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>()) {
+            @Override
+            public <T> Future<T> submit(Callable<T> task) {
+                tasks.add(task);
+                return super.submit(task);
+            }
+        };
+        try {
+            ReEncryptor reEncryptor = new ReEncryptor(cipher, executor, 1, 2);
+            BulkMetrics totals = reEncryptor.reEncrypt(values.iterator(), ReEncryptorTest.OLD_PASSWORD, key,
+                    r -> {
+                    });
+            Assertions.assertEquals(4, totals.getItems());
+            Assertions.assertEquals(0, totals.getFailures());
+        } finally {
+            executor.shutdown();
+        }
+
+        Assertions.assertEquals(2, tasks.size());
+        Object run = null;
+        for (Field field : tasks.get(0).getClass().getDeclaredFields()) {
+            if (field.getType().getSimpleName().equals("Run")) {
+                field.setAccessible(true);
+                run = field.get(tasks.get(0));
+            }
+        }
+        Assertions.assertNotNull(run);
+        Map<String, DerivedKey> keys = this.getField("keys", run);
+        Assertions.assertTrue(keys.isEmpty());
+        boolean cleared = this.getField("cleared", run);
+        Assertions.assertTrue(cleared);
+    }
+}
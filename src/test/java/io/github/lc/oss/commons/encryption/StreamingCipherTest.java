@@ -0,0 +1,264 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.testing.AbstractTest;
+
+public class StreamingCipherTest extends AbstractTest {
+    private static final int SEGMENT = 16;
+    private static final char[] PASSWORD = "password".toCharArray();
+
+    private static DerivedKey key;
+
+    private DerivedKey getKey() {
+        if (StreamingCipherTest.key == null) {
+            StreamingCipherTest.key = Ciphers.AES128.deriveKey(StreamingCipherTest.PASSWORD);
+        }
+        return StreamingCipherTest.key;
+    }
+
+    private byte[] data(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    private byte[] encrypt(StreamingCipher cipher, byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Assertions.assertEquals(data.length, cipher.encrypt(new ByteArrayInputStream(data), out, this.getKey()));
+        return out.toByteArray();
+    }
+
+    private byte[] decrypt(StreamingCipher cipher, byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cipher.decrypt(new ByteArrayInputStream(data), out, this.getKey());
+        return out.toByteArray();
+    }
+
+    private void assertFails(StreamingCipher cipher, byte[] data, String message) {
+        try {
+            this.decrypt(cipher, data);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertTrue(ex.getMessage().contains(message), ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_badSegmentSize() {
+        Arrays.asList(-1, 0, 64 * 1024 * 1024 + 1).forEach(i -> {
+            try {
+                new StreamingCipher(Ciphers.AES128, i);
+                Assertions.fail("Expected exception");
+            } catch (RuntimeException ex) {
+                Assertions.assertEquals("Segment size must be between 1 and 67108864 bytes.", ex.getMessage());
+            }
+        });
+    }
+
+    @Test
+    public void test_defaults() {
+        StreamingCipher cipher = new StreamingCipher();
+        Assertions.assertSame(Ciphers.AES256, this.getField("cipher", cipher));
+        int segmentSize = this.getField("segmentSize", cipher);
+        Assertions.assertEquals(64 * 1024, segmentSize);
+    }
+
+    @Test
+    public void test_sizes() {
+        StreamingCipher cipher = new StreamingCipher(Ciphers.AES128, StreamingCipherTest.SEGMENT);
+        final int header = 4 + 4 + 16 + 7 + 4;
+
+        for (int size : new int[] { 0, 1, 15, 16, 17, 32, 33, 100 }) {
+            byte[] data = this.data(size);
+            byte[] encrypted = this.encrypt(cipher, data);
+
+            int segments = Math.max(1, (size + StreamingCipherTest.SEGMENT - 1) / StreamingCipherTest.SEGMENT);
+            Assertions.assertEquals(header + size + segments * 16, encrypted.length);
+            Assertions.assertArrayEquals(data, this.decrypt(cipher, encrypted));
+        }
+    }
+
+    @Test
+    public void test_channels() {
+        StreamingCipher cipher = new StreamingCipher(Ciphers.AES128, 1024);
+        byte[] data = this.data(10000);
+
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        long count = cipher.encrypt(Channels.newChannel(new ByteArrayInputStream(data)),
+                Channels.newChannel(encrypted), this.getKey());
+        Assertions.assertEquals(10000, count);
+
+        ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+        count = cipher.decrypt(Channels.newChannel(new ByteArrayInputStream(encrypted.toByteArray())),
+                Channels.newChannel(decrypted), StreamingCipherTest.PASSWORD);
+        Assertions.assertEquals(10000, count);
+        Assertions.assertArrayEquals(data, decrypted.toByteArray());
+
+        // streams and channels are interchangeable
+        Assertions.assertArrayEquals(data, this.decrypt(cipher, encrypted.toByteArray()));
+    }
+
+    @Test
+    public void test_providers() {
+        AES128 aes = new AES128();
+        PooledCipherProvider pool = new PooledCipherProvider(1);
+        AtomicInteger random = new AtomicInteger();
+        aes.setCipherProvider(pool);
+        aes.setRandomProvider(bytes -> {
+            random.incrementAndGet();
+            RandomProviders.SHARED.nextBytes(bytes);
+        });
+
+        StreamingCipher cipher = new StreamingCipher(aes, StreamingCipherTest.SEGMENT);
+        byte[] data = this.data(100);
+        byte[] encrypted = this.encrypt(cipher, data);
+        Assertions.assertEquals(1, random.get());
+        Assertions.assertEquals(1, pool.getIdle(Segments.ALGORITHM));
+
+        Assertions.assertArrayEquals(data, this.decrypt(cipher, encrypted));
+        Assertions.assertArrayEquals(data, new ChunkedCipher(aes).decrypt(encrypted, this.getKey()));
+        Assertions.assertEquals(1, pool.getIdle(Segments.ALGORITHM));
+
+        // ciphers without providers
+        Assertions.assertSame(CipherProviders.NEW_INSTANCE, Segments.getCipherProvider(null));
+        Assertions.assertSame(RandomProviders.SHARED, Segments.getRandomProvider(null));
+        Assertions.assertSame(Ciphers.AES256.getCipherProvider(), Segments.getCipherProvider(Ciphers.AES256));
+    }
+
+    @Test
+    public void test_password() {
+        StreamingCipher cipher = new StreamingCipher(Ciphers.AES128, StreamingCipherTest.SEGMENT);
+        byte[] data = this.data(40);
+
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        cipher.encrypt(new ByteArrayInputStream(data), encrypted, StreamingCipherTest.PASSWORD);
+
+        ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+        Assertions.assertEquals(40, cipher.decrypt(new ByteArrayInputStream(encrypted.toByteArray()), decrypted,
+                StreamingCipherTest.PASSWORD));
+        Assertions.assertArrayEquals(data, decrypted.toByteArray());
+
+        // the password derived key uses a random salt
+        this.assertFails(cipher, encrypted.toByteArray(), "Value was not encrypted using the salt of this key.");
+
+        try {
+            new StreamingCipher(Ciphers.AES256, 16).decrypt(new ByteArrayInputStream(encrypted.toByteArray()),
+                    new ByteArrayOutputStream(), StreamingCipherTest.PASSWORD);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertTrue(ex.getMessage().contains("javax.crypto.AEADBadTagException"));
+        }
+    }
+
+    @Test
+    public void test_kdf() {
+        StreamingCipher cipher = new StreamingCipher(Ciphers.AES128, StreamingCipherTest.SEGMENT);
+        byte[] data = this.data(40);
+        DerivedKey key = Ciphers.AES128.deriveKey(StreamingCipherTest.PASSWORD, Kdfs.HKDF_SHA256);
+
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        cipher.encrypt(new ByteArrayInputStream(data), encrypted, key);
+        Assertions.assertEquals(0x02, encrypted.toByteArray()[1]);
+        Assertions.assertEquals(0, encrypted.toByteArray()[2]);
+
+        // the function is read from the header
+        ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+        cipher.decrypt(new ByteArrayInputStream(encrypted.toByteArray()), decrypted, StreamingCipherTest.PASSWORD);
+        Assertions.assertArrayEquals(data, decrypted.toByteArray());
+
+        decrypted.reset();
+        cipher.decrypt(new ByteArrayInputStream(encrypted.toByteArray()), decrypted, key);
+        Assertions.assertArrayEquals(data, decrypted.toByteArray());
+
+        this.assertFails(cipher, encrypted.toByteArray(),
+                "Value was not encrypted using the key derivation function of this key.");
+    }
+
+    @Test
+    public void test_forgedIterations() {
+        StreamingCipher cipher = new StreamingCipher(Ciphers.AES128, StreamingCipherTest.SEGMENT);
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        cipher.encrypt(new ByteArrayInputStream(this.data(40)), encrypted, StreamingCipherTest.PASSWORD);
+
+        // version || kdf id || parameters length || iterations
+        byte[] huge = encrypted.toByteArray();
+        huge[3] = 0x7F;
+        try {
+            cipher.decrypt(new ByteArrayInputStream(huge), new ByteArrayOutputStream(), StreamingCipherTest.PASSWORD);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Iterations must not exceed 1000000", ex.getMessage());
+        }
+
+        byte[] other = encrypted.toByteArray();
+        other[6]++;
+        try {
+            cipher.decrypt(new ByteArrayInputStream(other), new ByteArrayOutputStream(),
+                    StreamingCipherTest.PASSWORD);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Key derivation function is not accepted.", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_segmentSizeFromHeader() {
+        byte[] data = this.data(100);
+        byte[] encrypted = this.encrypt(new StreamingCipher(Ciphers.AES128, 7), data);
+        Assertions.assertArrayEquals(data, this.decrypt(new StreamingCipher(Ciphers.AES128, 1000), encrypted));
+    }
+
+    @Test
+    public void test_tampering() {
+        StreamingCipher cipher = new StreamingCipher(Ciphers.AES128, StreamingCipherTest.SEGMENT);
+        final int header = 4 + 4 + 16 + 7 + 4;
+        final int segment = StreamingCipherTest.SEGMENT + 16;
+        byte[] encrypted = this.encrypt(cipher, this.data(40));
+        Assertions.assertEquals(header + 3 * segment - 8, encrypted.length);
+
+        // drop the last segment
+        this.assertFails(cipher, Arrays.copyOf(encrypted, header + 2 * segment), "AEADBadTagException");
+
+        // truncate the last segment
+        this.assertFails(cipher, Arrays.copyOf(encrypted, encrypted.length - 1), "AEADBadTagException");
+        this.assertFails(cipher, Arrays.copyOf(encrypted, header + 2 * segment + 15), "Encrypted data is truncated.");
+
+        // no segments
+        this.assertFails(cipher, Arrays.copyOf(encrypted, header), "Encrypted data is truncated.");
+
+        // truncated header
+        this.assertFails(cipher, Arrays.copyOf(encrypted, header - 1), "Encrypted data is truncated.");
+        this.assertFails(cipher, new byte[0], "Encrypted data is truncated.");
+
+        // swap two segments
+        byte[] swapped = encrypted.clone();
+        System.arraycopy(encrypted, header, swapped, header + segment, segment);
+        System.arraycopy(encrypted, header + segment, swapped, header, segment);
+        this.assertFails(cipher, swapped, "AEADBadTagException");
+
+        // modify the header
+        byte[] modified = encrypted.clone();
+        modified[header - 1]++;
+        this.assertFails(cipher, modified, "AEADBadTagException");
+
+        modified = encrypted.clone();
+        modified[0] = 0x03;
+        this.assertFails(cipher, modified, "Unsupported segment format version.");
+
+        modified = encrypted.clone();
+        modified[1] = 0x7F;
+        this.assertFails(cipher, modified, "Unsupported key derivation function.");
+
+        // extra data
+        this.assertFails(cipher, Arrays.copyOf(encrypted, encrypted.length + 1), "AEADBadTagException");
+    }
+}
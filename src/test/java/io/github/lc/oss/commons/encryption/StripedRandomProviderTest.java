@@ -0,0 +1,52 @@
+package io.github.lc.oss.commons.encryption;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.testing.AbstractTest;
+
+public class StripedRandomProviderTest extends AbstractTest {
+    @Test
+    public void test_badSize() {
+        try {
+            new StripedRandomProvider(0);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Stripes must be positive", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_defaults() {
+        StripedRandomProvider provider = new StripedRandomProvider();
+        SecureRandom[] randoms = this.getField("randoms", provider);
+        Assertions.assertEquals(Runtime.getRuntime().availableProcessors() * 2, randoms.length);
+        Assertions.assertEquals("DRBG", randoms[0].getAlgorithm());
+        Assertions.assertNotSame(randoms[0], randoms[randoms.length - 1]);
+    }
+
+    @Test
+    public void test_threads() throws Exception {
+        StripedRandomProvider provider = new StripedRandomProvider(2);
+        byte[][] bytes = new byte[8][16];
+        Thread[] threads = new Thread[bytes.length];
+        for (int i = 0; i < threads.length; i++) {
+            final byte[] b = bytes[i];
+            threads[i] = new Thread(() -> provider.nextBytes(b));
+            threads[i].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        for (int i = 0; i < bytes.length; i++) {
+            Assertions.assertFalse(Arrays.equals(new byte[16], bytes[i]));
+            for (int j = i + 1; j < bytes.length; j++) {
+                Assertions.assertFalse(Arrays.equals(bytes[i], bytes[j]));
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.lc.oss.commons.encryption;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.testing.AbstractTest;
+
+public class WrappedKeyTest extends AbstractTest {
+    @Test
+    public void test_encoding() {
+        byte[] id = new byte[16];
+        id[0] = 0x01;
+        WrappedKey key = new WrappedKey(id, "AQ==$a$b");
+        Assertions.assertEquals("1$AQAAAAAAAAAAAAAAAAAAAA==$AQ==$a$b", key.getEncoded());
+
+        WrappedKey decoded = WrappedKey.decode(key.getEncoded());
+        Assertions.assertArrayEquals(id, decoded.getId());
+        Assertions.assertEquals("AQ==$a$b", decoded.getWrapped());
+
+        // copies are returned
+        decoded.getId()[0] = 0x02;
+        Assertions.assertArrayEquals(id, decoded.getId());
+    }
+
+    @Test
+    public void test_invalid() {
+        for (String value : new String[] { null, "", "1", "1$AQAAAAAAAAAAAAAAAAAAAA==", "1$AQAAAAAAAAAAAAAAAAAAAA==$",
+                "1$AQ==$abc", "1$!!$abc" }) {
+            try {
+                WrappedKey.decode(value);
+                Assertions.fail("Expected exception");
+            } catch (RuntimeException ex) {
+                Assertions.assertTrue(ex.getMessage().startsWith("Invalid"), ex.getMessage());
+            }
+        }
+
+        try {
+            WrappedKey.decode("2$AQAAAAAAAAAAAAAAAAAAAA==$abc");
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Unsupported wrapped key version.", ex.getMessage());
+        }
+    }
+}
@@ -34,7 +34,48 @@ public class EphemeralCipherTest extends AbstractTest {
         ec.encrypt(new byte[] { 0x00 });
         ec.encrypt("");
 
+        ec.encrypt(new byte[] { 0x00 }, (byte[]) null);
+
         ec.decrypt("");
+        ec.decrypt("", (byte[]) null);
         ec.decryptString("");
     }
+
+    @Test
+    public void test_associatedDataNotSupported() {
+        EphemeralCipher ec = new EphemeralCipher() {
+
+            @Override
+            public String encrypt(byte[] data, Cipher cipher) {
+                return "encrypted";
+            }
+
+            @Override
+            public String decryptString(String data, Cipher cipher) {
+                return null;
+            }
+
+            @Override
+            public byte[] decrypt(String data, Cipher cipher) {
+                return new byte[] { 0x02 };
+            }
+        };
+
+        Assertions.assertEquals("encrypted", ec.encrypt(new byte[] { 0x00 }, null, Ciphers.AES128));
+        Assertions.assertArrayEquals(new byte[] { 0x02 }, ec.decrypt("", null, Ciphers.AES128));
+
+        try {
+            ec.encrypt(new byte[] { 0x00 }, new byte[] { 0x01 });
+            Assertions.fail("Expected exception");
+        } catch (UnsupportedOperationException ex) {
+            Assertions.assertEquals("Associated data is not supported", ex.getMessage());
+        }
+
+        try {
+            ec.decrypt("", new byte[] { 0x01 });
+            Assertions.fail("Expected exception");
+        } catch (UnsupportedOperationException ex) {
+            Assertions.assertEquals("Associated data is not supported", ex.getMessage());
+        }
+    }
 }
@@ -0,0 +1,68 @@
+package io.github.lc.oss.commons.encryption.ephemeral;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import io.github.lc.oss.commons.encryption.Ciphers;
+import io.github.lc.oss.commons.encryption.DataKeyCipher;
+import io.github.lc.oss.commons.encryption.WrappedKey;
+import io.github.lc.oss.commons.testing.AbstractTest;
+
+public class EphemeralMasterKeyTest extends AbstractTest {
+    @Test
+    public void test_badArguments() {
+        try {
+            new EphemeralMasterKey(null);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Master cipher is required", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_fileBacked() throws IOException {
+        Path keyFile = Files.createTempFile("ephemeral-master-key", ".key");
+        try {
+            Files.write(keyFile, "master key file contents".getBytes());
+
+            DataKeyCipher cipher = new DataKeyCipher(new EphemeralMasterKey(new FileBackedCipher(keyFile.toString())));
+            WrappedKey key = cipher.generateKey();
+            String encrypted = cipher.encrypt("data", key);
+
+            // another process reading the same key file
+            DataKeyCipher other = new DataKeyCipher(Ciphers.AES256,
+                    new EphemeralMasterKey(new FileBackedCipher(keyFile.toString()), Ciphers.AES128));
+            try {
+                other.decryptString(encrypted, WrappedKey.decode(key.getEncoded()));
+                Assertions.fail("Expected exception");
+            } catch (RuntimeException ex) {
+                // wrapped using AES256
+                Assertions.assertNotNull(ex.getMessage());
+            }
+
+            other = new DataKeyCipher(new EphemeralMasterKey(new FileBackedCipher(keyFile.toString())));
+            Assertions.assertEquals("data", other.decryptString(encrypted, WrappedKey.decode(key.getEncoded())));
+        } finally {
+            new File(keyFile.toString()).delete();
+        }
+    }
+
+    @Test
+    public void test_rewrap() {
+        MemoryBackedCipher oldMaster = new MemoryBackedCipher();
+        MemoryBackedCipher newMaster = new MemoryBackedCipher();
+
+        DataKeyCipher cipher = new DataKeyCipher(new EphemeralMasterKey(oldMaster));
+        WrappedKey key = cipher.generateKey();
+        String encrypted = cipher.encrypt("data", key);
+
+        WrappedKey rewrapped = cipher.rewrap(key, new EphemeralMasterKey(newMaster));
+        Assertions.assertEquals("data",
+                new DataKeyCipher(new EphemeralMasterKey(newMaster)).decryptString(encrypted, rewrapped));
+    }
+}
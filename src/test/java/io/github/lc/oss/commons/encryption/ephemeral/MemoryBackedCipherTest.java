@@ -6,10 +6,58 @@ import java.util.Arrays;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import io.github.lc.oss.commons.encryption.Cipher;
 import io.github.lc.oss.commons.encryption.Ciphers;
+import io.github.lc.oss.commons.encryption.Kdf;
+import io.github.lc.oss.commons.encryption.Kdfs;
 import io.github.lc.oss.commons.testing.AbstractTest;
 
 public class MemoryBackedCipherTest extends AbstractTest {
+    /*
+     * Implements only the password based methods
+     */
+    private static class PasswordCipher implements Cipher {
+        @Override
+        public String encrypt(String data, char[] password) {
+            return Ciphers.AES256.encrypt(data, password);
+        }
+
+        @Override
+        public String encrypt(String data, char[] password, String salt) {
+            return Ciphers.AES256.encrypt(data, password, salt);
+        }
+
+        @Override
+        public String encrypt(byte[] data, char[] password) {
+            return Ciphers.AES256.encrypt(data, password);
+        }
+
+        @Override
+        public String encrypt(byte[] data, char[] password, byte[] salt) {
+            return Ciphers.AES256.encrypt(data, password, salt);
+        }
+
+        @Override
+        public byte[] encrypt(byte[] data, char[] password, byte[] salt, byte[] iv) {
+            return Ciphers.AES256.encrypt(data, password, salt, iv);
+        }
+
+        @Override
+        public String decryptString(String data, char[] password) {
+            return Ciphers.AES256.decryptString(data, password);
+        }
+
+        @Override
+        public byte[] decrypt(String data, char[] password) {
+            return Ciphers.AES256.decrypt(data, password);
+        }
+
+        @Override
+        public byte[] decrypt(byte[] data, char[] password, byte[] salt, byte[] iv) {
+            return Ciphers.AES256.decrypt(data, password, salt, iv);
+        }
+    }
+
     @Test
     public void test_badKeySize() {
         Arrays.asList(-1, 0, 1, 7, 9, 15).forEach(i -> {
@@ -46,6 +94,58 @@ public class MemoryBackedCipherTest extends AbstractTest {
         }
     }
 
+    @Test
+    public void test_kdf() {
+        MemoryBackedCipher cipher = new MemoryBackedCipher();
+
+        // per message keys are derived using HKDF and the function is recorded
+        String encrypted = cipher.encrypt("test");
+        Assertions.assertTrue(encrypted.startsWith("Ag==$"), encrypted);
+        Assertions.assertEquals("test", cipher.decryptString(encrypted));
+        Assertions.assertNotEquals(encrypted, cipher.encrypt("test"));
+
+        // values encrypted with a password hash are still accepted
+        char[] key = this.getField("key", cipher);
+        String legacy = Ciphers.AES256.encrypt("test", key);
+        Assertions.assertEquals("test", cipher.decryptString(legacy));
+
+        MemoryBackedCipher pbkdf2 = new MemoryBackedCipher(256) {
+            @Override
+            protected Kdf getKdf() {
+                return Kdfs.PBKDF2;
+            }
+        };
+        encrypted = pbkdf2.encrypt("test", Ciphers.AES128);
+        Assertions.assertEquals(2, encrypted.chars().filter(c -> c == '$').count());
+        Assertions.assertEquals("test", pbkdf2.decryptString(encrypted, Ciphers.AES128));
+    }
+
+    @Test
+    public void test_associatedData() {
+        MemoryBackedCipher cipher = new MemoryBackedCipher();
+        final byte[] data = "test".getBytes(StandardCharsets.UTF_8);
+        final byte[] aad = "record-1".getBytes(StandardCharsets.UTF_8);
+
+        String encrypted = cipher.encrypt(data, aad);
+        Assertions.assertArrayEquals(data, cipher.decrypt(encrypted, aad));
+        Assertions.assertArrayEquals(data, cipher.decrypt(cipher.encrypt(data, aad, Ciphers.AES128), aad,
+                Ciphers.AES128));
+
+        try {
+            cipher.decrypt(encrypted, "record-2".getBytes(StandardCharsets.UTF_8));
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertTrue(ex.getMessage().contains("Tag mismatch"), ex.getMessage());
+        }
+
+        try {
+            cipher.decrypt(encrypted);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertTrue(ex.getMessage().contains("Tag mismatch"), ex.getMessage());
+        }
+    }
+
     @Test
     public void test_rotateKey() {
         MemoryBackedCipher cipher = new MemoryBackedCipher();
@@ -67,4 +167,31 @@ public class MemoryBackedCipherTest extends AbstractTest {
             Assertions.assertEquals("javax.crypto.AEADBadTagException: Tag mismatch", ex.getMessage());
         }
     }
+
+    @Test
+    public void test_customCipher() {
+        MemoryBackedCipher cipher = new MemoryBackedCipher();
+        Cipher custom = new PasswordCipher();
+
+        // the key is used as a password
+        String encrypted = cipher.encrypt("test", custom);
+        Assertions.assertEquals(2, encrypted.chars().filter(c -> c == '$').count());
+        Assertions.assertEquals("test", cipher.decryptString(encrypted, custom));
+        Assertions.assertArrayEquals("test".getBytes(StandardCharsets.UTF_8), cipher.decrypt(encrypted, custom));
+        Assertions.assertEquals("test", cipher.decryptString(encrypted, Ciphers.AES256));
+
+        try {
+            cipher.encrypt(new byte[1], new byte[1], custom);
+            Assertions.fail("Expected exception");
+        } catch (UnsupportedOperationException ex) {
+            Assertions.assertEquals("Associated data is not supported", ex.getMessage());
+        }
+
+        try {
+            cipher.decrypt(encrypted, new byte[1], custom);
+            Assertions.fail("Expected exception");
+        } catch (UnsupportedOperationException ex) {
+            Assertions.assertEquals("Associated data is not supported", ex.getMessage());
+        }
+    }
 }
@@ -1,15 +1,40 @@
 package io.github.lc.oss.commons.encryption.ephemeral;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.opentest4j.AssertionFailedError;
 
+import io.github.lc.oss.commons.encryption.Cipher;
+import io.github.lc.oss.commons.encryption.CipherMetrics;
 import io.github.lc.oss.commons.encryption.Ciphers;
+import io.github.lc.oss.commons.encryption.DecryptFailure;
+import io.github.lc.oss.commons.encryption.DerivedKey;
+import io.github.lc.oss.commons.encryption.Kdfs;
 import io.github.lc.oss.commons.testing.AbstractTest;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 public class RotatingMemoryBackedCipherTest extends AbstractTest {
     private class ThreadHelper implements Runnable {
@@ -42,8 +67,7 @@ public class RotatingMemoryBackedCipherTest extends AbstractTest {
                 this.lock.take();
 
                 this.rmbc.encrypt("data");
-                this.key = ((Object[]) RotatingMemoryBackedCipherTest.this.getField("keys",
-                        rmbc))[this.expectedKeyIndex];
+                this.key = RotatingMemoryBackedCipherTest.this.keys(this.rmbc)[this.expectedKeyIndex];
             } catch (InterruptedException ex) {
                 Assertions.fail("Unexpected exception");
             } finally {
@@ -52,6 +76,56 @@ public class RotatingMemoryBackedCipherTest extends AbstractTest {
         }
     }
 
+    /*
+     * Implements only the password based methods
+     */
+    private static class PasswordCipher implements Cipher {
+        @Override
+        public String encrypt(String data, char[] password) {
+            return Ciphers.AES128.encrypt(data, password);
+        }
+
+        @Override
+        public String encrypt(String data, char[] password, String salt) {
+            return Ciphers.AES128.encrypt(data, password, salt);
+        }
+
+        @Override
+        public String encrypt(byte[] data, char[] password) {
+            return Ciphers.AES128.encrypt(data, password);
+        }
+
+        @Override
+        public String encrypt(byte[] data, char[] password, byte[] salt) {
+            return Ciphers.AES128.encrypt(data, password, salt);
+        }
+
+        @Override
+        public byte[] encrypt(byte[] data, char[] password, byte[] salt, byte[] iv) {
+            return Ciphers.AES128.encrypt(data, password, salt, iv);
+        }
+
+        @Override
+        public String decryptString(String data, char[] password) {
+            return Ciphers.AES128.decryptString(data, password);
+        }
+
+        @Override
+        public byte[] decrypt(String data, char[] password) {
+            return Ciphers.AES128.decrypt(data, password);
+        }
+
+        @Override
+        public byte[] decrypt(byte[] data, char[] password, byte[] salt, byte[] iv) {
+            return Ciphers.AES128.decrypt(data, password, salt, iv);
+        }
+    }
+
+    private Object[] keys(RotatingMemoryBackedCipher rmbc) {
+        AtomicReference<Object> slots = this.getField("slots", rmbc);
+        return this.getField("keys", slots.get());
+    }
+
     @Test
     public void test_badKeySize() {
         Arrays.asList(-1, 0, 1, 7, 9, 15).forEach(i -> {
@@ -68,8 +142,7 @@ public class RotatingMemoryBackedCipherTest extends AbstractTest {
     public void test_defaults() {
         RotatingMemoryBackedCipher rmbc = new RotatingMemoryBackedCipher();
 
-        Object[] keys = this.getField("keys", rmbc);
-        Assertions.assertEquals(2, keys.length);
+        Assertions.assertEquals(2, this.keys(rmbc).length);
 
         int keySize = this.getField("keyBits", rmbc);
         Assertions.assertEquals(4096, keySize);
@@ -78,6 +151,15 @@ public class RotatingMemoryBackedCipherTest extends AbstractTest {
         Assertions.assertEquals(60l * 60l * 1000l, keyttl);
     }
 
+    @Test
+    public void test_kdf() {
+        RotatingMemoryBackedCipher rmbc = new RotatingMemoryBackedCipher();
+
+        String encrypted = rmbc.encrypt("data");
+        Assertions.assertEquals("Ag==$", encrypted.substring(encrypted.indexOf('$') + 1, encrypted.indexOf('$') + 6));
+        Assertions.assertEquals("data", rmbc.decryptString(encrypted));
+    }
+
     @Test
     public void test_keyRotation() {
         /*
@@ -128,15 +210,13 @@ public class RotatingMemoryBackedCipherTest extends AbstractTest {
         final String data4 = "Data-4";
         final String data5 = "Data-5";
 
-        Object[] keys = this.getField("keys", rmbc);
-
         String cipher1 = rmbc.encrypt(data1, Ciphers.AES128);
         String cipher2 = rmbc.encrypt(data2, Ciphers.AES128);
-        final long expires1 = this.getField("expires", keys[0]);
+        final long expires1 = this.getField("expires", this.keys(rmbc)[0]);
         this.waitUntil(() -> System.currentTimeMillis() > expires1 + buffer, ttlWait);
 
         String cipher3 = rmbc.encrypt(data3, Ciphers.AES128);
-        final long expires2 = this.getField("expires", keys[1]);
+        final long expires2 = this.getField("expires", this.keys(rmbc)[1]);
         this.waitUntil(() -> System.currentTimeMillis() > expires2 + buffer, ttlWait);
 
         String cipher4 = rmbc.encrypt(data4, Ciphers.AES128);
@@ -146,7 +226,7 @@ public class RotatingMemoryBackedCipherTest extends AbstractTest {
         Assertions.assertEquals(data3, rmbc.decryptString(cipher3, Ciphers.AES128));
         Assertions.assertEquals(data4, rmbc.decryptString(cipher4, Ciphers.AES128));
 
-        final long expires3 = this.getField("expires", keys[2]);
+        final long expires3 = this.getField("expires", this.keys(rmbc)[2]);
         this.waitUntil(() -> System.currentTimeMillis() > expires3 + buffer, ttlWait);
 
         String cipher5 = rmbc.encrypt(data5, Ciphers.AES128);
@@ -155,10 +235,10 @@ public class RotatingMemoryBackedCipherTest extends AbstractTest {
         Assertions.assertEquals(data4, rmbc.decryptString(cipher4, Ciphers.AES128));
         Assertions.assertEquals(data5, rmbc.decryptString(cipher5, Ciphers.AES128));
 
-        final long expires4 = this.getField("expires", keys[0]);
+        final long expires4 = this.getField("expires", this.keys(rmbc)[0]);
         this.waitUntil(() -> System.currentTimeMillis() > expires4 + buffer, ttlWait);
 
-        // Key has been rotated out (no matching hashcode)
+        // Key has been rotated out (no matching id)
         try {
             rmbc.decryptString(cipher1, Ciphers.AES128);
             Assertions.fail("Expected exception");
@@ -174,7 +254,7 @@ public class RotatingMemoryBackedCipherTest extends AbstractTest {
         }
 
         // Cause next key to expire
-        final long ttl5 = this.getField("maxTtl", keys[1]);
+        final long ttl5 = this.getField("maxTtl", this.keys(rmbc)[1]);
         this.waitUntil(() -> System.currentTimeMillis() > ttl5 + buffer, maxTtlWait);
 
         // Key exists but has reached max ttl
@@ -193,7 +273,7 @@ public class RotatingMemoryBackedCipherTest extends AbstractTest {
         String cipher = rmbc.encrypt(new byte[] { 0x00 });
 
         // blow away the keys
-        Object[] keys = this.getField("keys", rmbc);
+        Object[] keys = this.keys(rmbc);
         for (int i = 0; i < keys.length; i++) {
             keys[i] = null;
         }
@@ -227,9 +307,11 @@ public class RotatingMemoryBackedCipherTest extends AbstractTest {
         RotatingMemoryBackedCipher rmbc = new RotatingMemoryBackedCipher();
         String cipher = rmbc.encrypt("data");
 
-        // blow away the key but keep the record
-        Object[] keys = this.getField("keys", rmbc);
-        this.setField("key", null, keys[0]);
+        // swap in the wrong key but keep the record
+        Object key = this.keys(rmbc)[0];
+        byte[] salt = this.getField("salt", key);
+        Map<Cipher, DerivedKey> derived = this.getField("derived", key);
+        derived.put(Ciphers.AES256, Ciphers.AES256.deriveKey("wrong".toCharArray(), salt, Kdfs.HKDF_SHA256));
 
         try {
             rmbc.decrypt(cipher, Ciphers.AES256);
@@ -241,6 +323,40 @@ public class RotatingMemoryBackedCipherTest extends AbstractTest {
         }
     }
 
+    @Test
+    public void test_derivedKeyCache() {
+        RotatingMemoryBackedCipher rmbc = new RotatingMemoryBackedCipher(8, 1, 200);
+
+        String aes256 = rmbc.encrypt("data");
+        String aes128 = rmbc.encrypt("data", Ciphers.AES128);
+        Object key = this.keys(rmbc)[0];
+        Map<Cipher, DerivedKey> derived = this.getField("derived", key);
+        DerivedKey cached = derived.get(Ciphers.AES256);
+        Assertions.assertEquals(2, derived.size());
+
+        // derived once per key and cipher
+        Assertions.assertEquals("data", rmbc.decryptString(aes256));
+        Assertions.assertEquals("data", rmbc.decryptString(aes128, Ciphers.AES128));
+        rmbc.encrypt("data");
+        Assertions.assertSame(cached, derived.get(Ciphers.AES256));
+        Assertions.assertEquals(2, derived.size());
+
+        // values are bound to the cipher that encrypted them
+        try {
+            rmbc.decrypt(aes128, Ciphers.AES256);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Unable to decrypt value using available keys.", ex.getMessage());
+        }
+
+        // dropped when the key is retired
+        final long expires = this.getField("expires", key);
+        this.waitUntil(() -> System.currentTimeMillis() > expires + 10, 1000);
+        rmbc.encrypt("data");
+        Assertions.assertNotSame(key, this.keys(rmbc)[0]);
+        Assertions.assertTrue(derived.isEmpty());
+    }
+
     @Test
     public void test_threading_nullKey() {
         RotatingMemoryBackedCipher rmbc = new RotatingMemoryBackedCipher(8, 3, 10000);
@@ -263,17 +379,15 @@ public class RotatingMemoryBackedCipherTest extends AbstractTest {
         this.waitUntil(() -> h1.isComplete());
         this.waitUntil(() -> h2.isComplete());
 
-        // h2 should have waited for h1 to complete and then seen the new key and not
-        // created another one
-        Object[] keys = this.getField("keys", rmbc);
+        // only one thread wins the rotation, the other uses its key
         Object key1 = h1.key();
         Object key2 = h2.key();
 
         Assertions.assertSame(key1, key2);
-        Assertions.assertSame(keys[0], key1);
-        Assertions.assertSame(keys[0], key2);
-        Assertions.assertNull(keys[1]);
-        Assertions.assertNull(keys[2]);
+        Assertions.assertSame(this.keys(rmbc)[0], key1);
+        Assertions.assertSame(this.keys(rmbc)[0], key2);
+        Assertions.assertNull(this.keys(rmbc)[1]);
+        Assertions.assertNull(this.keys(rmbc)[2]);
     }
 
     @Test
@@ -283,12 +397,9 @@ public class RotatingMemoryBackedCipherTest extends AbstractTest {
         ThreadHelper h1 = new ThreadHelper(rmbc, 1);
         ThreadHelper h2 = new ThreadHelper(rmbc, 1);
 
-        // monitor keys
-        Object[] keys = this.getField("keys", rmbc);
-
         // create first key and let it expire
         rmbc.encrypt("data");
-        Object firstKey = keys[0];
+        Object firstKey = this.keys(rmbc)[0];
 
         final long firstExpires = this.getField("expires", firstKey);
         this.waitUntil(() -> System.currentTimeMillis() > firstExpires + 100, 3500);
@@ -308,26 +419,22 @@ public class RotatingMemoryBackedCipherTest extends AbstractTest {
         this.waitUntil(() -> h1.isComplete());
         this.waitUntil(() -> h2.isComplete());
 
-        // h2 should have waited for h1 to complete and then seen the new key and not
-        // created another one
+        // only one thread wins the rotation, the other uses its key
         Object key1 = h1.key();
         Object key2 = h2.key();
 
         Assertions.assertNotSame(firstKey, key1);
         Assertions.assertSame(key1, key2);
-        Assertions.assertSame(keys[0], firstKey);
-        Assertions.assertSame(keys[1], key1);
-        Assertions.assertSame(keys[1], key2);
-        Assertions.assertNull(keys[2]);
+        Assertions.assertSame(this.keys(rmbc)[0], firstKey);
+        Assertions.assertSame(this.keys(rmbc)[1], key1);
+        Assertions.assertSame(this.keys(rmbc)[1], key2);
+        Assertions.assertNull(this.keys(rmbc)[2]);
     }
 
     @Test
     public void test_threading_onlyCreateOneKey() {
         RotatingMemoryBackedCipher rmbc = new RotatingMemoryBackedCipher(8, 1, 1000);
 
-        // monitor keys
-        Object[] keys = this.getField("keys", rmbc);
-
         ThreadHelper h1 = new ThreadHelper(rmbc, 0);
         ThreadHelper h2 = new ThreadHelper(rmbc, 0);
         ThreadHelper h3 = new ThreadHelper(rmbc, 0);
@@ -356,8 +463,7 @@ public class RotatingMemoryBackedCipherTest extends AbstractTest {
         this.waitUntil(() -> h3.isComplete());
         this.waitUntil(() -> h4.isComplete());
 
-        // h2-4 should have waited for h1 to complete and then seen the new key and not
-        // created another one
+        // only one thread wins the rotation, the others use its key
         Object key1 = h1.key();
         Object key2 = h2.key();
         Object key3 = h3.key();
@@ -366,7 +472,7 @@ public class RotatingMemoryBackedCipherTest extends AbstractTest {
         Assertions.assertSame(key1, key2);
         Assertions.assertSame(key1, key3);
         Assertions.assertSame(key1, key4);
-        Assertions.assertSame(keys[0], key1);
+        Assertions.assertSame(this.keys(rmbc)[0], key1);
     }
 
     @Test
@@ -378,12 +484,9 @@ public class RotatingMemoryBackedCipherTest extends AbstractTest {
         ThreadHelper h3 = new ThreadHelper(rmbc, 0);
         ThreadHelper h4 = new ThreadHelper(rmbc, 0);
 
-        // monitor keys
-        Object[] keys = this.getField("keys", rmbc);
-
         // create first key and let it expire
         rmbc.encrypt("data");
-        Object firstKey = keys[0];
+        Object firstKey = this.keys(rmbc)[0];
 
         final long firstExpires = this.getField("expires", firstKey);
         this.waitUntil(() -> System.currentTimeMillis() > firstExpires + 100, 3500);
@@ -411,8 +514,7 @@ public class RotatingMemoryBackedCipherTest extends AbstractTest {
         this.waitUntil(() -> h3.isComplete());
         this.waitUntil(() -> h4.isComplete());
 
-        // h2-4 should have waited for h1 to complete and then seen the new key and not
-        // created another one
+        // only one thread wins the rotation, the others use its key
         Object key1 = h1.key();
         Object key2 = h2.key();
         Object key3 = h3.key();
@@ -422,6 +524,389 @@ public class RotatingMemoryBackedCipherTest extends AbstractTest {
         Assertions.assertSame(key1, key2);
         Assertions.assertSame(key1, key3);
         Assertions.assertSame(key1, key4);
-        Assertions.assertSame(keys[0], key1);
+        Assertions.assertSame(this.keys(rmbc)[0], key1);
+    }
+
+    @Test
+    public void test_threading_stress() throws InterruptedException {
+        /*
+         * Many threads encrypting across many rotations. A lost or torn rotation
+         * would hand out a key that is not in the slots, so every value must decrypt
+         * immediately and every published key must be distinct.
+         */
+        final int threads = 64;
+        final int iterations = 50;
+        // frequent rotations, many slots so a descheduled thread's key is not yet
+        // past its decryption TTL
+        RotatingMemoryBackedCipher rmbc = new RotatingMemoryBackedCipher(8, 256, 10);
+
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger failures = new AtomicInteger();
+        Set<Object> seen = ConcurrentHashMap.newKeySet();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < iterations; i++) {
+                        String value = "data-" + i;
+                        if (!value.equals(rmbc.decryptString(rmbc.encrypt(value)))) {
+                            failures.incrementAndGet();
+                        }
+                        Arrays.stream(this.keys(rmbc)).filter(k -> k != null).forEach(seen::add);
+                    }
+                } catch (Throwable ex) {
+                    failures.incrementAndGet();
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join(60000);
+        }
+
+        Assertions.assertEquals(0, failures.get());
+        Object[] keys = this.keys(rmbc);
+        long distinct = Arrays.stream(keys).filter(k -> k != null).distinct().count();
+        Assertions.assertEquals(Arrays.stream(keys).filter(k -> k != null).count(), distinct);
+        Assertions.assertTrue(seen.size() > 1);
+    }
+
+    @Test
+    public void test_zeroTtl() {
+        RotatingMemoryBackedCipher rmbc = new RotatingMemoryBackedCipher(8, 2, 0);
+
+        // every call rotates but still completes
+        String encrypted = rmbc.encrypt("data");
+        Assertions.assertNotNull(rmbc.encrypt("data"));
+        Assertions.assertNotNull(this.keys(rmbc)[1]);
+        try {
+            rmbc.decrypt(encrypted);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Unable to decrypt value using available keys.", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_retiredKeysAreZeroed() {
+        RotatingMemoryBackedCipher rmbc = new RotatingMemoryBackedCipher(8, 1, 100);
+
+        rmbc.encrypt("data");
+        Object first = this.keys(rmbc)[0];
+        char[] material = this.getField("key", first);
+        Assertions.assertNotEquals('\0', material[0]);
+
+        final long expires = this.getField("expires", first);
+        this.waitUntil(() -> System.currentTimeMillis() > expires + 10, 1000);
+        rmbc.encrypt("data");
+
+        Assertions.assertNotSame(first, this.keys(rmbc)[0]);
+        Assertions.assertArrayEquals(new char[material.length], material);
+    }
+
+    @Test
+    public void test_scheduler() {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            RotatingMemoryBackedCipher rmbc = new RotatingMemoryBackedCipher(8, 2, 300, scheduler);
+            AtomicReference<char[]> spare = this.getField("spare", rmbc);
+
+            // the first key is generated ahead of time
+            this.waitUntil(() -> spare.get() != null, 1000);
+            char[] pregenerated = spare.get();
+            String encrypted = rmbc.encrypt("data");
+            Object first = this.keys(rmbc)[0];
+            Assertions.assertSame(pregenerated, this.getField("key", first));
+
+            // and replaced in the background
+            this.waitUntil(() -> spare.get() != null && spare.get() != pregenerated, 1000);
+
+            // swapped in at expiry without any encryption
+            this.waitUntil(() -> this.keys(rmbc)[1] != null, 1000);
+            Assertions.assertSame(first, this.keys(rmbc)[0]);
+            Assertions.assertEquals("data", rmbc.decryptString(encrypted));
+
+            // purged and zeroed past the decryption TTL
+            char[] material = this.getField("key", first);
+            this.waitUntil(() -> this.keys(rmbc)[0] == null || this.keys(rmbc)[0] != first, 1500);
+            Assertions.assertArrayEquals(new char[material.length], material);
+
+            String value = rmbc.encrypt("data");
+            char[] current = this.getField("key", this.keys(rmbc)[1]);
+            rmbc.close();
+            Assertions.assertArrayEquals(new char[current.length], current);
+            Assertions.assertNull(spare.get());
+            try {
+                rmbc.encrypt("data");
+                Assertions.fail("Expected exception");
+            } catch (RuntimeException ex) {
+                Assertions.assertEquals("Cipher is closed.", ex.getMessage());
+            }
+            try {
+                rmbc.decrypt(value);
+                Assertions.fail("Expected exception");
+            } catch (RuntimeException ex) {
+                Assertions.assertEquals("Unable to decrypt value using available keys.", ex.getMessage());
+            }
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_schedulerShutdown() {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        RotatingMemoryBackedCipher rmbc = new RotatingMemoryBackedCipher(8, 2, 10000, scheduler);
+        AtomicReference<char[]> spare = this.getField("spare", rmbc);
+        this.waitUntil(() -> spare.get() != null, 1000);
+        scheduler.shutdownNow();
+
+        // keys are generated on-demand once the scheduler is gone
+        Assertions.assertEquals("data", rmbc.decryptString(rmbc.encrypt("data")));
+        rmbc.close();
+    }
+
+    @Test
+    public void test_keyIds() {
+        RotatingMemoryBackedCipher rmbc = new RotatingMemoryBackedCipher(8, 168, 0);
+        Object slots = ((AtomicReference<?>) this.getField("slots", rmbc)).get();
+        int base = this.getField("base", slots);
+
+        // ids are sequential and address the key's slot, wrapping around
+        for (int i = 0; i < 200; i++) {
+            rmbc.encrypt("data");
+            int id = this.getField("id", this.keys(rmbc)[i % 168]);
+            Assertions.assertEquals(base + i, id);
+        }
+    }
+
+    @Test
+    public void test_keyLookup() {
+        RotatingMemoryBackedCipher rmbc = new RotatingMemoryBackedCipher(8, 3, 200);
+
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            values.add(rmbc.encrypt("data"));
+            final long expires = this.getField("expires", this.keys(rmbc)[i % 3]);
+            if (i < 3) {
+                this.waitUntil(() -> System.currentTimeMillis() > expires, 1000);
+            }
+        }
+
+        // the wrapped slot holds the newest key, the others are still found
+        for (int i = 1; i < 4; i++) {
+            Assertions.assertEquals("data", rmbc.decryptString(values.get(i)));
+        }
+
+        // overwritten keys and other instances do not match
+        RotatingMemoryBackedCipher other = new RotatingMemoryBackedCipher(8, 3, 60000);
+        for (String value : new String[] { values.get(0), other.encrypt("data") }) {
+            try {
+                rmbc.decrypt(value);
+                Assertions.fail("Expected exception");
+            } catch (RuntimeException ex) {
+                Assertions.assertEquals("Unable to decrypt value using available keys.", ex.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void test_metrics() {
+        RotatingMemoryBackedCipher rmbc = new RotatingMemoryBackedCipher(8, 1, 100);
+        CipherMetrics metrics = new CipherMetrics();
+        Assertions.assertNull(rmbc.getMetricsListener());
+        rmbc.setMetricsListener(metrics);
+        Assertions.assertSame(metrics, rmbc.getMetricsListener());
+
+        String encrypted = rmbc.encrypt("data");
+        Assertions.assertEquals(1, metrics.getRotations());
+        rmbc.encrypt("data");
+        Assertions.assertEquals(1, metrics.getRotations());
+
+        try {
+            rmbc.decrypt("AAAAAA$" + encrypted.substring(encrypted.indexOf('$') + 1));
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Unable to decrypt value using available keys.", ex.getMessage());
+        }
+        Assertions.assertEquals(1, metrics.getFailures(DecryptFailure.KEY_NOT_FOUND));
+
+        try {
+            rmbc.decrypt("!" + encrypted.substring(1));
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Invalid key ID.", ex.getMessage());
+        }
+        Assertions.assertEquals(1, metrics.getFailures(DecryptFailure.INVALID_VALUE));
+
+        // past the decryption TTL but not yet replaced
+        final long maxTtl = this.getField("maxTtl", this.keys(rmbc)[0]);
+        this.waitUntil(() -> System.currentTimeMillis() > maxTtl, 1000);
+        try {
+            rmbc.decrypt(encrypted);
+            Assertions.fail("Expected exception");
+        } catch (RuntimeException ex) {
+            Assertions.assertEquals("Unable to decrypt value using available keys.", ex.getMessage());
+        }
+        Assertions.assertEquals(1, metrics.getFailures(DecryptFailure.KEY_EXPIRED));
+
+        rmbc.encrypt("data");
+        Assertions.assertEquals(2, metrics.getRotations());
+    }
+
+    @Test
+    public void test_metricsPurge() {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            RotatingMemoryBackedCipher rmbc = new RotatingMemoryBackedCipher(8, 2, 100, scheduler);
+            CipherMetrics metrics = new CipherMetrics();
+            rmbc.setMetricsListener(metrics);
+
+            rmbc.encrypt("data");
+            this.waitUntil(() -> metrics.getPurges() > 0, 2000);
+            Assertions.assertTrue(metrics.getRotations() >= 2);
+            rmbc.close();
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_events() throws Exception {
+        RotatingMemoryBackedCipher rmbc = new RotatingMemoryBackedCipher(8, 1, 100);
+        final String prefix = "io.github.lc.oss.commons.encryption.ephemeral.";
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            for (String name : new String[] { "KeyRotation", "KeyPurge", "KeyLookupMiss" }) {
+                recording.enable(prefix + name);
+            }
+            recording.start();
+            String encrypted = rmbc.encrypt("data");
+            try {
+                rmbc.decrypt("AAAAAA$" + encrypted.substring(encrypted.indexOf('$') + 1));
+                Assertions.fail("Expected exception");
+            } catch (RuntimeException ex) {
+                Assertions.assertEquals("Unable to decrypt value using available keys.", ex.getMessage());
+            }
+            recording.stop();
+
+            Path file = Files.createTempFile("rotating-events", ".jfr");
+            try {
+                recording.dump(file);
+                events = RecordingFile.readAllEvents(file);
+            } finally {
+                Files.delete(file);
+            }
+        }
+
+        int id = this.getField("id", this.keys(rmbc)[0]);
+        List<RecordedEvent> rotations = events.stream()
+                .filter(e -> e.getEventType().getName().equals(prefix + "KeyRotation")).collect(Collectors.toList());
+        Assertions.assertEquals(1, rotations.size());
+        Assertions.assertEquals(id, rotations.get(0).getInt("keyId"));
+        Assertions.assertFalse(rotations.get(0).getBoolean("pregenerated"));
+
+        List<RecordedEvent> misses = events.stream()
+                .filter(e -> e.getEventType().getName().equals(prefix + "KeyLookupMiss")).collect(Collectors.toList());
+        Assertions.assertEquals(1, misses.size());
+        Assertions.assertEquals(0, misses.get(0).getInt("keyId"));
+        Assertions.assertEquals("KEY_NOT_FOUND", misses.get(0).getString("cause"));
+    }
+
+    @Test
+    public void test_associatedData() {
+        RotatingMemoryBackedCipher rmbc = new RotatingMemoryBackedCipher();
+        final byte[] data = "data".getBytes(StandardCharsets.UTF_8);
+        final byte[] aad = "record-1".getBytes(StandardCharsets.UTF_8);
+
+        String encrypted = rmbc.encrypt(data, aad);
+        Assertions.assertArrayEquals(data, rmbc.decrypt(encrypted, aad));
+        Assertions.assertArrayEquals(data, rmbc.decrypt(rmbc.encrypt(data, aad, Ciphers.AES128), aad,
+                Ciphers.AES128));
+
+        for (byte[] wrong : new byte[][] { null, "record-2".getBytes(StandardCharsets.UTF_8) }) {
+            try {
+                rmbc.decrypt(encrypted, wrong);
+                Assertions.fail("Expected exception");
+            } catch (RuntimeException ex) {
+                Assertions.assertEquals("Unable to decrypt value using available keys.", ex.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void test_invalidId() {
+        RotatingMemoryBackedCipher rmbc = new RotatingMemoryBackedCipher();
+        String cipher = rmbc.encrypt("data");
+        Assertions.assertEquals("data", rmbc.decryptString(cipher));
+
+        for (String value : new String[] { "AAAA" + cipher.substring(8), "AAAAA!AA" + cipher.substring(8) }) {
+            try {
+                rmbc.decrypt(value);
+                Assertions.fail("Expected exception");
+            } catch (RuntimeException ex) {
+                Assertions.assertEquals("Invalid key ID.", ex.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void test_customCipher() {
+        RotatingMemoryBackedCipher rmbc = new RotatingMemoryBackedCipher();
+        Cipher custom = new PasswordCipher();
+
+        // the key is used as a password, nothing is derived up front
+        String cipher = rmbc.encrypt("data", custom);
+        Assertions.assertEquals(3, cipher.chars().filter(c -> c == '$').count());
+        Assertions.assertEquals("data", rmbc.decryptString(cipher, custom));
+        Map<Cipher, DerivedKey> derived = this.getField("derived", this.keys(rmbc)[0]);
+        Assertions.assertTrue(derived.isEmpty());
+
+        try {
+            rmbc.encrypt(new byte[1], new byte[1], custom);
+            Assertions.fail("Expected exception");
+        } catch (UnsupportedOperationException ex) {
+            Assertions.assertEquals("Associated data is not supported", ex.getMessage());
+        }
+
+        try {
+            rmbc.decrypt(cipher, new byte[1], custom);
+            Assertions.fail("Expected exception");
+        } catch (UnsupportedOperationException ex) {
+            Assertions.assertEquals("Associated data is not supported", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void test_closeAfterImmediateMaintenance() {
+        List<ScheduledFuture<?>> futures = new ArrayList<>();
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1) {
+            @Override
+            public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+                if (futures.isEmpty()) {
+                    // the first run finishes before the constructor stores its future
+                    futures.add(null);
+                    command.run();
+                    return super.schedule(() -> {
+                    }, 0, unit);
+                }
+                ScheduledFuture<?> future = super.schedule(command, delay, unit);
+                futures.add(future);
+                return future;
+            }
+        };
+        try {
+            RotatingMemoryBackedCipher rmbc = new RotatingMemoryBackedCipher(256, 2, 60000, scheduler);
+            Assertions.assertEquals(2, futures.size());
+
+            rmbc.close();
+            Assertions.assertTrue(futures.get(1).isCancelled());
+        } finally {
+            scheduler.shutdownNow();
+        }
     }
 }